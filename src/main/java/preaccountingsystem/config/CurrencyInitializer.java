@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 import preaccountingsystem.service.CurrencyService;
+import preaccountingsystem.service.ExchangeRateCache;
 
 @Component
 @RequiredArgsConstructor
@@ -12,12 +13,14 @@ import preaccountingsystem.service.CurrencyService;
 public class CurrencyInitializer implements CommandLineRunner {
 
     private final CurrencyService currencyService;
+    private final ExchangeRateCache exchangeRateCache;
 
     @Override
     public void run(String... args) {
         try {
             log.info("Initializing currency data...");
             currencyService.initializeDefaultCurrencies();
+            exchangeRateCache.reload();
             log.info("Currency initialization completed");
         } catch (Exception e) {
             log.error("Error initializing currencies: {}", e.getMessage());
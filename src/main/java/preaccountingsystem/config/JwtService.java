@@ -1,19 +1,26 @@
 package preaccountingsystem.config;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders; // Bu importu kullanacağız
 import io.jsonwebtoken.security.Keys; // Bu importu ekliyoruz
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import javax.crypto.SecretKey;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 @Service
@@ -25,10 +32,50 @@ public class JwtService {
     @Value("${jwt.expiration}")
     private long jwtExpiration;
 
+    @Value("${jwt.token-cache.max-entries:10000}")
+    private int tokenCacheMaxEntries;
+
+    private SecretKey signInKey;
+    private JwtParser parser;
+
+    // Tokens whose signature was already checked, keyed by SHA-256 of the token; entries die with the token
+    private final Map<String, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        parser = Jwts.parser().verifyWith(signInKey).build();
+    }
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
 
+    /**
+     * Verifies signature and expiry and returns the subject. Each token is parsed only once
+     * while it is valid; later requests with the same token are answered from the cache.
+     */
+    public String extractVerifiedUsername(String token) {
+        String key = hash(token);
+        long now = System.currentTimeMillis();
+
+        VerifiedToken cached = verifiedTokens.get(key);
+        if (cached != null) {
+            if (cached.expiresAt > now) {
+                return cached.username;
+            }
+            verifiedTokens.remove(key, cached);
+        }
+
+        // Throws for bad signatures and expired tokens, same as extractUsername
+        Claims claims = extractAllClaims(token);
+        Date expiration = claims.getExpiration();
+        if (expiration != null) {
+            remember(key, new VerifiedToken(claims.getSubject(), expiration.getTime()), now);
+        }
+        return claims.getSubject();
+    }
+
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
         final Claims claims = extractAllClaims(token);
         return claimsResolver.apply(claims);
@@ -65,29 +112,40 @@ public class JwtService {
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+        final String username = extractVerifiedUsername(token);
+        return username.equals(userDetails.getUsername());
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts
-                .parser()
-                .verifyWith(getSignInKey())
-                .build()
+        return parser
                 .parseSignedClaims(token)
                 .getPayload();
     }
 
     private SecretKey getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return signInKey;
+    }
+
+    private void remember(String key, VerifiedToken token, long now) {
+        if (verifiedTokens.size() >= tokenCacheMaxEntries) {
+            verifiedTokens.values().removeIf(entry -> entry.expiresAt <= now);
+            if (verifiedTokens.size() >= tokenCacheMaxEntries) {
+                // Still full of live tokens; verify this one again next time rather than grow unbounded
+                return;
+            }
+        }
+        verifiedTokens.put(key, token);
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record VerifiedToken(String username, long expiresAt) {
     }
 }
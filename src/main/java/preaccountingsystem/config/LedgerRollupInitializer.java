@@ -0,0 +1,31 @@
+package preaccountingsystem.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+import preaccountingsystem.service.LedgerRollupService;
+
+/**
+ * Fills monthly_ledger_rollup on the first start after the table was introduced.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LedgerRollupInitializer implements CommandLineRunner {
+
+    private final LedgerRollupService ledgerRollupService;
+
+    @Override
+    public void run(String... args) {
+        try {
+            if (ledgerRollupService.isEmpty()) {
+                log.info("Monthly ledger rollup is empty, rebuilding from income/expense records...");
+                ledgerRollupService.rebuildAll();
+                log.info("Monthly ledger rollup rebuild completed");
+            }
+        } catch (Exception e) {
+            log.error("Error rebuilding monthly ledger rollup: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package preaccountingsystem.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import preaccountingsystem.entity.CompanyStatus;
+import preaccountingsystem.entity.Customer;
+import preaccountingsystem.entity.User;
+import preaccountingsystem.service.TtlCache;
+
+import java.util.function.Function;
+
+/**
+ * Short-lived cache of authenticated principals, so that JwtAuthFilter does not load
+ * the user and its company from the database on every request.
+ *
+ * Entries hold a detached copy of the user (without the password hash) and a lightweight
+ * copy of its company (id, name, contact data and status). The TTL bounds staleness across
+ * nodes; AdminService evicts entries explicitly when it changes users or companies, and a load
+ * that overlaps such an eviction is not cached.
+ */
+@Component
+public class PrincipalCache {
+
+    @Value("${jwt.principal-cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    @Value("${jwt.principal-cache.max-entries:10000}")
+    private int maxEntries;
+
+    private TtlCache<String, CachedPrincipal> principals;
+
+    @PostConstruct
+    void init() {
+        principals = new TtlCache<>(ttlMs, maxEntries, Function.identity());
+    }
+
+    public CachedPrincipal get(String username, Function<String, UserDetails> loader) {
+        return principals.get(username, () -> CachedPrincipal.of(loader.apply(username)));
+    }
+
+    public void invalidateUser(String username) {
+        if (username != null) {
+            principals.invalidateGroup(username);
+        }
+    }
+
+    public void invalidateCompany(Long companyId) {
+        if (companyId != null) {
+            principals.invalidateIf(principal -> companyId.equals(principal.companyId()));
+        }
+    }
+
+    public record CachedPrincipal(UserDetails userDetails, Long companyId, CompanyStatus companyStatus) {
+
+        public boolean isCompanyActive() {
+            return companyId == null || companyStatus == CompanyStatus.ACTIVE;
+        }
+
+        static CachedPrincipal of(UserDetails userDetails) {
+            if (!(userDetails instanceof User user)) {
+                return new CachedPrincipal(userDetails, null, null);
+            }
+
+            Customer company = user.getCustomer();
+            Customer companyCopy = company == null ? null : Customer.builder()
+                    .id(company.getId())
+                    .name(company.getName())
+                    .email(company.getEmail())
+                    .phone(company.getPhone())
+                    .taxNo(company.getTaxNo())
+                    .address(company.getAddress())
+                    .status(company.getStatus())
+                    .createdAt(company.getCreatedAt())
+                    .updatedAt(company.getUpdatedAt())
+                    .build();
+
+            User userCopy = User.builder()
+                    .id(user.getId())
+                    .username(user.getUsername())
+                    .role(user.getRole())
+                    .createdAt(user.getCreatedAt())
+                    .updatedAt(user.getUpdatedAt())
+                    .customer(companyCopy)
+                    .build();
+
+            return new CachedPrincipal(userCopy,
+                    companyCopy != null ? companyCopy.getId() : null,
+                    companyCopy != null ? companyCopy.getStatus() : null);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package preaccountingsystem.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Open-entity-manager-in-view for every endpoint except the AI assistant.
+ *
+ * The view's EntityManager keeps the connection of the first transaction until the request
+ * ends, and for a DeferredResult or SseEmitter that is only when OpenAI has answered. The AI
+ * endpoints read everything they need in one short transaction, so there the connection goes
+ * back to the pool at its commit.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        OpenEntityManagerInViewInterceptor interceptor = new OpenEntityManagerInViewInterceptor();
+        interceptor.setEntityManagerFactory(entityManagerFactory);
+        registry.addWebRequestInterceptor(interceptor).excludePathPatterns("/api/ai/**");
+    }
+}
@@ -2,17 +2,24 @@ package preaccountingsystem.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize; // Bu satırı silebilirsin istersen
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import preaccountingsystem.dto.AIQueryRequest;
 import preaccountingsystem.dto.AIQueryResponse;
 import preaccountingsystem.entity.User;
 import preaccountingsystem.exception.BusinessException;
 import preaccountingsystem.service.AIService;
+import preaccountingsystem.service.OpenAIGateway;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/ai")
@@ -21,10 +28,14 @@ import java.util.Map;
 // SecurityConfig zaten authenticated() kontrolü yapıyor.
 public class AIAssistantController {
 
+    // Time to write the audit log after the completion arrives
+    private static final long RESPONSE_GRACE_MS = 5000;
+
     private final AIService aiService;
+    private final OpenAIGateway openAIGateway;
 
     @PostMapping("/query")
-    public ResponseEntity<AIQueryResponse> query(
+    public DeferredResult<ResponseEntity<AIQueryResponse>> query(
             @Valid @RequestBody AIQueryRequest request,
             @AuthenticationPrincipal User currentUser) {
 
@@ -33,13 +44,67 @@ public class AIAssistantController {
             throw new BusinessException("Bu işlemi yapmak için bir şirkete bağlı olmalısınız.");
         }
 
-        AIQueryResponse response = aiService.processQuery(
-                request,
-                currentUser.getCustomer().getId(),
-                currentUser
-        );
+        // The request thread is released while OpenAI answers; the gateway enforces its own deadline
+        DeferredResult<ResponseEntity<AIQueryResponse>> result =
+                new DeferredResult<>(openAIGateway.getTimeoutMs() + RESPONSE_GRACE_MS);
+        result.onTimeout(() -> result.setErrorResult(
+                new BusinessException("AI Servisi zaman aşımına uğradı, lütfen tekrar deneyin.")));
+
+        aiService.processQuery(request, currentUser.getCustomer().getId(), currentUser)
+                .whenComplete((response, error) -> {
+                    if (error != null) {
+                        result.setErrorResult(error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error);
+                    } else {
+                        result.setResult(ResponseEntity.ok(response));
+                    }
+                });
+
+        return result;
+    }
 
-        return ResponseEntity.ok(response);
+    /**
+     * Streams the answer as server-sent events: "delta" events carry pieces of the text as they
+     * arrive, and a final "done" event carries the full response with the remaining quota.
+     */
+    @PostMapping(value = "/query/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter queryStream(
+            @Valid @RequestBody AIQueryRequest request,
+            @AuthenticationPrincipal User currentUser) {
+
+        if (currentUser.getCustomer() == null) {
+            throw new BusinessException("Bu işlemi yapmak için bir şirkete bağlı olmalısınız.");
+        }
+
+        SseEmitter emitter = new SseEmitter(openAIGateway.getStreamTimeoutMs() + RESPONSE_GRACE_MS);
+
+        // A failed send means the client is gone; the gateway then stops reading from OpenAI
+        aiService.streamQuery(request, currentUser.getCustomer().getId(), currentUser,
+                        delta -> send(emitter, SseEmitter.event().name("delta").data(delta, MediaType.TEXT_PLAIN)))
+                .whenComplete((response, error) -> {
+                    try {
+                        if (error != null) {
+                            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                    ? error.getCause() : error;
+                            emitter.send(SseEmitter.event().name("error").data(cause.getMessage(), MediaType.TEXT_PLAIN));
+                        } else {
+                            emitter.send(SseEmitter.event().name("done").data(response, MediaType.APPLICATION_JSON));
+                        }
+                        emitter.complete();
+                    } catch (IOException | IllegalStateException e) {
+                        emitter.completeWithError(e);
+                    }
+                });
+
+        return emitter;
+    }
+
+    private static void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     @GetMapping("/usage-stats")
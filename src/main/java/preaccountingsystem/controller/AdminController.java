@@ -8,7 +8,11 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import preaccountingsystem.dto.*;
 import preaccountingsystem.entity.User;
+import preaccountingsystem.service.AIAuditArchiveService;
+import preaccountingsystem.service.AIResponseCache;
+import preaccountingsystem.service.AIService;
 import preaccountingsystem.service.AdminService;
+import preaccountingsystem.service.LedgerRollupService;
 
 import java.util.List;
 
@@ -18,6 +22,10 @@ import java.util.List;
 public class AdminController {
 
     private final AdminService adminService;
+    private final LedgerRollupService ledgerRollupService;
+    private final AIResponseCache aiResponseCache;
+    private final AIService aiService;
+    private final AIAuditArchiveService aiAuditArchiveService;
 
     @PostMapping("/reset-admin-password")
     public ResponseEntity<String> resetAdminPassword() {
@@ -35,6 +43,24 @@ public class AdminController {
         return ResponseEntity.ok(adminService.listCustomers());
     }
 
+    @GetMapping("/customers/page")
+    public ResponseEntity<PagedResponse<CustomerDto>> listCustomersPage(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDirection) {
+        return ResponseEntity.ok(adminService.listCustomers(page, size, sortBy, sortDirection));
+    }
+
+    @GetMapping("/users/page")
+    public ResponseEntity<PagedResponse<UserDto>> listUsersPage(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDirection) {
+        return ResponseEntity.ok(adminService.listAllUsers(page, size, sortBy, sortDirection));
+    }
+
     @GetMapping("/users")
     public ResponseEntity<List<UserDto>> listAllUsers(@RequestParam(required = false) String search) {
         if (search != null && !search.trim().isEmpty()) {
@@ -56,6 +82,31 @@ public class AdminController {
         return ResponseEntity.ok(adminService.listCompanies());
     }
 
+    @GetMapping("/companies/page")
+    public ResponseEntity<PagedResponse<CompanyDto>> listCompaniesPage(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDirection) {
+        return ResponseEntity.ok(adminService.listCompanies(page, size, sortBy, sortDirection));
+    }
+
+    @GetMapping("/companies/search")
+    public ResponseEntity<PagedResponse<CompanyDto>> searchCompanies(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(adminService.searchCompanies(q, page, size));
+    }
+
+    @GetMapping("/users/search")
+    public ResponseEntity<PagedResponse<UserDto>> searchUsers(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(adminService.searchUsers(q, page, size));
+    }
+
     @PatchMapping("/companies/{id}/status")
     public ResponseEntity<CompanyDto> updateCompanyStatus(
             @PathVariable Long id,
@@ -110,4 +161,43 @@ public class AdminController {
             @AuthenticationPrincipal User currentUser) {
         return ResponseEntity.ok(adminService.updateUserRole(id, request, currentUser.getId()));
     }
-}
\ No newline at end of file
+
+    @PostMapping("/ledger-rollup/rebuild")
+    public ResponseEntity<String> rebuildLedgerRollup() {
+        ledgerRollupService.rebuildAll();
+        return ResponseEntity.ok("Monthly ledger rollup rebuilt");
+    }
+
+    @GetMapping("/ai/response-cache")
+    public ResponseEntity<AIResponseCacheStatsDto> getAIResponseCacheStats() {
+        return ResponseEntity.ok(aiResponseCache.getStats());
+    }
+
+    @GetMapping("/ai/audit-logs")
+    public ResponseEntity<AIAuditLogPageDto> getAIAuditLogs(
+            @RequestParam Long companyId,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(aiService.getAuditLogPage(companyId, userId, cursor, size));
+    }
+
+    @GetMapping("/ai/audit-archive")
+    public ResponseEntity<List<AIAuditArchiveMonthDto>> listAIAuditArchive() {
+        return ResponseEntity.ok(aiAuditArchiveService.listMonths());
+    }
+
+    @GetMapping("/ai/audit-archive/{month}")
+    public ResponseEntity<AIAuditLogPageDto> readAIAuditArchive(
+            @PathVariable String month,
+            @RequestParam(required = false) Long companyId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(aiAuditArchiveService.readMonth(month, companyId, cursor, size));
+    }
+
+    @PostMapping("/ai/audit-archive/run")
+    public ResponseEntity<List<AIAuditArchiveMonthDto>> runAIAuditArchive() {
+        return ResponseEntity.ok(aiAuditArchiveService.archiveExpired());
+    }
+}
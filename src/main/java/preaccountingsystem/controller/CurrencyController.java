@@ -1,5 +1,6 @@
 package preaccountingsystem.controller;
 
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
@@ -7,6 +8,10 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import preaccountingsystem.dto.CurrencyConversionDto;
 import preaccountingsystem.dto.CurrencyDto;
+import preaccountingsystem.dto.ExchangeRateDto;
+import preaccountingsystem.dto.ExchangeRateRangeDto;
+import preaccountingsystem.dto.ExchangeRateRangeRequest;
+import preaccountingsystem.dto.ExchangeRateUpdateResultDto;
 import preaccountingsystem.service.CurrencyService;
 
 import java.math.BigDecimal;
@@ -64,9 +69,8 @@ public class CurrencyController {
      */
     @PostMapping("/rates/update/{baseCurrency}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Map<String, String>> updateExchangeRates(@PathVariable String baseCurrency) {
-        currencyService.updateExchangeRates(baseCurrency);
-        return ResponseEntity.ok(Map.of("message", "Exchange rates updated for " + baseCurrency));
+    public ResponseEntity<ExchangeRateUpdateResultDto> updateExchangeRates(@PathVariable String baseCurrency) {
+        return ResponseEntity.ok(currencyService.updateExchangeRates(baseCurrency));
     }
 
     /**
@@ -74,9 +78,17 @@ public class CurrencyController {
      */
     @PostMapping("/rates/update-all")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Map<String, String>> updateAllExchangeRates() {
-        currencyService.updateAllExchangeRates();
-        return ResponseEntity.ok(Map.of("message", "All exchange rates updated"));
+    public ResponseEntity<List<ExchangeRateUpdateResultDto>> updateAllExchangeRates() {
+        return ResponseEntity.ok(currencyService.updateAllExchangeRates());
+    }
+
+    /**
+     * Rebuild the exchange rate history files from the database - Admin only
+     */
+    @PostMapping("/rates/history/backfill")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> backfillRateHistory() {
+        return ResponseEntity.ok(Map.of("pairs", currencyService.backfillRateHistory()));
     }
 
     /**
@@ -110,4 +122,24 @@ public class CurrencyController {
                 "date", date.toString()
         ));
     }
+
+    /**
+     * Get daily historical exchange rates between two currencies
+     */
+    @GetMapping("/rates/history")
+    public ResponseEntity<List<ExchangeRateDto>> getHistoricalRates(
+            @RequestParam String from,
+            @RequestParam String to,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        return ResponseEntity.ok(currencyService.getHistoricalRates(from, to, startDate, endDate));
+    }
+
+    /**
+     * Get daily exchange rates of many currency pairs over a date range
+     */
+    @PostMapping("/rates/range")
+    public ResponseEntity<ExchangeRateRangeDto> getRateRange(@Valid @RequestBody ExchangeRateRangeRequest request) {
+        return ResponseEntity.ok(currencyService.getRateRange(request));
+    }
 }
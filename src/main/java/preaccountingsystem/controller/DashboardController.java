@@ -13,6 +13,7 @@ import preaccountingsystem.dto.UnpaidInvoiceSummaryDto;
 import preaccountingsystem.entity.User;
 import preaccountingsystem.exception.BusinessException;
 import preaccountingsystem.service.DashboardService;
+import preaccountingsystem.service.ParallelDashboardService;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -24,11 +25,14 @@ import java.util.List;
 public class DashboardController {
 
     private final DashboardService dashboardService;
+    private final ParallelDashboardService parallelDashboardService;
 
     @GetMapping
     public ResponseEntity<DashboardDto> getDashboard(
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Boolean parallel,
+            @RequestParam(required = false) String reportingCurrency,
             @AuthenticationPrincipal User currentUser) {
 
         if (currentUser.getCustomer() == null) {
@@ -46,11 +50,18 @@ public class DashboardController {
             throw new BusinessException("Start date cannot be after end date");
         }
 
-        DashboardDto dashboard = dashboardService.getDashboard(
-                currentUser.getCustomer().getId(),
-                startDate,
-                endDate
-        );
+        Long companyId = currentUser.getCustomer().getId();
+        if (reportingCurrency != null) {
+            if (!reportingCurrency.matches("[A-Za-z]{3}")) {
+                throw new BusinessException("Reporting currency must be a 3-letter currency code");
+            }
+            return ResponseEntity.ok(dashboardService.getDashboard(
+                    companyId, startDate, endDate, reportingCurrency.toUpperCase()));
+        }
+
+        DashboardDto dashboard = parallelDashboardService.isEnabled(parallel)
+                ? parallelDashboardService.getDashboard(companyId, startDate, endDate)
+                : dashboardService.getDashboard(companyId, startDate, endDate);
 
         return ResponseEntity.ok(dashboard);
     }
@@ -1,5 +1,6 @@
 package preaccountingsystem.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
@@ -9,13 +10,22 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import preaccountingsystem.dto.CreateInvoiceBatchRequest;
 import preaccountingsystem.dto.CreateInvoiceRequest;
+import preaccountingsystem.dto.InvoiceBatchResponse;
 import preaccountingsystem.dto.InvoiceDto;
+import preaccountingsystem.dto.InvoiceExportJobDto;
+import preaccountingsystem.dto.InvoiceExportRequest;
+import preaccountingsystem.dto.InvoicePageDto;
 import preaccountingsystem.entity.User;
 import preaccountingsystem.exception.BusinessException;
+import preaccountingsystem.service.InvoiceExportService;
+import preaccountingsystem.service.InvoicePdfCache;
 import preaccountingsystem.service.InvoiceService;
-import preaccountingsystem.service.InvoicePdfService;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.List;
 
 @RestController
@@ -25,7 +35,11 @@ import java.util.List;
 public class InvoiceController {
 
     private final InvoiceService invoiceService;
-    private final InvoicePdfService invoicePdfService;
+    private final InvoicePdfCache invoicePdfCache;
+    private final InvoiceExportService invoiceExportService;
+    private final ObjectMapper objectMapper;
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
 
     @PostMapping
     public ResponseEntity<InvoiceDto> create(
@@ -43,6 +57,22 @@ public class InvoiceController {
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<InvoiceBatchResponse> createBatch(
+            @Valid @RequestBody CreateInvoiceBatchRequest request,
+            @AuthenticationPrincipal User currentUser) {
+
+        if (currentUser.getCustomer() == null) {
+            throw new BusinessException("User is not associated with any company");
+        }
+
+        InvoiceBatchResponse result = invoiceService.createInvoices(
+                request.getInvoices(),
+                currentUser.getCustomer().getId()
+        );
+        return ResponseEntity.status(HttpStatus.CREATED).body(result);
+    }
+
     @GetMapping
     public ResponseEntity<List<InvoiceDto>> listAll(
             @RequestParam(required = false, defaultValue = "false") boolean unpaidOnly,
@@ -62,6 +92,55 @@ public class InvoiceController {
         return ResponseEntity.ok(result);
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<InvoicePageDto> listPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false, defaultValue = "false") boolean unpaidOnly,
+            @AuthenticationPrincipal User currentUser) {
+
+        if (currentUser.getCustomer() == null) {
+            throw new BusinessException("User is not associated with any company");
+        }
+
+        InvoicePageDto page = invoiceService.listPage(
+                currentUser.getCustomer().getId(),
+                unpaidOnly,
+                cursor,
+                size
+        );
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * All invoices as newline-delimited JSON, written page by page so the full list is never held in memory.
+     */
+    @GetMapping(value = "/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> stream(
+            @RequestParam(required = false, defaultValue = "false") boolean unpaidOnly,
+            @AuthenticationPrincipal User currentUser) {
+
+        if (currentUser.getCustomer() == null) {
+            throw new BusinessException("User is not associated with any company");
+        }
+
+        Long companyId = currentUser.getCustomer().getId();
+        StreamingResponseBody body = outputStream -> {
+            String cursor = null;
+            do {
+                InvoicePageDto page = invoiceService.listPage(companyId, unpaidOnly, cursor, InvoiceService.MAX_PAGE_SIZE);
+                for (InvoiceDto invoice : page.getInvoices()) {
+                    outputStream.write(objectMapper.writeValueAsBytes(invoice));
+                    outputStream.write('\n');
+                }
+                outputStream.flush();
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+        };
+
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<InvoiceDto> getById(
             @PathVariable Long id,
@@ -111,7 +190,7 @@ public class InvoiceController {
     }
 
     @GetMapping("/{id}/pdf")
-    public ResponseEntity<byte[]> downloadPdf(
+    public ResponseEntity<StreamingResponseBody> downloadPdf(
             @PathVariable Long id,
             @AuthenticationPrincipal User currentUser) {
 
@@ -125,15 +204,65 @@ public class InvoiceController {
                 currentUser.getCustomer().getId()
         );
 
-        // Generate PDF
-        byte[] pdfBytes = invoicePdfService.generateInvoicePdf(invoice);
+        // Served from the PDF cache (rendered on a miss) on the async executor, straight into the response
+        StreamingResponseBody body = outputStream -> invoicePdfCache.writeInvoicePdf(invoice, outputStream);
 
         // Set headers for PDF download
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_PDF);
         headers.setContentDispositionFormData("attachment", "invoice-" + invoice.getInvoiceNumber() + ".pdf");
-        headers.setContentLength(pdfBytes.length);
 
-        return new ResponseEntity<>(pdfBytes, headers, HttpStatus.OK);
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    @PostMapping("/export")
+    public ResponseEntity<InvoiceExportJobDto> startExport(
+            @Valid @RequestBody InvoiceExportRequest request,
+            @AuthenticationPrincipal User currentUser) {
+
+        if (currentUser.getCustomer() == null) {
+            throw new BusinessException("User is not associated with any company");
+        }
+
+        InvoiceExportJobDto job = invoiceExportService.startExport(
+                currentUser.getCustomer().getId(),
+                request
+        );
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
+    @GetMapping("/export/{jobId}")
+    public ResponseEntity<InvoiceExportJobDto> getExport(
+            @PathVariable String jobId,
+            @AuthenticationPrincipal User currentUser) {
+
+        if (currentUser.getCustomer() == null) {
+            throw new BusinessException("User is not associated with any company");
+        }
+
+        return ResponseEntity.ok(invoiceExportService.getJob(currentUser.getCustomer().getId(), jobId));
+    }
+
+    @GetMapping("/export/{jobId}/download")
+    public ResponseEntity<StreamingResponseBody> downloadExport(
+            @PathVariable String jobId,
+            @AuthenticationPrincipal User currentUser) throws IOException {
+
+        if (currentUser.getCustomer() == null) {
+            throw new BusinessException("User is not associated with any company");
+        }
+
+        InvoiceExportService.ExportFile export = invoiceExportService.getExportFile(
+                currentUser.getCustomer().getId(),
+                jobId
+        );
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(export.contentType()));
+        headers.setContentDispositionFormData("attachment", export.fileName());
+        headers.setContentLength(Files.size(export.path()));
+
+        StreamingResponseBody body = outputStream -> Files.copy(export.path(), outputStream);
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
     }
 }
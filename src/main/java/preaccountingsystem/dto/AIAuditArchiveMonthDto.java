@@ -0,0 +1,19 @@
+package preaccountingsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AIAuditArchiveMonthDto {
+    // yyyy-MM
+    private String month;
+    private long entries;
+    // Archive runs that wrote rows of this month
+    private int segments;
+    private long sizeBytes;
+}
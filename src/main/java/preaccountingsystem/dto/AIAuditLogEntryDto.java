@@ -0,0 +1,23 @@
+package preaccountingsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AIAuditLogEntryDto {
+    private Long id;
+    private Long companyId;
+    private Long userId;
+    private String query;
+    private String response;
+    private Integer tokensUsed;
+    private Boolean cacheHit;
+    private LocalDateTime timestamp;
+}
@@ -0,0 +1,21 @@
+package preaccountingsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of AI audit log entries, live or archived. Pass nextCursor back to get the following page.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AIAuditLogPageDto {
+    private List<AIAuditLogEntryDto> entries;
+    private String nextCursor;
+    private boolean hasMore;
+}
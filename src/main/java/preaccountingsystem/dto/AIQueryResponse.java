@@ -17,4 +17,6 @@ public class AIQueryResponse {
     private Integer remainingDailyQueries;
     private Integer remainingMonthlyQueries;
     private Boolean limitReached;
+    // Served from the response cache, not charged against the limits
+    private Boolean cached;
 }
@@ -0,0 +1,21 @@
+package preaccountingsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AIResponseCacheStatsDto {
+    private boolean enabled;
+    private int entries;
+    private int maxEntries;
+    private long hits;
+    private long misses;
+    // hits / (hits + misses), 0 before the first lookup
+    private double hitRate;
+    private long evictions;
+}
@@ -0,0 +1,21 @@
+package preaccountingsystem.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CreateInvoiceBatchRequest {
+
+    // Rows are validated one by one in InvoiceService.createInvoices, so a bad row is reported
+    // in the result instead of rejecting the whole batch
+    @NotEmpty(message = "At least one invoice is required")
+    private List<CreateInvoiceRequest> invoices;
+}
@@ -13,6 +13,9 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 public class DashboardDto {
+    // Currency all amounts were converted to; null when amounts are summed as stored
+    private String reportingCurrency;
+
     // Summary metrics
     private BigDecimal totalIncome;
     private BigDecimal totalExpense;
@@ -0,0 +1,21 @@
+package preaccountingsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExchangeRateRangeDto {
+    private LocalDate startDate;
+    private LocalDate endDate;
+    // One rate per day from startDate to endDate for each pair; null before the first known rate
+    private Map<String, List<Double>> rates;
+}
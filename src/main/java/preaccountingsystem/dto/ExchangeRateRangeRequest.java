@@ -0,0 +1,31 @@
+package preaccountingsystem.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Currency pairs, written as "EUR/TRY", and the inclusive date range to read rates for.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExchangeRateRangeRequest {
+
+    @NotEmpty(message = "At least one currency pair is required")
+    private List<@Pattern(regexp = "[A-Z]{3}/[A-Z]{3}", message = "Pairs must look like EUR/TRY") String> pairs;
+
+    @NotNull(message = "Start date is required")
+    private LocalDate startDate;
+
+    @NotNull(message = "End date is required")
+    private LocalDate endDate;
+}
@@ -0,0 +1,21 @@
+package preaccountingsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExchangeRateUpdateResultDto {
+    private String baseCurrency;
+    private LocalDate rateDate;
+    private int fetched; // Rates returned by the API
+    private int written; // Rows sent to the upsert; each one was inserted or overwritten, not counted apart
+    private long fetchMillis;
+    private long persistMillis;
+}
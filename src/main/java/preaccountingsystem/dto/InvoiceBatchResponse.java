@@ -0,0 +1,18 @@
+package preaccountingsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class InvoiceBatchResponse {
+    private int created;
+    private int failed;
+    private List<InvoiceBatchResultDto> results;
+}
@@ -0,0 +1,21 @@
+package preaccountingsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one row of a batch invoice request; index is the row's position in the request.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class InvoiceBatchResultDto {
+    private int index;
+    private boolean success;
+    private Long invoiceId;
+    private String invoiceNumber;
+    private String error;
+}
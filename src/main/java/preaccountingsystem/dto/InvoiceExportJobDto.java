@@ -0,0 +1,23 @@
+package preaccountingsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class InvoiceExportJobDto {
+    private String jobId;
+    private String status;
+    private String format;
+    private long total;
+    private long processed;
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,32 @@
+package preaccountingsystem.dto;
+
+import jakarta.validation.constraints.Pattern;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import preaccountingsystem.entity.InvoiceStatus;
+
+import java.time.LocalDate;
+
+/**
+ * Filter and output format of a bulk invoice PDF export. All filters are optional.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class InvoiceExportRequest {
+
+    private LocalDate startDate;
+
+    private LocalDate endDate;
+
+    private InvoiceStatus status;
+
+    private Long customerSupplierId;
+
+    @Pattern(regexp = "ZIP|PDF", message = "Format must be ZIP or PDF")
+    @Builder.Default
+    private String format = "ZIP";
+}
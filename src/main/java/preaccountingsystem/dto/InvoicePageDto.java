@@ -0,0 +1,21 @@
+package preaccountingsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One keyset page of invoices, newest first. Pass nextCursor back to get the following page.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class InvoicePageDto {
+    private List<InvoiceDto> invoices;
+    private String nextCursor;
+    private boolean hasMore;
+}
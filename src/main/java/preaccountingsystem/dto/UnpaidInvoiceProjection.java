@@ -0,0 +1,18 @@
+package preaccountingsystem.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Flat row of an unpaid invoice with its counterparty name and the sum of its payments,
+ * read in a single query for the dashboard.
+ */
+public interface UnpaidInvoiceProjection {
+    Long getInvoiceId();
+    String getInvoiceNumber();
+    String getCustomerSupplierName();
+    LocalDate getInvoiceDate();
+    LocalDate getDueDate();
+    BigDecimal getTotalAmount();
+    BigDecimal getAmountPaid();
+}
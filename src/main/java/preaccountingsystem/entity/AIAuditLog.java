@@ -10,11 +10,14 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
+// No foreign keys and no unique index: MySQL cannot partition the table by month otherwise
+// (see AIAuditPartitionManager), and archived rows outlive their users anyway
 @Table(name = "ai_audit_logs", indexes = {
     @Index(name = "idx_ai_audit_user", columnList = "user_id"),
     @Index(name = "idx_ai_audit_company", columnList = "company_id"),
     @Index(name = "idx_ai_audit_timestamp", columnList = "timestamp"),
-    @Index(name = "idx_ai_audit_company_timestamp", columnList = "company_id, timestamp")
+    @Index(name = "idx_ai_audit_company_timestamp", columnList = "company_id, timestamp"),
+    @Index(name = "idx_ai_audit_entry_key", columnList = "entry_key")
 })
 @Data
 @Builder
@@ -26,6 +29,10 @@ public class AIAuditLog {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Assigned when the entry is queued; lets a replayed spill file skip rows already written
+    @Column(name = "entry_key", length = 36)
+    private String entryKey;
+
     @Column(nullable = false, length = 2000)
     private String query;
 
@@ -35,14 +42,19 @@ public class AIAuditLog {
     @Column(name = "tokens_used")
     private Integer tokensUsed;
 
+    // Answer reused from the response cache; not counted against the AI limits
+    @Column(name = "cache_hit", nullable = false, columnDefinition = "BOOLEAN DEFAULT FALSE")
+    @Builder.Default
+    private Boolean cacheHit = false;
+
     // User who made the query
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "user_id", nullable = false)
+    @JoinColumn(name = "user_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private User user;
 
     // Company context
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "company_id", nullable = false)
+    @JoinColumn(name = "company_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Customer company;
 
     @CreationTimestamp
@@ -0,0 +1,47 @@
+package preaccountingsystem.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Charged AI queries per company and day or month, shared by all application nodes when
+ * ai.usage.store=database. Maintained by DatabaseAIUsageTracker.
+ */
+@Entity
+@Table(name = "ai_usage_counters", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_ai_usage_counter_key",
+            columnNames = {"company_id", "period_type", "period_start"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AIUsageCounter {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "company_id", nullable = false)
+    private Long companyId;
+
+    // DAY or MONTH
+    @Column(name = "period_type", nullable = false, length = 10)
+    private String periodType;
+
+    // The day, or the first day of the month
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+
+    @Column(name = "query_count", nullable = false)
+    private Long queryCount;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -22,8 +22,10 @@ import java.util.List;
 @Table(name = "invoices", indexes = {
     @Index(name = "idx_invoice_company_status", columnList = "company_id, status"),
     @Index(name = "idx_invoice_company_date", columnList = "company_id, invoice_date"),
-    @Index(name = "idx_invoice_due_date", columnList = "due_date"),
-    @Index(name = "idx_invoice_number", columnList = "invoice_number", unique = true)
+    @Index(name = "idx_invoice_due_date", columnList = "due_date")
+}, uniqueConstraints = {
+    // Each company numbers its invoices from its own sequence
+    @UniqueConstraint(name = "uk_invoice_company_number", columnNames = {"company_id", "invoice_number"})
 })
 public class Invoice {
 
@@ -31,7 +33,7 @@ public class Invoice {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(name = "invoice_number", unique = true, nullable = false, length = 50)
+    @Column(name = "invoice_number", nullable = false, length = 50)
     private String invoiceNumber;
 
     @Column(name = "invoice_date", nullable = false)
@@ -0,0 +1,44 @@
+package preaccountingsystem.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Per-company, per-year invoice number counter.
+ * nextValue is the first sequence number not yet handed out to any node;
+ * nodes reserve blocks by advancing it under a row lock.
+ * Read and written with plain JDBC by InvoiceSequenceRepository; the entity defines the table.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "invoice_sequences", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_invoice_sequence_company_year", columnNames = {"company_id", "sequence_year"})
+})
+public class InvoiceSequence {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "company_id", nullable = false)
+    private Long companyId;
+
+    @Column(name = "sequence_year", nullable = false)
+    private Integer sequenceYear;
+
+    @Column(name = "next_value", nullable = false)
+    private Long nextValue;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,57 @@
+package preaccountingsystem.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Pre-aggregated income/expense totals per company, month, category and currency.
+ * Maintained incrementally by IncomeExpenseService and rebuilt by LedgerRollupService.
+ */
+@Entity
+@Table(name = "monthly_ledger_rollup", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_ledger_rollup_key",
+            columnNames = {"company_id", "period_month", "category_id", "currency"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MonthlyLedgerRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "company_id", nullable = false)
+    private Long companyId;
+
+    // First day of the month
+    @Column(name = "period_month", nullable = false)
+    private LocalDate periodMonth;
+
+    @Column(name = "category_id", nullable = false)
+    private Long categoryId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "category_type", nullable = false, length = 20)
+    private CategoryType categoryType;
+
+    @Column(name = "currency", nullable = false, length = 3)
+    private String currency;
+
+    @Column(name = "total_amount", nullable = false, precision = 19, scale = 2)
+    private BigDecimal totalAmount;
+
+    @Column(name = "entry_count", nullable = false)
+    private Long entryCount;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,7 @@
+package preaccountingsystem.event;
+
+/**
+ * Published inside the writing transaction whenever a company's invoices are created or change status.
+ */
+public record InvoiceChangedEvent(Long companyId) {
+}
@@ -0,0 +1,7 @@
+package preaccountingsystem.event;
+
+/**
+ * Published inside the writing transaction whenever a company's income/expense entries change.
+ */
+public record LedgerChangedEvent(Long companyId) {
+}
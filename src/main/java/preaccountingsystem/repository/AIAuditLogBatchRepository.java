@@ -0,0 +1,71 @@
+package preaccountingsystem.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import preaccountingsystem.entity.AIAuditLog;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Plain JDBC batch inserts for AI audit log entries written behind by AIAuditSink.
+ * Only the ids of the entry's user and company are read. Runs inside the caller's transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AIAuditLogBatchRepository {
+
+    private static final int CHUNK_SIZE = 500;
+
+    private static final String INSERT_LOG =
+            "INSERT INTO ai_audit_logs (entry_key, query, response, tokens_used, cache_hit, user_id, company_id, timestamp) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_KEYS =
+            "SELECT entry_key FROM ai_audit_logs WHERE entry_key IN (:keys)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public void insertAll(List<AIAuditLog> entries) {
+        for (int from = 0; from < entries.size(); from += CHUNK_SIZE) {
+            List<AIAuditLog> chunk = entries.subList(from, Math.min(from + CHUNK_SIZE, entries.size()));
+            jdbcTemplate.batchUpdate(INSERT_LOG, chunk, chunk.size(), (ps, entry) -> {
+                ps.setString(1, entry.getEntryKey());
+                ps.setString(2, entry.getQuery());
+                ps.setString(3, entry.getResponse());
+                if (entry.getTokensUsed() != null) {
+                    ps.setInt(4, entry.getTokensUsed());
+                } else {
+                    ps.setNull(4, Types.INTEGER);
+                }
+                ps.setBoolean(5, Boolean.TRUE.equals(entry.getCacheHit()));
+                ps.setLong(6, entry.getUser().getId());
+                ps.setLong(7, entry.getCompany().getId());
+                ps.setTimestamp(8, Timestamp.valueOf(entry.getTimestamp()));
+            });
+        }
+    }
+
+    /**
+     * Which of the given entry keys are already stored.
+     */
+    public Set<String> findExistingKeys(Collection<String> keys) {
+        Set<String> existing = new HashSet<>();
+        List<String> all = new ArrayList<>(keys);
+        for (int from = 0; from < all.size(); from += CHUNK_SIZE) {
+            MapSqlParameterSource params = new MapSqlParameterSource("keys",
+                    all.subList(from, Math.min(from + CHUNK_SIZE, all.size())));
+            namedParameterJdbcTemplate.query(SELECT_KEYS, params, rs -> { existing.add(rs.getString("entry_key")); });
+        }
+        return existing;
+    }
+}
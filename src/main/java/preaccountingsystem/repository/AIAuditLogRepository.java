@@ -1,5 +1,6 @@
 package preaccountingsystem.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -12,20 +13,34 @@ import java.util.List;
 @Repository
 public interface AIAuditLogRepository extends JpaRepository<AIAuditLog, Long> {
 
-    // Get all logs for a company
-    List<AIAuditLog> findByCompanyIdOrderByTimestampDesc(Long companyId);
+    // Keyset page of a company's logs, newest first; beforeId is the last id of the previous page
+    @Query("SELECT a FROM AIAuditLog a WHERE a.company.id = :companyId " +
+           "AND (:beforeId IS NULL OR a.id < :beforeId) ORDER BY a.id DESC")
+    List<AIAuditLog> findPageByCompanyId(@Param("companyId") Long companyId,
+                                         @Param("beforeId") Long beforeId,
+                                         Limit limit);
 
-    // Get logs for a specific user
-    List<AIAuditLog> findByUserIdOrderByTimestampDesc(Long userId);
+    // Same for one user of the company
+    @Query("SELECT a FROM AIAuditLog a WHERE a.company.id = :companyId AND a.user.id = :userId " +
+           "AND (:beforeId IS NULL OR a.id < :beforeId) ORDER BY a.id DESC")
+    List<AIAuditLog> findPageByCompanyIdAndUserId(@Param("companyId") Long companyId,
+                                                  @Param("userId") Long userId,
+                                                  @Param("beforeId") Long beforeId,
+                                                  Limit limit);
 
-    // Count queries by company in a time range (for daily/monthly limits)
-    @Query("SELECT COUNT(a) FROM AIAuditLog a WHERE a.company.id = :companyId AND a.timestamp >= :startTime")
+    // Count charged queries by company in a time range (for daily/monthly limits); failed calls log 0 tokens
+    @Query("SELECT COUNT(a) FROM AIAuditLog a WHERE a.company.id = :companyId AND a.timestamp >= :startTime " +
+           "AND a.cacheHit = false AND (a.tokensUsed IS NULL OR a.tokensUsed > 0)")
     Long countByCompanyIdAndTimestampAfter(
             @Param("companyId") Long companyId,
             @Param("startTime") LocalDateTime startTime);
 
-    // Get recent logs for context building
-    @Query("SELECT a FROM AIAuditLog a WHERE a.company.id = :companyId " +
-           "ORDER BY a.timestamp DESC")
-    List<AIAuditLog> findRecentByCompanyId(@Param("companyId") Long companyId);
+    // Charged queries per company this month and today, to seed the usage counters
+    @Query("SELECT a.company.id, COUNT(a), SUM(CASE WHEN a.timestamp >= :startOfDay THEN 1 ELSE 0 END) " +
+           "FROM AIAuditLog a WHERE a.timestamp >= :startOfMonth AND a.cacheHit = false " +
+           "AND (a.tokensUsed IS NULL OR a.tokensUsed > 0) " +
+           "GROUP BY a.company.id")
+    List<Object[]> countChargedPerCompany(
+            @Param("startOfMonth") LocalDateTime startOfMonth,
+            @Param("startOfDay") LocalDateTime startOfDay);
 }
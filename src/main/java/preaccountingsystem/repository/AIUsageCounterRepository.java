@@ -0,0 +1,57 @@
+package preaccountingsystem.repository;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import preaccountingsystem.entity.AIUsageCounter;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface AIUsageCounterRepository extends JpaRepository<AIUsageCounter, Long> {
+
+    // Current day and month rows locked until the end of the transaction, for a quota reservation
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM AIUsageCounter c WHERE c.companyId = :companyId " +
+           "AND ((c.periodType = 'DAY' AND c.periodStart = :day) OR (c.periodType = 'MONTH' AND c.periodStart = :month))")
+    List<AIUsageCounter> lockCurrent(@Param("companyId") Long companyId,
+                                     @Param("day") LocalDate day,
+                                     @Param("month") LocalDate month);
+
+    // Gives back a released reservation; never goes below zero
+    @Modifying
+    @Query("UPDATE AIUsageCounter c SET c.queryCount = c.queryCount - 1, c.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE c.companyId = :companyId AND c.queryCount > 0 " +
+           "AND ((c.periodType = 'DAY' AND c.periodStart = :day) OR (c.periodType = 'MONTH' AND c.periodStart = :month))")
+    int decrement(@Param("companyId") Long companyId,
+                  @Param("day") LocalDate day,
+                  @Param("month") LocalDate month);
+
+    // Startup seeding from the audit log; never lowers a counter another node already raised
+    @Modifying
+    @Query(value = "INSERT INTO ai_usage_counters (company_id, period_type, period_start, query_count, updated_at) " +
+                   "VALUES (:companyId, :periodType, :periodStart, :queryCount, CURRENT_TIMESTAMP) " +
+                   "ON DUPLICATE KEY UPDATE query_count = GREATEST(query_count, VALUES(query_count)), " +
+                   "updated_at = CURRENT_TIMESTAMP",
+           nativeQuery = true)
+    int raiseTo(@Param("companyId") Long companyId,
+                @Param("periodType") String periodType,
+                @Param("periodStart") LocalDate periodStart,
+                @Param("queryCount") long queryCount);
+
+    // Current counters of a company: at most one DAY and one MONTH row
+    @Query("SELECT c.periodType, c.queryCount FROM AIUsageCounter c WHERE c.companyId = :companyId " +
+           "AND ((c.periodType = 'DAY' AND c.periodStart = :day) OR (c.periodType = 'MONTH' AND c.periodStart = :month))")
+    List<Object[]> findCurrent(@Param("companyId") Long companyId,
+                               @Param("day") LocalDate day,
+                               @Param("month") LocalDate month);
+
+    @Modifying
+    @Query("DELETE FROM AIUsageCounter c WHERE c.periodStart < :before")
+    int deleteByPeriodStartBefore(@Param("before") LocalDate before);
+}
@@ -0,0 +1,99 @@
+package preaccountingsystem.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Database search over companies and users, used while the in-memory AdminSearchIndex is not built.
+ *
+ * With full text on (MySQL, FULLTEXT indexes ft_customers_search and ft_users_username) every
+ * word of the query must match as a word prefix, ranked by relevance. Otherwise it falls back to
+ * LIKE '%term%', which scans but still only returns one page.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AdminSearchRepository {
+
+    public static final String COMPANY_FULLTEXT = "ft_customers_search";
+    public static final String USER_FULLTEXT = "ft_users_username";
+
+    private static final String COMPANY_MATCH = "MATCH(name, email, tax_no) AGAINST (? IN BOOLEAN MODE)";
+    private static final String COMPANY_LIKE = "(LOWER(name) LIKE ? OR LOWER(email) LIKE ? OR LOWER(tax_no) LIKE ?)";
+
+    private static final String USER_MATCH =
+            "(MATCH(u.username) AGAINST (? IN BOOLEAN MODE) OR MATCH(c.name, c.email, c.tax_no) AGAINST (? IN BOOLEAN MODE))";
+    private static final String USER_LIKE = "(LOWER(u.username) LIKE ? OR LOWER(c.name) LIKE ?)";
+    private static final String USER_FROM = " FROM users u LEFT JOIN customers c ON c.user_id = u.id WHERE ";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<Long> findCompanyIds(String query, boolean fullText, int offset, int limit) {
+        if (fullText) {
+            String match = toBooleanQuery(query);
+            if (match.isEmpty()) {
+                return List.of();
+            }
+            return jdbcTemplate.queryForList("SELECT id FROM customers WHERE " + COMPANY_MATCH +
+                    " ORDER BY " + COMPANY_MATCH + " DESC, id LIMIT ? OFFSET ?", Long.class, match, match, limit, offset);
+        }
+        String like = toLikePattern(query);
+        return jdbcTemplate.queryForList("SELECT id FROM customers WHERE " + COMPANY_LIKE +
+                " ORDER BY id LIMIT ? OFFSET ?", Long.class, like, like, like, limit, offset);
+    }
+
+    public long countCompanies(String query, boolean fullText) {
+        if (fullText) {
+            String match = toBooleanQuery(query);
+            return match.isEmpty() ? 0 : jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM customers WHERE " + COMPANY_MATCH, Long.class, match);
+        }
+        String like = toLikePattern(query);
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM customers WHERE " + COMPANY_LIKE, Long.class,
+                like, like, like);
+    }
+
+    public List<Long> findUserIds(String query, boolean fullText, int offset, int limit) {
+        if (fullText) {
+            String match = toBooleanQuery(query);
+            if (match.isEmpty()) {
+                return List.of();
+            }
+            return jdbcTemplate.queryForList("SELECT u.id" + USER_FROM + USER_MATCH +
+                    " ORDER BY u.id LIMIT ? OFFSET ?", Long.class, match, match, limit, offset);
+        }
+        String like = toLikePattern(query);
+        return jdbcTemplate.queryForList("SELECT u.id" + USER_FROM + USER_LIKE +
+                " ORDER BY u.id LIMIT ? OFFSET ?", Long.class, like, like, limit, offset);
+    }
+
+    public long countUsers(String query, boolean fullText) {
+        if (fullText) {
+            String match = toBooleanQuery(query);
+            return match.isEmpty() ? 0 : jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*)" + USER_FROM + USER_MATCH, Long.class, match, match);
+        }
+        String like = toLikePattern(query);
+        return jdbcTemplate.queryForObject("SELECT COUNT(*)" + USER_FROM + USER_LIKE, Long.class, like, like);
+    }
+
+    // "acme ltd" -> "+acme* +ltd*"; operators typed by the user are dropped
+    private static String toBooleanQuery(String query) {
+        StringBuilder match = new StringBuilder();
+        for (String word : query.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                match.append(match.isEmpty() ? "" : " ").append('+').append(word).append('*');
+            }
+        }
+        return match.toString();
+    }
+
+    private static String toLikePattern(String query) {
+        String escaped = query.trim().toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+}
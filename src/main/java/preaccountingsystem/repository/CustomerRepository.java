@@ -1,12 +1,33 @@
 package preaccountingsystem.repository;
 
+import preaccountingsystem.dto.CompanyDto;
+import preaccountingsystem.dto.CustomerDto;
 import preaccountingsystem.entity.Customer;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
     Optional<Customer> findByEmail(String email);
+
+    // Searchable columns only, to build the admin search index
+    @Query("SELECT c.id, c.name, c.email, c.taxNo FROM Customer c")
+    List<Object[]> findSearchFields();
+
+    // Admin listings select exactly the DTO columns; the counts need no join
+    @Query(value = "SELECT new preaccountingsystem.dto.CompanyDto(c.id, c.name, c.email, c.phone, c.taxNo, " +
+                   "c.address, c.status, c.createdAt, c.updatedAt) FROM Customer c",
+           countQuery = "SELECT COUNT(c) FROM Customer c")
+    Page<CompanyDto> findCompanyPage(Pageable pageable);
+
+    @Query(value = "SELECT new preaccountingsystem.dto.CustomerDto(c.id, c.name, c.email, c.phone, c.taxNo, " +
+                   "c.address, COALESCE(u.username, 'N/A')) FROM Customer c LEFT JOIN c.user u",
+           countQuery = "SELECT COUNT(c) FROM Customer c")
+    Page<CustomerDto> findCustomerPage(Pageable pageable);
 }
@@ -4,6 +4,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import preaccountingsystem.entity.CustomerSupplier;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,6 +16,8 @@ public interface CustomerSupplierRepository extends JpaRepository<CustomerSuppli
 
     Optional<CustomerSupplier> findByIdAndCompanyId(Long id, Long companyId);
 
+    List<CustomerSupplier> findByCompanyIdAndIdIn(Long companyId, Collection<Long> ids);
+
     List<CustomerSupplier> findByCompanyIdAndIsCustomerTrue(Long companyId);
 
     List<CustomerSupplier> findByCompanyIdAndIsCustomerFalse(Long companyId);
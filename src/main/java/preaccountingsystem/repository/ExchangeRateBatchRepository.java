@@ -0,0 +1,74 @@
+package preaccountingsystem.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk upsert of exchange rates.
+ *
+ * One base currency's rates for a day are written as multi-row INSERT ... ON DUPLICATE KEY
+ * UPDATE statements against the unique (from_currency, to_currency, rate_date) key, instead
+ * of a lookup and a save per currency. Runs inside the caller's transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ExchangeRateBatchRepository {
+
+    private static final int CHUNK_SIZE = 500;
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO exchange_rates (from_currency, to_currency, rate, rate_date, source, created_at, updated_at) VALUES ";
+
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String ON_DUPLICATE =
+            " ON DUPLICATE KEY UPDATE rate = VALUES(rate), source = VALUES(source), updated_at = VALUES(updated_at)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts or updates the rates from {@code baseCurrency} on {@code rateDate} and returns the number of rows sent.
+     */
+    public int upsertRates(String baseCurrency, LocalDate rateDate, Map<String, BigDecimal> rates, String source) {
+        List<Map.Entry<String, BigDecimal>> rows = rates.entrySet().stream()
+                .filter(entry -> entry.getValue() != null)
+                .toList();
+        Date date = Date.valueOf(rateDate);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        for (int from = 0; from < rows.size(); from += CHUNK_SIZE) {
+            List<Map.Entry<String, BigDecimal>> chunk = rows.subList(from, Math.min(from + CHUNK_SIZE, rows.size()));
+            jdbcTemplate.update(upsertSql(chunk.size()), ps -> {
+                int index = 1;
+                for (Map.Entry<String, BigDecimal> row : chunk) {
+                    ps.setString(index++, baseCurrency);
+                    ps.setString(index++, row.getKey());
+                    ps.setBigDecimal(index++, row.getValue());
+                    ps.setDate(index++, date);
+                    ps.setString(index++, source);
+                    ps.setTimestamp(index++, now);
+                    ps.setTimestamp(index++, now);
+                }
+            });
+        }
+        return rows.size();
+    }
+
+    private static String upsertSql(int rowCount) {
+        List<String> placeholders = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            placeholders.add(ROW_PLACEHOLDERS);
+        }
+        return INSERT_PREFIX + String.join(", ", placeholders) + ON_DUPLICATE;
+    }
+}
@@ -8,6 +8,7 @@ import preaccountingsystem.entity.ExchangeRate;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ExchangeRateRepository extends JpaRepository<ExchangeRate, Long> {
@@ -20,6 +21,22 @@ public interface ExchangeRateRepository extends JpaRepository<ExchangeRate, Long
            "ORDER BY e.rateDate DESC LIMIT 1")
     Optional<ExchangeRate> findLatestRate(String fromCurrency, String toCurrency, LocalDate date);
 
+    // Plain columns for building the in-memory rate matrix: {fromCurrency, toCurrency, rateDate, rate}
+    @Query("SELECT e.fromCurrency, e.toCurrency, e.rateDate, e.rate FROM ExchangeRate e " +
+           "WHERE e.rateDate >= :since ORDER BY e.rateDate")
+    List<Object[]> findRateValuesSince(LocalDate since);
+
+    // One pair's history for the time-series store: {rateDate, rate}
+    @Query("SELECT e.rateDate, e.rate FROM ExchangeRate e " +
+           "WHERE e.fromCurrency = :fromCurrency AND e.toCurrency = :toCurrency AND e.rateDate >= :since " +
+           "ORDER BY e.rateDate")
+    List<Object[]> findPairRateValuesSince(String fromCurrency, String toCurrency, LocalDate since);
+
+    // Full history grouped by pair, for backfilling the time-series store: {fromCurrency, toCurrency, rateDate, rate}
+    @Query("SELECT e.fromCurrency, e.toCurrency, e.rateDate, e.rate FROM ExchangeRate e " +
+           "ORDER BY e.fromCurrency, e.toCurrency, e.rateDate")
+    Stream<Object[]> streamAllRateValues();
+
     List<ExchangeRate> findByFromCurrencyAndRateDate(String fromCurrency, LocalDate rateDate);
 
     @Query("SELECT DISTINCT e.fromCurrency FROM ExchangeRate e WHERE e.rateDate = :date")
@@ -52,4 +52,49 @@ public interface IncomeExpenseRepository extends JpaRepository<IncomeExpense, Lo
             @Param("companyId") Long companyId,
             @Param("startDate") LocalDate startDate,
             @Param("endDate") LocalDate endDate);
+
+    // Reporting-currency dashboard: amounts per category, currency and day, converted in the service
+    @Query("SELECT ie.category.type, ie.category.id, ie.category.name, ie.currency, ie.date, SUM(ie.amount) " +
+           "FROM IncomeExpense ie " +
+           "WHERE ie.company.id = :companyId " +
+           "AND ie.date BETWEEN :startDate AND :endDate " +
+           "GROUP BY ie.category.type, ie.category.id, ie.category.name, ie.currency, ie.date")
+    List<Object[]> sumByCategoryCurrencyAndDate(
+            @Param("companyId") Long companyId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate);
+
+    // Edge segments of a dashboard range that do not cover a whole month
+    @Query("SELECT ie.category.type, SUM(ie.amount), COUNT(ie) " +
+           "FROM IncomeExpense ie " +
+           "WHERE ie.company.id = :companyId " +
+           "AND ie.date BETWEEN :startDate AND :endDate " +
+           "GROUP BY ie.category.type")
+    List<Object[]> sumByCategoryTypeAndDateBetween(
+            @Param("companyId") Long companyId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate);
+
+    // AI context snapshot: totals per category over a period
+    @Query("SELECT ie.category.type, ie.category.name, SUM(ie.amount) " +
+           "FROM IncomeExpense ie " +
+           "WHERE ie.company.id = :companyId " +
+           "AND ie.date BETWEEN :startDate AND :endDate " +
+           "GROUP BY ie.category.type, ie.category.id, ie.category.name " +
+           "ORDER BY SUM(ie.amount) DESC")
+    List<Object[]> sumByCategoryBetween(
+            @Param("companyId") Long companyId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate);
+
+    // Source rows for rebuilding the monthly ledger rollup of a company
+    @Query("SELECT YEAR(ie.date), MONTH(ie.date), ie.category.id, ie.category.type, ie.currency, " +
+           "SUM(ie.amount), COUNT(ie) " +
+           "FROM IncomeExpense ie " +
+           "WHERE ie.company.id = :companyId " +
+           "GROUP BY YEAR(ie.date), MONTH(ie.date), ie.category.id, ie.category.type, ie.currency")
+    List<Object[]> aggregateMonthlyByCategoryAndCurrency(@Param("companyId") Long companyId);
+
+    @Query("SELECT DISTINCT ie.company.id FROM IncomeExpense ie")
+    List<Long> findDistinctCompanyIds();
 }
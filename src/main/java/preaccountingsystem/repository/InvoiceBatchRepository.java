@@ -0,0 +1,105 @@
+package preaccountingsystem.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import preaccountingsystem.entity.Invoice;
+import preaccountingsystem.entity.InvoiceItem;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plain JDBC batch inserts for invoices and their items.
+ *
+ * Invoice and InvoiceItem use IDENTITY ids, which makes Hibernate insert rows one by one.
+ * Here the rows go out as JDBC batches (rewritten to multi-row INSERTs by the MySQL driver
+ * with rewriteBatchedStatements=true) and the generated invoice ids are read back by company
+ * and invoice number, which are unique together. Runs inside the caller's transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class InvoiceBatchRepository {
+
+    private static final int CHUNK_SIZE = 500;
+
+    private static final String INSERT_INVOICE =
+            "INSERT INTO invoices (invoice_number, invoice_date, due_date, total_amount, currency, status, notes, " +
+            "customer_supplier_id, company_id, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_ITEM =
+            "INSERT INTO invoice_items (invoice_id, description, quantity, unit_price, amount) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String SELECT_IDS =
+            "SELECT id, company_id, invoice_number FROM invoices " +
+            "WHERE company_id IN (:companyIds) AND invoice_number IN (:numbers)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /**
+     * Inserts the invoices with their items and sets the generated ids on the given entities.
+     * Invoices must have customerSupplier and company set; items are taken from Invoice.items.
+     */
+    public void insertAll(List<Invoice> invoices) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        for (List<Invoice> chunk : chunks(invoices)) {
+            jdbcTemplate.batchUpdate(INSERT_INVOICE, chunk, chunk.size(), (ps, invoice) -> {
+                ps.setString(1, invoice.getInvoiceNumber());
+                ps.setDate(2, Date.valueOf(invoice.getInvoiceDate()));
+                ps.setDate(3, Date.valueOf(invoice.getDueDate()));
+                ps.setBigDecimal(4, invoice.getTotalAmount());
+                ps.setString(5, invoice.getCurrency());
+                ps.setString(6, invoice.getStatus().name());
+                ps.setString(7, invoice.getNotes());
+                ps.setLong(8, invoice.getCustomerSupplier().getId());
+                ps.setLong(9, invoice.getCompany().getId());
+                ps.setTimestamp(10, now);
+                ps.setTimestamp(11, now);
+            });
+
+            Map<NumberKey, Long> ids = new HashMap<>();
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("companyIds", chunk.stream()
+                            .map(invoice -> invoice.getCompany().getId()).distinct().toList())
+                    .addValue("numbers", chunk.stream().map(Invoice::getInvoiceNumber).toList());
+            namedParameterJdbcTemplate.query(SELECT_IDS, params, rs -> {
+                ids.put(new NumberKey(rs.getLong("company_id"), rs.getString("invoice_number")), rs.getLong("id"));
+            });
+            chunk.forEach(invoice -> invoice.setId(ids.get(NumberKey.of(invoice))));
+
+            List<InvoiceItem> items = chunk.stream().flatMap(invoice -> invoice.getItems().stream()).toList();
+            for (List<InvoiceItem> itemChunk : chunks(items)) {
+                jdbcTemplate.batchUpdate(INSERT_ITEM, itemChunk, itemChunk.size(), (ps, item) -> {
+                    ps.setLong(1, item.getInvoice().getId());
+                    ps.setString(2, item.getDescription());
+                    ps.setBigDecimal(3, item.getQuantity());
+                    ps.setBigDecimal(4, item.getUnitPrice());
+                    ps.setBigDecimal(5, item.getAmount());
+                });
+            }
+        }
+    }
+
+    private static <T> List<List<T>> chunks(List<T> rows) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < rows.size(); from += CHUNK_SIZE) {
+            chunks.add(rows.subList(from, Math.min(from + CHUNK_SIZE, rows.size())));
+        }
+        return chunks;
+    }
+
+    private record NumberKey(long companyId, String invoiceNumber) {
+        private static NumberKey of(Invoice invoice) {
+            return new NumberKey(invoice.getCompany().getId(), invoice.getInvoiceNumber());
+        }
+    }
+}
@@ -1,13 +1,19 @@
 package preaccountingsystem.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import preaccountingsystem.dto.UnpaidInvoiceProjection;
 import preaccountingsystem.entity.Invoice;
 import preaccountingsystem.entity.InvoiceStatus;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
@@ -17,8 +23,11 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
 
     Optional<Invoice> findByIdAndCompanyId(Long id, Long companyId);
 
-    // Find by invoice number (for uniqueness check)
-    Optional<Invoice> findByInvoiceNumber(String invoiceNumber);
+    // Which of the given numbers the company has already used (numbers are unique per company)
+    @Query("SELECT i.invoiceNumber FROM Invoice i WHERE i.company.id = :companyId " +
+           "AND i.invoiceNumber IN :invoiceNumbers")
+    List<String> findExistingInvoiceNumbers(@Param("companyId") Long companyId,
+                                            @Param("invoiceNumbers") Collection<String> invoiceNumbers);
 
     // Filter by status
     List<Invoice> findByCompanyIdAndStatus(Long companyId, InvoiceStatus status);
@@ -26,7 +35,69 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
     // Find unpaid invoices
     List<Invoice> findByCompanyIdAndStatusIn(Long companyId, List<InvoiceStatus> statuses);
 
-    // Get the last invoice number for auto-generation
-    @Query("SELECT i FROM Invoice i WHERE i.company.id = :companyId ORDER BY i.createdAt DESC")
-    List<Invoice> findLatestByCompanyId(Long companyId);
+    // Unpaid invoices joined with counterparty name and grouped payment sums in one statement
+    @Query("SELECT i.id AS invoiceId, i.invoiceNumber AS invoiceNumber, cs.name AS customerSupplierName, " +
+           "i.invoiceDate AS invoiceDate, i.dueDate AS dueDate, i.totalAmount AS totalAmount, " +
+           "COALESCE(SUM(p.amount), 0) AS amountPaid " +
+           "FROM Invoice i JOIN i.customerSupplier cs " +
+           "LEFT JOIN Payment p ON p.invoice = i " +
+           "WHERE i.company.id = :companyId AND i.status = :status " +
+           "GROUP BY i.id, i.invoiceNumber, cs.name, i.invoiceDate, i.dueDate, i.totalAmount " +
+           "ORDER BY i.dueDate, i.id")
+    Stream<UnpaidInvoiceProjection> streamUnpaidSummaries(@Param("companyId") Long companyId,
+                                                         @Param("status") InvoiceStatus status);
+
+    // Keyset pagination over (invoice_date DESC, id DESC); status is optional
+    @Query("SELECT i.id FROM Invoice i WHERE i.company.id = :companyId " +
+           "AND (:status IS NULL OR i.status = :status) " +
+           "ORDER BY i.invoiceDate DESC, i.id DESC")
+    List<Long> findFirstPageIds(@Param("companyId") Long companyId,
+                                @Param("status") InvoiceStatus status,
+                                Limit limit);
+
+    @Query("SELECT i.id FROM Invoice i WHERE i.company.id = :companyId " +
+           "AND (:status IS NULL OR i.status = :status) " +
+           "AND (i.invoiceDate < :afterDate OR (i.invoiceDate = :afterDate AND i.id < :afterId)) " +
+           "ORDER BY i.invoiceDate DESC, i.id DESC")
+    List<Long> findPageIdsAfter(@Param("companyId") Long companyId,
+                                @Param("status") InvoiceStatus status,
+                                @Param("afterDate") LocalDate afterDate,
+                                @Param("afterId") Long afterId,
+                                Limit limit);
+
+    // Export selection, walked by ascending id; every filter is optional
+    @Query("SELECT i.id FROM Invoice i WHERE i.company.id = :companyId AND i.id > :afterId " +
+           "AND (:status IS NULL OR i.status = :status) " +
+           "AND (:customerSupplierId IS NULL OR i.customerSupplier.id = :customerSupplierId) " +
+           "AND (:startDate IS NULL OR i.invoiceDate >= :startDate) " +
+           "AND (:endDate IS NULL OR i.invoiceDate <= :endDate) " +
+           "ORDER BY i.id")
+    List<Long> findExportIds(@Param("companyId") Long companyId,
+                             @Param("status") InvoiceStatus status,
+                             @Param("customerSupplierId") Long customerSupplierId,
+                             @Param("startDate") LocalDate startDate,
+                             @Param("endDate") LocalDate endDate,
+                             @Param("afterId") Long afterId,
+                             Limit limit);
+
+    @Query("SELECT COUNT(i) FROM Invoice i WHERE i.company.id = :companyId " +
+           "AND (:status IS NULL OR i.status = :status) " +
+           "AND (:customerSupplierId IS NULL OR i.customerSupplier.id = :customerSupplierId) " +
+           "AND (:startDate IS NULL OR i.invoiceDate >= :startDate) " +
+           "AND (:endDate IS NULL OR i.invoiceDate <= :endDate)")
+    long countForExport(@Param("companyId") Long companyId,
+                        @Param("status") InvoiceStatus status,
+                        @Param("customerSupplierId") Long customerSupplierId,
+                        @Param("startDate") LocalDate startDate,
+                        @Param("endDate") LocalDate endDate);
+
+    // AI context snapshot: invoice count and total per status
+    @Query("SELECT i.status, COUNT(i), COALESCE(SUM(i.totalAmount), 0) FROM Invoice i " +
+           "WHERE i.company.id = :companyId GROUP BY i.status")
+    List<Object[]> summarizeByStatus(@Param("companyId") Long companyId);
+
+    // Loads a page of invoices with counterparty and items in one statement
+    @Query("SELECT DISTINCT i FROM Invoice i JOIN FETCH i.customerSupplier LEFT JOIN FETCH i.items " +
+           "WHERE i.id IN :ids")
+    List<Invoice> findWithDetailsByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,144 @@
+package preaccountingsystem.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * Plain JDBC access to the invoice_sequences counters (see InvoiceSequence), on a small
+ * connection pool of its own.
+ *
+ * A reservation commits on its own connection whatever transaction the caller is in, without
+ * taking a second connection from the main pool, and never touches the main pool while it holds
+ * one of these. A missing counter row is created with INSERT ... ON DUPLICATE KEY UPDATE before
+ * it is locked: locking a row that does not exist yet would take an InnoDB gap lock, and two
+ * first-of-year reservations would deadlock on their inserts. A reservation that still loses a
+ * deadlock or lock wait is retried.
+ *
+ * Invoice numbers are unique per company (uk_invoice_company_number). On MySQL, unique indexes
+ * left over from when they were unique across companies are dropped at startup.
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+// Runs after Hibernate has created or updated the table
+@DependsOn("entityManagerFactory")
+public class InvoiceSequenceRepository {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final String SELECT_VALUE =
+            "SELECT next_value FROM invoice_sequences WHERE company_id = ? AND sequence_year = ?";
+
+    private static final String INSERT_IF_ABSENT =
+            "INSERT INTO invoice_sequences (company_id, sequence_year, next_value, updated_at) VALUES (?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE next_value = next_value";
+
+    private static final String UPDATE_VALUE =
+            "UPDATE invoice_sequences SET next_value = ?, updated_at = ? WHERE company_id = ? AND sequence_year = ?";
+
+    private static final String SELECT_LAST_NUMBER =
+            "SELECT invoice_number FROM invoices WHERE company_id = ? AND created_at >= ? ORDER BY id DESC LIMIT 1";
+
+    private final DataSourceProperties dataSourceProperties;
+
+    @Value("${invoice.sequence.pool-size:2}")
+    private int poolSize;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        dataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("invoice-sequence");
+        dataSource.setMaximumPoolSize(poolSize);
+        dataSource.setMinimumIdle(0);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (database != null && database.toLowerCase(Locale.ROOT).contains("mysql")) {
+            dropGlobalNumberIndexes();
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        dataSource.close();
+    }
+
+    /**
+     * Advances the counter by {@code size} in its own transaction and returns the first reserved
+     * value. A counter that does not exist yet starts at {@code seed}, which is asked for only then.
+     */
+    public long reserve(Long companyId, int year, int size, LongSupplier seed) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> advance(companyId, year, size, seed));
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+                log.debug("Invoice sequence for company {} year {} lost a lock wait, retrying: {}",
+                        companyId, year, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Last invoice number the company issued since the given time. Read on this pool, for seeding
+     * a new counter inside its reservation.
+     */
+    public Optional<String> findLastInvoiceNumberSince(Long companyId, LocalDateTime since) {
+        List<String> numbers = jdbcTemplate.queryForList(SELECT_LAST_NUMBER, String.class,
+                companyId, Timestamp.valueOf(since));
+        return numbers.stream().findFirst();
+    }
+
+    // Unique indexes on invoice_number alone, from the old entity mapping
+    private void dropGlobalNumberIndexes() {
+        List<String> names = jdbcTemplate.queryForList(
+                "SELECT INDEX_NAME FROM information_schema.STATISTICS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'invoices' AND NON_UNIQUE = 0 " +
+                "AND INDEX_NAME <> 'PRIMARY' GROUP BY INDEX_NAME " +
+                "HAVING COUNT(*) = 1 AND MAX(COLUMN_NAME) = 'invoice_number'",
+                String.class);
+        for (String name : names) {
+            jdbcTemplate.execute("ALTER TABLE invoices DROP INDEX `" + name + "`");
+            log.info("Dropped unique index {} on invoices.invoice_number; numbers are unique per company now", name);
+        }
+    }
+
+    private long advance(Long companyId, int year, int size, LongSupplier seed) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        // Plain read, no lock: only a missing row takes the insert
+        if (jdbcTemplate.queryForList(SELECT_VALUE, Long.class, companyId, year).isEmpty()) {
+            jdbcTemplate.update(INSERT_IF_ABSENT, companyId, year, seed.getAsLong(), now);
+        }
+
+        Long start = jdbcTemplate.queryForObject(SELECT_VALUE + " FOR UPDATE", Long.class, companyId, year);
+        jdbcTemplate.update(UPDATE_VALUE, start + size, now, companyId, year);
+        return start;
+    }
+}
@@ -10,6 +10,7 @@ import preaccountingsystem.entity.Item;
 import preaccountingsystem.entity.ItemStatus;
 import preaccountingsystem.entity.ItemType;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -41,21 +42,13 @@ public interface ItemRepository extends JpaRepository<Item, Long> {
     List<Item> findByCompanyIdAndStatus(Long companyId, ItemStatus status);
 
     /**
-     * Search items by name or description with company filter
-     */
-    @Query("SELECT i FROM Item i WHERE i.company.id = :companyId " +
-            "AND (LOWER(i.name) LIKE LOWER(CONCAT('%', :search, '%')) " +
-            "OR LOWER(i.description) LIKE LOWER(CONCAT('%', :search, '%')))")
-    Page<Item> searchByCompany(@Param("companyId") Long companyId,
-                                @Param("search") String search,
-                                Pageable pageable);
-
-    /**
-     * Advanced filter: search + type + status + category
+     * Filter by search text, type, status and category. Text search normally goes through
+     * ItemSearchIndex; this LIKE scan only serves it while the company's index is being built.
      */
     @Query("SELECT i FROM Item i WHERE i.company.id = :companyId " +
             "AND (:search IS NULL OR LOWER(i.name) LIKE LOWER(CONCAT('%', :search, '%')) " +
-            "OR LOWER(i.description) LIKE LOWER(CONCAT('%', :search, '%'))) " +
+            "OR LOWER(i.description) LIKE LOWER(CONCAT('%', :search, '%')) " +
+            "OR LOWER(i.category) LIKE LOWER(CONCAT('%', :search, '%'))) " +
             "AND (:type IS NULL OR i.type = :type) " +
             "AND (:status IS NULL OR i.status = :status) " +
             "AND (:category IS NULL OR i.category = :category)")
@@ -66,6 +59,19 @@ public interface ItemRepository extends JpaRepository<Item, Long> {
                               @Param("category") String category,
                               Pageable pageable);
 
+    /**
+     * Searchable and filterable columns of a company's items, to build its search index
+     */
+    @Query("SELECT i.id, i.name, i.description, i.category, i.type, i.status FROM Item i " +
+            "WHERE i.company.id = :companyId")
+    List<Object[]> findSearchFieldsByCompanyId(@Param("companyId") Long companyId);
+
+    /**
+     * Load a page of search hits with their company in one query
+     */
+    @Query("SELECT i FROM Item i JOIN FETCH i.company WHERE i.id IN :ids")
+    List<Item> findWithCompanyByIdIn(@Param("ids") Collection<Long> ids);
+
     /**
      * Get all unique categories for a company (for filter dropdown)
      */
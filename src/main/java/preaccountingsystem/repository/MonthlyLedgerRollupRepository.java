@@ -0,0 +1,46 @@
+package preaccountingsystem.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import preaccountingsystem.entity.MonthlyLedgerRollup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface MonthlyLedgerRollupRepository extends JpaRepository<MonthlyLedgerRollup, Long> {
+
+    // Atomic add of a delta to one rollup cell, creating the cell on first use
+    @Modifying
+    @Query(value = "INSERT INTO monthly_ledger_rollup " +
+                   "(company_id, period_month, category_id, category_type, currency, total_amount, entry_count, updated_at) " +
+                   "VALUES (:companyId, :periodMonth, :categoryId, :categoryType, :currency, :amount, :entryCount, CURRENT_TIMESTAMP) " +
+                   "ON DUPLICATE KEY UPDATE total_amount = total_amount + VALUES(total_amount), " +
+                   "entry_count = entry_count + VALUES(entry_count), updated_at = CURRENT_TIMESTAMP",
+           nativeQuery = true)
+    int addDelta(@Param("companyId") Long companyId,
+                 @Param("periodMonth") LocalDate periodMonth,
+                 @Param("categoryId") Long categoryId,
+                 @Param("categoryType") String categoryType,
+                 @Param("currency") String currency,
+                 @Param("amount") BigDecimal amount,
+                 @Param("entryCount") long entryCount);
+
+    @Modifying
+    @Query("DELETE FROM MonthlyLedgerRollup r WHERE r.companyId = :companyId")
+    int deleteByCompanyId(@Param("companyId") Long companyId);
+
+    // Dashboard read: one row per (month, category type)
+    @Query("SELECT r.periodMonth, r.categoryType, SUM(r.totalAmount), SUM(r.entryCount) " +
+           "FROM MonthlyLedgerRollup r " +
+           "WHERE r.companyId = :companyId AND r.periodMonth BETWEEN :fromMonth AND :toMonth " +
+           "GROUP BY r.periodMonth, r.categoryType " +
+           "HAVING SUM(r.entryCount) > 0")
+    List<Object[]> sumByMonthAndCategoryType(@Param("companyId") Long companyId,
+                                             @Param("fromMonth") LocalDate fromMonth,
+                                             @Param("toMonth") LocalDate toMonth);
+}
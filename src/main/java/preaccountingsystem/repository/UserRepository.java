@@ -1,12 +1,32 @@
 package preaccountingsystem.repository;
 
+import preaccountingsystem.dto.UserDto;
 import preaccountingsystem.entity.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
+
+    // Searchable columns only, to build the admin search index
+    @Query("SELECT u.id, u.username, c.name FROM User u LEFT JOIN u.customer c")
+    List<Object[]> findSearchFields();
+
+    @Query("SELECT u FROM User u LEFT JOIN FETCH u.customer WHERE u.id IN :ids")
+    List<User> findWithCustomerByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Admin listing with the company columns joined in; the count needs no join
+    @Query(value = "SELECT new preaccountingsystem.dto.UserDto(u.id, u.username, u.role, c.id, c.name, " +
+                   "u.createdAt, u.updatedAt) FROM User u LEFT JOIN u.customer c",
+           countQuery = "SELECT COUNT(u) FROM User u")
+    Page<UserDto> findUserPage(Pageable pageable);
 }
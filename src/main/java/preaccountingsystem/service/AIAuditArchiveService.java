@@ -0,0 +1,544 @@
+package preaccountingsystem.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import preaccountingsystem.dto.AIAuditArchiveMonthDto;
+import preaccountingsystem.dto.AIAuditLogEntryDto;
+import preaccountingsystem.dto.AIAuditLogPageDto;
+import preaccountingsystem.exception.BusinessException;
+import preaccountingsystem.exception.ResourceNotFoundException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.*;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Moves AI audit log months past the retention period out of the database into local
+ * compressed, columnar files, and serves them read-only.
+ *
+ * Each archive run of a month writes a segment directory under {dir}/{yyyy-MM}/ with one
+ * gzip file per column and a manifest. Rows are sorted by company, so the manifest can point at
+ * the offset and count of every company's rows and a page read decodes only the columns up to
+ * that range. A segment is written to a hidden temporary directory and renamed into place before
+ * the month is removed from the table (by dropping its partition when the table is partitioned,
+ * see {@link AIAuditPartitionManager}, by chunked deletes otherwise). Rows whose id is already in
+ * a segment are not archived again, so a run interrupted between the two steps is safe to repeat.
+ *
+ * The archive lives on this node's local disk, so only a single node should have archiving
+ * enabled, and the directory must survive restarts (a persistent volume in containers); other
+ * nodes cannot read months archived elsewhere. Nothing is archived while disabled, not even on
+ * an explicit request.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AIAuditArchiveService {
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final int CHUNK_SIZE = 1000;
+    private static final String SEGMENT_PREFIX = "seg-";
+    private static final String MANIFEST = "manifest.json";
+
+    private static final String SELECT_MONTH_CHUNK =
+            "SELECT id, company_id, user_id, timestamp, tokens_used, cache_hit, query, response FROM ai_audit_logs " +
+            "WHERE timestamp >= ? AND timestamp < ? AND (company_id > ? OR (company_id = ? AND id > ?)) " +
+            "ORDER BY company_id, id LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final AIAuditPartitionManager partitionManager;
+    private final ObjectMapper objectMapper;
+
+    @Value("${ai.audit.archive.enabled:false}")
+    private boolean enabled;
+
+    // Whole months kept in the table before the current one
+    @Value("${ai.audit.archive.retention-months:6}")
+    private int retentionMonths;
+
+    @Value("${ai.audit.archive.dir:cache/ai-audit-archive}")
+    private String archiveDir;
+
+    @Value("${ai.audit.archive.interval-hours:24}")
+    private long intervalHours;
+
+    private Path directory;
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    void init() {
+        directory = Paths.get(archiveDir);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("ai-audit-archive-");
+        threadFactory.setDaemon(true);
+        scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(this::archiveSafely, 0, intervalHours, TimeUnit.HOURS);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Archives every month older than the retention period and removes it from the table.
+     * Returns the archive state of the months it handled.
+     */
+    public synchronized List<AIAuditArchiveMonthDto> archiveExpired() {
+        if (!enabled) {
+            throw new BusinessException("AI audit log archiving is disabled (ai.audit.archive.enabled)");
+        }
+        YearMonth cutoff = YearMonth.now().minusMonths(retentionMonths);
+        TreeSet<YearMonth> months = new TreeSet<>();
+
+        Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM ai_audit_logs", Timestamp.class);
+        if (oldest != null) {
+            for (YearMonth month = YearMonth.from(oldest.toLocalDateTime()); month.isBefore(cutoff);
+                 month = month.plusMonths(1)) {
+                months.add(month);
+            }
+        }
+        // Partitions left empty, e.g. for months without queries, are dropped as well
+        if (partitionManager.isActive()) {
+            partitionManager.partitionMonths().stream().filter(month -> month.isBefore(cutoff)).forEach(months::add);
+        }
+
+        List<AIAuditArchiveMonthDto> archived = new ArrayList<>();
+        for (YearMonth month : months) {
+            try {
+                if (archiveMonth(month)) {
+                    archived.add(describeMonth(month));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not archive AI audit logs of " + month, e);
+            }
+        }
+        return archived;
+    }
+
+    /**
+     * Archived months, oldest first.
+     */
+    public List<AIAuditArchiveMonthDto> listMonths() {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> children = Files.list(directory)) {
+            return children
+                    .map(path -> path.getFileName().toString())
+                    .map(AIAuditArchiveService::parseMonthOrNull)
+                    .filter(Objects::nonNull)
+                    .sorted()
+                    .map(this::describeMonth)
+                    .filter(month -> month.getSegments() > 0)
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * One page of an archived month, in company and id order. companyId is optional;
+     * the cursor is the opaque nextCursor of the previous page.
+     */
+    public AIAuditLogPageDto readMonth(String month, Long companyId, String cursor, int size) {
+        YearMonth yearMonth = parseMonthOrNull(month);
+        if (yearMonth == null) {
+            throw new BusinessException("Geçersiz ay: " + month + " (yyyy-MM bekleniyor)");
+        }
+        List<Path> segments = listSegments(directory.resolve(yearMonth.toString()));
+        if (segments.isEmpty()) {
+            throw new ResourceNotFoundException("Arşivlenmiş kayıt bulunamadı: " + yearMonth);
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        long skip = parseOffset(cursor);
+
+        List<AIAuditLogEntryDto> entries = new ArrayList<>(pageSize);
+        long total = 0;
+        try {
+            for (Path segment : segments) {
+                SegmentManifest manifest = readManifest(segment);
+                int from = 0;
+                int count = manifest.entries();
+                if (companyId != null) {
+                    CompanyRange range = manifest.companies().stream()
+                            .filter(candidate -> candidate.companyId() == companyId)
+                            .findFirst().orElse(null);
+                    if (range == null) {
+                        continue;
+                    }
+                    from = range.offset();
+                    count = range.count();
+                }
+
+                long startInSegment = Math.max(0, skip + entries.size() - total);
+                int wanted = pageSize - entries.size();
+                if (wanted > 0 && startInSegment < count) {
+                    int start = from + (int) startInSegment;
+                    entries.addAll(readRows(segment, start, (int) Math.min(wanted, count - startInSegment)));
+                }
+                total += count;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        long next = skip + entries.size();
+        boolean hasMore = next < total;
+        return AIAuditLogPageDto.builder()
+                .entries(entries)
+                .nextCursor(hasMore ? Long.toString(next) : null)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    private void archiveSafely() {
+        try {
+            List<AIAuditArchiveMonthDto> archived = archiveExpired();
+            if (!archived.isEmpty()) {
+                log.info("Archived AI audit logs of {} month(s)", archived.size());
+            }
+        } catch (Exception e) {
+            log.error("Could not archive AI audit logs: {}", e.getMessage());
+        }
+    }
+
+    // True when rows were archived or a partition was dropped
+    private boolean archiveMonth(YearMonth month) throws IOException {
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        Path monthDirectory = directory.resolve(month.toString());
+        Files.createDirectories(monthDirectory);
+        // Segments a crashed run left half written
+        try (Stream<Path> children = Files.list(monthDirectory)) {
+            for (Path leftover : children.filter(path -> path.getFileName().toString().startsWith(".")).toList()) {
+                deleteDirectory(leftover);
+            }
+        }
+
+        Set<Long> alreadyArchived = new HashSet<>();
+        for (Path segment : listSegments(monthDirectory)) {
+            for (long id : readLongs(segment, Column.ID, 0, readManifest(segment).entries())) {
+                alreadyArchived.add(id);
+            }
+        }
+
+        String name = SEGMENT_PREFIX + System.currentTimeMillis();
+        Path temporary = monthDirectory.resolve("." + name);
+        Files.createDirectories(temporary);
+        int written;
+        try (SegmentWriter writer = new SegmentWriter(temporary)) {
+            long afterCompany = 0;
+            long afterId = 0;
+            while (true) {
+                List<Long> lastKey = new ArrayList<>(2);
+                int fetched = jdbcTemplate.query(SELECT_MONTH_CHUNK, rs -> {
+                    int rows = 0;
+                    while (rs.next()) {
+                        rows++;
+                        lastKey.clear();
+                        lastKey.add(rs.getLong("company_id"));
+                        lastKey.add(rs.getLong("id"));
+                        if (!alreadyArchived.contains(rs.getLong("id"))) {
+                            writer.write(rs);
+                        }
+                    }
+                    return rows;
+                }, Timestamp.valueOf(from), Timestamp.valueOf(to), afterCompany, afterCompany, afterId, CHUNK_SIZE);
+                if (fetched < CHUNK_SIZE) {
+                    break;
+                }
+                afterCompany = lastKey.get(0);
+                afterId = lastKey.get(1);
+            }
+            written = writer.rows;
+            if (written > 0) {
+                objectMapper.writeValue(temporary.resolve(MANIFEST).toFile(),
+                        new SegmentManifest(month.toString(), written, LocalDateTime.now(), writer.companies));
+            }
+        }
+
+        if (written > 0) {
+            Files.move(temporary, monthDirectory.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+        } else {
+            deleteDirectory(temporary);
+        }
+
+        // Nothing writes months this old any more, so no row can slip in between export and removal
+        boolean dropped = partitionManager.dropMonth(month);
+        if (!dropped) {
+            deleteRows(from, to);
+        }
+        if (listSegments(monthDirectory).isEmpty()) {
+            Files.deleteIfExists(monthDirectory);
+        }
+        if (written > 0) {
+            log.info("Archived {} AI audit log entries of {}", written, month);
+        }
+        return written > 0 || dropped;
+    }
+
+    private void deleteRows(LocalDateTime from, LocalDateTime to) {
+        // Chunks commit one by one, so the table is never locked for the whole month
+        while (true) {
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM ai_audit_logs WHERE timestamp >= ? AND timestamp < ? LIMIT ?",
+                    Long.class, Timestamp.valueOf(from), Timestamp.valueOf(to), CHUNK_SIZE);
+            if (ids.isEmpty()) {
+                return;
+            }
+            namedParameterJdbcTemplate.update("DELETE FROM ai_audit_logs WHERE id IN (:ids)",
+                    new MapSqlParameterSource("ids", ids));
+        }
+    }
+
+    private AIAuditArchiveMonthDto describeMonth(YearMonth month) {
+        List<Path> segments = listSegments(directory.resolve(month.toString()));
+        long entries = 0;
+        long sizeBytes = 0;
+        try {
+            for (Path segment : segments) {
+                entries += readManifest(segment).entries();
+                try (Stream<Path> files = Files.list(segment)) {
+                    for (Path file : files.toList()) {
+                        sizeBytes += Files.size(file);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return AIAuditArchiveMonthDto.builder()
+                .month(month.toString())
+                .entries(entries)
+                .segments(segments.size())
+                .sizeBytes(sizeBytes)
+                .build();
+    }
+
+    // Finished segments of a month, oldest first; hidden ones are still being written
+    private static List<Path> listSegments(Path monthDirectory) {
+        if (!Files.isDirectory(monthDirectory)) {
+            return List.of();
+        }
+        try (Stream<Path> children = Files.list(monthDirectory)) {
+            return children
+                    .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(path -> Files.exists(path.resolve(MANIFEST)))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private SegmentManifest readManifest(Path segment) throws IOException {
+        return objectMapper.readValue(segment.resolve(MANIFEST).toFile(), SegmentManifest.class);
+    }
+
+    private static List<AIAuditLogEntryDto> readRows(Path segment, int start, int count) throws IOException {
+        long[] ids = readLongs(segment, Column.ID, start, count);
+        long[] companyIds = readLongs(segment, Column.COMPANY_ID, start, count);
+        long[] userIds = readLongs(segment, Column.USER_ID, start, count);
+        long[] timestamps = readLongs(segment, Column.TIMESTAMP, start, count);
+        String[] queries = readStrings(segment, Column.QUERY, start, count);
+        String[] responses = readStrings(segment, Column.RESPONSE, start, count);
+
+        List<AIAuditLogEntryDto> rows = new ArrayList<>(count);
+        try (DataInputStream tokens = open(segment, Column.TOKENS_USED);
+             DataInputStream cacheHits = open(segment, Column.CACHE_HIT)) {
+            tokens.skipNBytes(4L * start);
+            cacheHits.skipNBytes(start);
+            for (int i = 0; i < count; i++) {
+                int tokensUsed = tokens.readInt();
+                rows.add(AIAuditLogEntryDto.builder()
+                        .id(ids[i])
+                        .companyId(companyIds[i])
+                        .userId(userIds[i])
+                        .timestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamps[i]), ZoneOffset.UTC))
+                        .tokensUsed(tokensUsed < 0 ? null : tokensUsed)
+                        .cacheHit(cacheHits.readBoolean())
+                        .query(queries[i])
+                        .response(responses[i])
+                        .build());
+            }
+        }
+        return rows;
+    }
+
+    private static long[] readLongs(Path segment, Column column, int start, int count) throws IOException {
+        long[] values = new long[count];
+        try (DataInputStream in = open(segment, column)) {
+            in.skipNBytes(8L * start);
+            for (int i = 0; i < count; i++) {
+                values[i] = in.readLong();
+            }
+        }
+        return values;
+    }
+
+    private static String[] readStrings(Path segment, Column column, int start, int count) throws IOException {
+        String[] values = new String[count];
+        try (DataInputStream in = open(segment, column)) {
+            for (int i = 0; i < start; i++) {
+                int length = in.readInt();
+                in.skipNBytes(Math.max(length, 0));
+            }
+            for (int i = 0; i < count; i++) {
+                int length = in.readInt();
+                values[i] = length < 0 ? null : new String(in.readNBytes(length), StandardCharsets.UTF_8);
+            }
+        }
+        return values;
+    }
+
+    private static DataInputStream open(Path segment, Column column) throws IOException {
+        return new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(segment.resolve(column.fileName())))));
+    }
+
+    private static void deleteDirectory(Path path) throws IOException {
+        try (Stream<Path> files = Files.list(path)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(path);
+    }
+
+    private static YearMonth parseMonthOrNull(String month) {
+        try {
+            return YearMonth.parse(month);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static long parseOffset(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(cursor));
+        } catch (NumberFormatException e) {
+            throw new BusinessException("Geçersiz sayfa imleci");
+        }
+    }
+
+    private enum Column {
+        ID, COMPANY_ID, USER_ID, TIMESTAMP, TOKENS_USED, CACHE_HIT, QUERY, RESPONSE;
+
+        String fileName() {
+            return name().toLowerCase(Locale.ROOT) + ".bin.gz";
+        }
+    }
+
+    /**
+     * Appends rows, given in company order, to one gzip stream per column and records where
+     * each company's rows start.
+     */
+    private static final class SegmentWriter implements Closeable {
+
+        private final EnumMap<Column, DataOutputStream> columns = new EnumMap<>(Column.class);
+        private final List<CompanyRange> companies = new ArrayList<>();
+        private int rows;
+
+        SegmentWriter(Path segment) throws IOException {
+            try {
+                for (Column column : Column.values()) {
+                    columns.put(column, new DataOutputStream(new BufferedOutputStream(
+                            new GZIPOutputStream(Files.newOutputStream(segment.resolve(column.fileName()))))));
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        void write(ResultSet rs) throws SQLException {
+            long companyId = rs.getLong("company_id");
+            try {
+                columns.get(Column.ID).writeLong(rs.getLong("id"));
+                columns.get(Column.COMPANY_ID).writeLong(companyId);
+                columns.get(Column.USER_ID).writeLong(rs.getLong("user_id"));
+                columns.get(Column.TIMESTAMP).writeLong(rs.getTimestamp("timestamp").toLocalDateTime()
+                        .toInstant(ZoneOffset.UTC).toEpochMilli());
+                int tokensUsed = rs.getInt("tokens_used");
+                columns.get(Column.TOKENS_USED).writeInt(rs.wasNull() ? -1 : tokensUsed);
+                columns.get(Column.CACHE_HIT).writeBoolean(rs.getBoolean("cache_hit"));
+                writeString(columns.get(Column.QUERY), rs.getString("query"));
+                writeString(columns.get(Column.RESPONSE), rs.getString("response"));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            CompanyRange last = companies.isEmpty() ? null : companies.get(companies.size() - 1);
+            if (last != null && last.companyId() == companyId) {
+                companies.set(companies.size() - 1, new CompanyRange(companyId, last.offset(), last.count() + 1));
+            } else {
+                companies.add(new CompanyRange(companyId, rows, 1));
+            }
+            rows++;
+        }
+
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (DataOutputStream column : columns.values()) {
+                try {
+                    column.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private record SegmentManifest(String month, int entries, LocalDateTime archivedAt, List<CompanyRange> companies) {
+    }
+
+    private record CompanyRange(long companyId, int offset, int count) {
+    }
+}
@@ -0,0 +1,188 @@
+package preaccountingsystem.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Monthly range partitioning of ai_audit_logs on MySQL.
+ *
+ * When enabled, a table that is not partitioned yet is converted once at startup: its foreign
+ * keys and unique indexes are dropped (MySQL allows neither on partitioned tables), the primary
+ * key is widened to (id, timestamp), and one partition per month is created from the oldest row
+ * on, plus a catch-all "pmax". Partitions for the coming months are split off pmax at startup and
+ * daily, so pmax stays empty and splitting it is cheap. AIAuditArchiveService drops the partition
+ * of a month once it is archived, which frees the space at once instead of deleting row by row.
+ *
+ * On other databases, or when disabled, the table stays as it is and archival deletes rows instead.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+// Runs after Hibernate has created or updated the table
+@DependsOn("entityManagerFactory")
+public class AIAuditPartitionManager {
+
+    private static final String TABLE = "ai_audit_logs";
+    private static final String CATCH_ALL = "pmax";
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${ai.audit.partitioning.enabled:false}")
+    private boolean enabled;
+
+    // Months created ahead of the current one
+    @Value("${ai.audit.partitioning.months-ahead:3}")
+    private int monthsAhead;
+
+    private volatile boolean active;
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (database == null || !database.toLowerCase(Locale.ROOT).contains("mysql")) {
+            log.warn("AI audit log partitioning needs MySQL, not {}; the table is left unpartitioned", database);
+            return;
+        }
+
+        if (partitionMonths().isEmpty()) {
+            convertTable();
+        }
+        ensureFuturePartitions();
+        active = true;
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("ai-audit-partitions-");
+        threadFactory.setDaemon(true);
+        scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        scheduler.scheduleWithFixedDelay(this::ensureFuturePartitionsSafely, 1, 1, TimeUnit.DAYS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * True when ai_audit_logs is partitioned by month and partitions may be dropped.
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Months that have their own partition, oldest first; empty when the table is not partitioned.
+     */
+    public List<YearMonth> partitionMonths() {
+        List<String> names = jdbcTemplate.queryForList(
+                "SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL",
+                String.class, TABLE);
+        TreeSet<YearMonth> months = new TreeSet<>();
+        for (String name : names) {
+            if (!CATCH_ALL.equals(name)) {
+                months.add(YearMonth.parse(name, PARTITION_NAME));
+            }
+        }
+        return List.copyOf(months);
+    }
+
+    /**
+     * Drops the month's partition with all its rows. Returns false when the month has no partition.
+     */
+    public synchronized boolean dropMonth(YearMonth month) {
+        if (!active || !partitionMonths().contains(month)) {
+            return false;
+        }
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP PARTITION " + month.format(PARTITION_NAME));
+        log.info("Dropped AI audit log partition of {}", month);
+        return true;
+    }
+
+    /**
+     * Splits partitions for the months up to monthsAhead off the catch-all partition.
+     */
+    public synchronized void ensureFuturePartitions() {
+        List<YearMonth> existing = partitionMonths();
+        YearMonth last = existing.isEmpty() ? YearMonth.now().minusMonths(1) : existing.get(existing.size() - 1);
+        YearMonth target = YearMonth.now().plusMonths(monthsAhead);
+        if (!last.isBefore(target)) {
+            return;
+        }
+
+        StringBuilder partitions = new StringBuilder();
+        for (YearMonth month = last.plusMonths(1); !month.isAfter(target); month = month.plusMonths(1)) {
+            partitions.append(partitionClause(month)).append(", ");
+        }
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " REORGANIZE PARTITION " + CATCH_ALL + " INTO ("
+                + partitions + "PARTITION " + CATCH_ALL + " VALUES LESS THAN (MAXVALUE))");
+        log.info("Added AI audit log partitions up to {}", target);
+    }
+
+    private void ensureFuturePartitionsSafely() {
+        try {
+            ensureFuturePartitions();
+        } catch (Exception e) {
+            log.error("Could not add AI audit log partitions: {}", e.getMessage());
+        }
+    }
+
+    private void convertTable() {
+        for (String foreignKey : jdbcTemplate.queryForList(
+                "SELECT CONSTRAINT_NAME FROM information_schema.TABLE_CONSTRAINTS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND CONSTRAINT_TYPE = 'FOREIGN KEY'",
+                String.class, TABLE)) {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP FOREIGN KEY " + foreignKey);
+        }
+        for (String uniqueIndex : jdbcTemplate.queryForList(
+                "SELECT DISTINCT INDEX_NAME FROM information_schema.STATISTICS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND NON_UNIQUE = 0 AND INDEX_NAME <> 'PRIMARY'",
+                String.class, TABLE)) {
+            jdbcTemplate.execute("DROP INDEX " + uniqueIndex + " ON " + TABLE);
+        }
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP PRIMARY KEY, ADD PRIMARY KEY (id, timestamp)");
+
+        YearMonth first = Optional.ofNullable(jdbcTemplate.queryForObject(
+                        "SELECT MIN(timestamp) FROM " + TABLE, Timestamp.class))
+                .map(oldest -> YearMonth.from(oldest.toLocalDateTime()))
+                .orElse(YearMonth.now());
+        StringBuilder partitions = new StringBuilder();
+        for (YearMonth month = first; !month.isAfter(YearMonth.now()); month = month.plusMonths(1)) {
+            partitions.append(partitionClause(month)).append(", ");
+        }
+        // The table is rebuilt here; on a large table this takes a while, once
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " PARTITION BY RANGE COLUMNS(timestamp) ("
+                + partitions + "PARTITION " + CATCH_ALL + " VALUES LESS THAN (MAXVALUE))");
+        log.info("Partitioned {} by month from {}", TABLE, first);
+    }
+
+    private static String partitionClause(YearMonth month) {
+        return "PARTITION " + month.format(PARTITION_NAME)
+                + " VALUES LESS THAN ('" + month.plusMonths(1).atDay(1) + " 00:00:00')";
+    }
+}
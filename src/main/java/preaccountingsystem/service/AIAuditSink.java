@@ -0,0 +1,331 @@
+package preaccountingsystem.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import preaccountingsystem.entity.AIAuditLog;
+import preaccountingsystem.entity.Customer;
+import preaccountingsystem.entity.User;
+import preaccountingsystem.repository.AIAuditLogBatchRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind persistence of AI audit log entries.
+ *
+ * Submitted entries are appended to a local spill file and put on a bounded in-memory queue;
+ * a background writer inserts them in JDBC batches when a batch fills up or the flush interval
+ * passes, then deletes the spill segments it has written. Spill files left by a crash are
+ * replayed at startup, skipping entries that already reached the database. When the queue is
+ * full, or the spill file cannot be written, the entry is written synchronously instead.
+ *
+ * A batch the database rejects (a row whose user was deleted on a table that still has its
+ * foreign keys, a value too long) is split until the rejected rows are isolated; those are
+ * appended to a dead-letter file in the spill directory and the rest is stored. Any other
+ * failure keeps the entries for the next attempt, or the spill files for the next startup.
+ *
+ * Quota accounting does not wait for the rows: AIUsageTracker is updated when the entry is
+ * submitted, and the trackers seed from the database only after the replay.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AIAuditSink {
+
+    private static final String SEGMENT_PREFIX = "audit-";
+    private static final String SEGMENT_SUFFIX = ".jsonl";
+    private static final String DEAD_LETTER_FILE = "dead-letter.jsonl";
+
+    private final AIAuditLogBatchRepository batchRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+
+    @Value("${ai.audit.write-behind.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai.audit.write-behind.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${ai.audit.write-behind.batch-size:200}")
+    private int batchSize;
+
+    @Value("${ai.audit.write-behind.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${ai.audit.write-behind.spill-dir:cache/ai-audit}")
+    private String spillDir;
+
+    // Force every spill append to disk; off trades crash safety for latency
+    @Value("${ai.audit.write-behind.spill-fsync:true}")
+    private boolean spillFsync;
+
+    private Path directory;
+    private ScheduledExecutorService writer;
+
+    // Guarded by "this": an entry is appended to the current segment and queued in one step,
+    // so the entries drained at a rotation are exactly those of the closed segments
+    private final ArrayDeque<AIAuditLog> queue = new ArrayDeque<>();
+    private FileChannel segment;
+    private Path segmentPath;
+    private long segmentSequence;
+    private boolean flushRequested;
+
+    // Writer thread only: drained entries not yet stored, and the segments holding them
+    private final List<AIAuditLog> pending = new ArrayList<>();
+    private final List<Path> pendingSegments = new ArrayList<>();
+
+    @PostConstruct
+    void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        directory = Paths.get(spillDir);
+        Files.createDirectories(directory);
+        try {
+            replaySpilled();
+        } catch (Exception e) {
+            // The segments stay in place and are replayed at the next startup
+            log.warn("Could not replay spilled AI audit entries: {}", e.getMessage());
+        }
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("ai-audit-writer-");
+        threadFactory.setDaemon(true);
+        writer = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        writer.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (!enabled) {
+            return;
+        }
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Whatever is still queued stays in the spill files if this fails
+        flushSafely();
+    }
+
+    /**
+     * Queues the entry for writing. The entry needs its user and company set; the key and the
+     * timestamp are assigned here.
+     */
+    public void submit(AIAuditLog entry) {
+        entry.setEntryKey(UUID.randomUUID().toString());
+        entry.setTimestamp(LocalDateTime.now());
+        if (!enabled) {
+            writeNow(List.of(entry));
+            return;
+        }
+
+        boolean full;
+        boolean queued = false;
+        boolean wakeWriter = false;
+        synchronized (this) {
+            full = queue.size() >= queueCapacity;
+            if (!full && appendToSegment(entry)) {
+                queued = true;
+                queue.add(entry);
+                if (queue.size() >= batchSize && !flushRequested) {
+                    flushRequested = true;
+                    wakeWriter = true;
+                }
+            }
+        }
+
+        if (!queued) {
+            if (full) {
+                log.warn("AI audit queue is full ({} entries), writing synchronously", queueCapacity);
+            }
+            writeNow(List.of(entry));
+        } else if (wakeWriter) {
+            writer.execute(this::flushSafely);
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("Could not write AI audit entries, will retry: {}", e.getMessage());
+        }
+    }
+
+    private void flush() throws IOException {
+        // Entries of an earlier failed attempt go first, nothing new is taken until they are stored
+        if (pending.isEmpty()) {
+            synchronized (this) {
+                flushRequested = false;
+                if (queue.isEmpty()) {
+                    return;
+                }
+                pending.addAll(queue);
+                queue.clear();
+                if (segment != null) {
+                    segment.close();
+                    pendingSegments.add(segmentPath);
+                    segment = null;
+                    segmentPath = null;
+                }
+            }
+        }
+
+        writeIsolatingRejected(pending);
+        for (Path written : pendingSegments) {
+            Files.deleteIfExists(written);
+        }
+        pendingSegments.clear();
+    }
+
+    private void writeNow(List<AIAuditLog> entries) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> batchRepository.insertAll(entries));
+    }
+
+    /**
+     * Writes the entries, halving a batch the database rejects until each rejected entry is on
+     * its own, and dead-letters those. Stored and dead-lettered entries are removed from the
+     * list, so when another failure propagates only the entries still to write are left in it.
+     */
+    private void writeIsolatingRejected(List<AIAuditLog> entries) throws IOException {
+        // Batches are taken depth first, so the handled entries are always a prefix of the list
+        Deque<List<AIAuditLog>> batches = new ArrayDeque<>();
+        batches.push(entries);
+        int handled = 0;
+        try {
+            while (!batches.isEmpty()) {
+                List<AIAuditLog> batch = batches.pop();
+                try {
+                    writeNow(batch);
+                } catch (DataIntegrityViolationException e) {
+                    if (batch.size() > 1) {
+                        int half = batch.size() / 2;
+                        batches.push(batch.subList(half, batch.size()));
+                        batches.push(batch.subList(0, half));
+                        continue;
+                    }
+                    deadLetter(batch.get(0), e);
+                }
+                handled += batch.size();
+            }
+        } finally {
+            entries.subList(0, handled).clear();
+        }
+    }
+
+    private void deadLetter(AIAuditLog entry, DataIntegrityViolationException cause) throws IOException {
+        log.error("AI audit entry {} of company {} was rejected, moved to {}: {}", entry.getEntryKey(),
+                entry.getCompany().getId(), DEAD_LETTER_FILE, cause.getMostSpecificCause().getMessage());
+        Files.writeString(directory.resolve(DEAD_LETTER_FILE),
+                objectMapper.writeValueAsString(SpilledEntry.of(entry)) + "\n", StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    // Caller holds the lock
+    private boolean appendToSegment(AIAuditLog entry) {
+        try {
+            if (segment == null) {
+                segmentPath = directory.resolve(SEGMENT_PREFIX + System.currentTimeMillis() + "-"
+                        + (segmentSequence++) + SEGMENT_SUFFIX);
+                segment = FileChannel.open(segmentPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            }
+            byte[] line = (objectMapper.writeValueAsString(SpilledEntry.of(entry)) + "\n")
+                    .getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.wrap(line);
+            while (buffer.hasRemaining()) {
+                segment.write(buffer);
+            }
+            if (spillFsync) {
+                segment.force(false);
+            }
+            return true;
+        } catch (IOException e) {
+            log.warn("Could not spill AI audit entry, writing synchronously: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void replaySpilled() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(segments::add);
+        }
+        if (segments.isEmpty()) {
+            return;
+        }
+        segments.sort(Comparator.naturalOrder());
+
+        List<AIAuditLog> entries = new ArrayList<>();
+        for (Path file : segments) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    try {
+                        entries.add(objectMapper.readValue(line, SpilledEntry.class).toEntry());
+                    } catch (IOException e) {
+                        // A line torn by the crash was never acknowledged to anyone
+                        log.warn("Skipping unreadable AI audit spill line in {}", file.getFileName());
+                    }
+                }
+            }
+        }
+
+        Set<String> stored = batchRepository.findExistingKeys(
+                entries.stream().map(AIAuditLog::getEntryKey).toList());
+        List<AIAuditLog> missing = new ArrayList<>(entries.stream()
+                .filter(entry -> !stored.contains(entry.getEntryKey()))
+                .toList());
+        writeIsolatingRejected(missing);
+        log.info("Replayed {} spilled AI audit entries ({} already stored)", entries.size() - stored.size(),
+                stored.size());
+        for (Path file : segments) {
+            Files.delete(file);
+        }
+    }
+
+    private record SpilledEntry(String entryKey, String query, String response, Integer tokensUsed,
+                                Boolean cacheHit, Long userId, Long companyId, LocalDateTime timestamp) {
+
+        static SpilledEntry of(AIAuditLog entry) {
+            return new SpilledEntry(entry.getEntryKey(), entry.getQuery(), entry.getResponse(), entry.getTokensUsed(),
+                    entry.getCacheHit(), entry.getUser().getId(), entry.getCompany().getId(), entry.getTimestamp());
+        }
+
+        AIAuditLog toEntry() {
+            User user = new User();
+            user.setId(userId);
+            Customer company = new Customer();
+            company.setId(companyId);
+            return AIAuditLog.builder()
+                    .entryKey(entryKey)
+                    .query(query)
+                    .response(response)
+                    .tokensUsed(tokensUsed)
+                    .cacheHit(cacheHit)
+                    .user(user)
+                    .company(company)
+                    .timestamp(timestamp)
+                    .build();
+        }
+    }
+}
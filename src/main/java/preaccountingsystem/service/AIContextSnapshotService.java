@@ -0,0 +1,128 @@
+package preaccountingsystem.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import preaccountingsystem.entity.CategoryType;
+import preaccountingsystem.entity.InvoiceStatus;
+import preaccountingsystem.event.InvoiceChangedEvent;
+import preaccountingsystem.event.LedgerChangedEvent;
+import preaccountingsystem.repository.IncomeExpenseRepository;
+import preaccountingsystem.repository.InvoiceRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Per-company data summary given to the AI assistant as context.
+ *
+ * A snapshot is built from two SQL aggregates (ledger totals per category over the last
+ * 30 days, invoice count and total per status) and cached until the company's ledger or
+ * invoices change, the TTL runs out, or the day rolls over.
+ */
+@Service
+@RequiredArgsConstructor
+public class AIContextSnapshotService {
+
+    private static final int WINDOW_DAYS = 30;
+
+    private final IncomeExpenseRepository incomeExpenseRepository;
+    private final InvoiceRepository invoiceRepository;
+
+    @Value("${ai.context.cache-ttl-ms:600000}")
+    private long ttlMs;
+
+    @Value("${ai.context.cache-max-entries:10000}")
+    private int maxEntries;
+
+    private TtlCache<SnapshotKey, String> snapshots;
+
+    @PostConstruct
+    void init() {
+        snapshots = new TtlCache<>(ttlMs, maxEntries, SnapshotKey::companyId);
+    }
+
+    /**
+     * Returns the company's context text, building it when there is no fresh snapshot.
+     * Must run inside a transaction.
+     */
+    public String getContext(Long companyId) {
+        LocalDate today = LocalDate.now();
+        return snapshots.get(new SnapshotKey(companyId, today), () -> buildContext(companyId, today));
+    }
+
+    @EventListener
+    public void onLedgerChanged(LedgerChangedEvent event) {
+        invalidateCompany(event.companyId());
+    }
+
+    @EventListener
+    public void onInvoiceChanged(InvoiceChangedEvent event) {
+        invalidateCompany(event.companyId());
+    }
+
+    /**
+     * Evicts the company's snapshot, now and again after the current transaction commits.
+     */
+    public void invalidateCompany(Long companyId) {
+        snapshots.invalidateGroup(companyId);
+    }
+
+    private String buildContext(Long companyId, LocalDate today) {
+        StringBuilder context = new StringBuilder();
+        context.append("Şirket Veri Özeti (Son 30 Gün):\n\n");
+
+        // Income/Expense summary; expense categories come largest first
+        List<Object[]> categories = incomeExpenseRepository.sumByCategoryBetween(
+                companyId, today.minusDays(WINDOW_DAYS), today);
+
+        BigDecimal totalIncome = BigDecimal.ZERO;
+        BigDecimal totalExpense = BigDecimal.ZERO;
+        StringBuilder expensesByCategory = new StringBuilder();
+        for (Object[] row : categories) {
+            BigDecimal amount = (BigDecimal) row[2];
+            if (row[0] == CategoryType.INCOME) {
+                totalIncome = totalIncome.add(amount);
+            } else {
+                totalExpense = totalExpense.add(amount);
+                expensesByCategory.append(String.format("- %s: %s\n", row[1], amount));
+            }
+        }
+
+        context.append(String.format("Toplam Gelir: %s\n", totalIncome));
+        context.append(String.format("Toplam Gider: %s\n", totalExpense));
+        context.append(String.format("Net Kar: %s\n\n", totalIncome.subtract(totalExpense)));
+
+        if (!expensesByCategory.isEmpty()) {
+            context.append("Kategori Bazlı Giderler:\n");
+            context.append(expensesByCategory);
+            context.append("\n");
+        }
+
+        // Invoice summary
+        long invoiceCount = 0;
+        long unpaidInvoices = 0;
+        BigDecimal unpaidAmount = BigDecimal.ZERO;
+        for (Object[] row : invoiceRepository.summarizeByStatus(companyId)) {
+            long count = ((Number) row[1]).longValue();
+            invoiceCount += count;
+            if (row[0] == InvoiceStatus.UNPAID) {
+                unpaidInvoices = count;
+                unpaidAmount = (BigDecimal) row[2];
+            }
+        }
+
+        context.append(String.format("Toplam Fatura Sayısı: %d\n", invoiceCount));
+        context.append(String.format("Ödenmemiş Fatura Sayısı: %d\n", unpaidInvoices));
+        context.append(String.format("Ödenmemiş Toplam Tutar: %s\n\n", unpaidAmount));
+
+        return context.toString();
+    }
+
+    // Keyed by day as well, so a snapshot is not served past midnight
+    private record SnapshotKey(Long companyId, LocalDate day) {
+    }
+}
@@ -0,0 +1,127 @@
+package preaccountingsystem.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import preaccountingsystem.dto.AIResponseCacheStatsDto;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of AI assistant answers for repeated questions.
+ *
+ * Entries are keyed by company, the normalized question and a SHA-256 fingerprint of the
+ * context text, so an answer is only reused while the company's data summary is unchanged.
+ * Size is bounded with least-recently-used eviction and every entry has a TTL.
+ */
+@Component
+public class AIResponseCache {
+
+    private static final Locale TURKISH = Locale.forLanguageTag("tr");
+
+    @Value("${ai.response-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai.response-cache.max-entries:5000}")
+    private int maxEntries;
+
+    @Value("${ai.response-cache.ttl-ms:3600000}")
+    private long ttlMs;
+
+    // Access-ordered: iteration starts at the least recently used answer
+    private final LinkedHashMap<String, CachedAnswer> answers = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedAnswer> eldest) {
+            if (size() > maxEntries) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Returns the cached answer for the question, or null.
+     */
+    public String get(Long companyId, String query, String context) {
+        if (!enabled) {
+            return null;
+        }
+        String key = key(companyId, query, context);
+        CachedAnswer cached;
+        synchronized (answers) {
+            cached = answers.get(key);
+            if (cached != null && cached.expiresAt() <= System.currentTimeMillis()) {
+                answers.remove(key);
+                cached = null;
+            }
+        }
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return cached.response();
+    }
+
+    public void put(Long companyId, String query, String context, String response) {
+        if (!enabled) {
+            return;
+        }
+        String key = key(companyId, query, context);
+        synchronized (answers) {
+            answers.put(key, new CachedAnswer(response, System.currentTimeMillis() + ttlMs));
+        }
+    }
+
+    public AIResponseCacheStatsDto getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        int size;
+        synchronized (answers) {
+            size = answers.size();
+        }
+        return AIResponseCacheStatsDto.builder()
+                .enabled(enabled)
+                .entries(size)
+                .maxEntries(maxEntries)
+                .hits(hitCount)
+                .misses(missCount)
+                .hitRate(hitCount + missCount == 0 ? 0 : (double) hitCount / (hitCount + missCount))
+                .evictions(evictions.sum())
+                .build();
+    }
+
+    /**
+     * Lower-cased (Turkish rules), punctuation dropped and whitespace collapsed, so that
+     * "Bu ayki en büyük giderim?" and "bu ayki en büyük  giderim" share an entry.
+     */
+    static String normalize(String query) {
+        String normalized = Normalizer.normalize(query, Normalizer.Form.NFKC).toLowerCase(TURKISH);
+        return normalized.replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+
+    private static String key(Long companyId, String query, String context) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] fingerprint = digest.digest(context.getBytes(StandardCharsets.UTF_8));
+            return companyId + ":" + HexFormat.of().formatHex(fingerprint) + ":" + normalize(query);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record CachedAnswer(String response, long expiresAt) {
+    }
+}
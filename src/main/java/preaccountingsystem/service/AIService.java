@@ -1,13 +1,13 @@
 package preaccountingsystem.service;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value; // YENİ: API Key okumak için
-import org.springframework.http.HttpEntity; // YENİ: İstek gövdesi için
-import org.springframework.http.HttpHeaders; // YENİ: Header ayarları için
-import org.springframework.http.MediaType; // YENİ: JSON tipi için
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate; // YENİ: API'ye istek atmak için
+import org.springframework.transaction.support.TransactionTemplate;
+import preaccountingsystem.dto.AIAuditLogEntryDto;
+import preaccountingsystem.dto.AIAuditLogPageDto;
 import preaccountingsystem.dto.AIQueryRequest;
 import preaccountingsystem.dto.AIQueryResponse;
 import preaccountingsystem.entity.*;
@@ -15,42 +15,93 @@ import preaccountingsystem.exception.BusinessException;
 import preaccountingsystem.exception.ResourceNotFoundException;
 import preaccountingsystem.repository.*;
 
-import java.math.BigDecimal;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.YearMonth;
-import java.util.ArrayList; // YENİ
-import java.util.HashMap; // YENİ
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 public class AIService {
 
+    // Single professional system instruction
+    private static final String SYSTEM_PROMPT = "You are a professional financial expert and pre-accounting assistant.";
+
+    private final AIAuditSink aiAuditSink;
     private final AIAuditLogRepository aiAuditLogRepository;
     private final SystemSettingsRepository systemSettingsRepository;
     private final CustomerRepository customerRepository;
-    private final IncomeExpenseRepository incomeExpenseRepository;
-    private final InvoiceRepository invoiceRepository;
     private final PaymentRepository paymentRepository;
     private final CustomerSupplierRepository customerSupplierRepository;
+    private final AIContextSnapshotService aiContextSnapshotService;
+    private final AIResponseCache aiResponseCache;
+    private final AIUsageTracker aiUsageTracker;
+
+    private final OpenAIGateway openAIGateway;
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * Answers a query without holding a database connection during the OpenAI call: limits and
+     * context are read in one short transaction, the completion runs asynchronously, and the
+     * audit log is queued for writing when the answer arrives. A question already
+     * answered for the same data is served from the response cache and not charged. Otherwise
+     * one unit of quota is reserved before the call and given back if it fails.
+     */
+    public CompletableFuture<AIQueryResponse> processQuery(AIQueryRequest request, Long companyId, User user) {
+        PreparedQuery prepared = prepareQuery(companyId, request.getQuery());
+        if (prepared.cachedAnswer() != null) {
+            return CompletableFuture.completedFuture(recordCachedAnswer(request.getQuery(), prepared, user));
+        }
+
+        return callReserved(prepared, () -> openAIGateway.complete(SYSTEM_PROMPT, prepared.prompt(request.getQuery())))
+                .thenApply(completion -> recordAnswer(request.getQuery(), completion, prepared, user));
+    }
 
-    // YENİ: Dış dünyaya (OpenAI) istek atmak için araç
-    private final RestTemplate restTemplate = new RestTemplate();
+    /**
+     * Like {@link #processQuery}, but passes each piece of the answer to {@code onDelta} as
+     * OpenAI produces it. The audit log is written once, with the assembled answer, at the end.
+     */
+    public CompletableFuture<AIQueryResponse> streamQuery(AIQueryRequest request, Long companyId, User user,
+                                                          Consumer<String> onDelta) {
+        PreparedQuery prepared = prepareQuery(companyId, request.getQuery());
+        if (prepared.cachedAnswer() != null) {
+            onDelta.accept(prepared.cachedAnswer());
+            return CompletableFuture.completedFuture(recordCachedAnswer(request.getQuery(), prepared, user));
+        }
 
-    // YENİ: application.yml veya environment variable'dan API anahtarını çeker
-    @Value("${openai.api-key:}")
-    private String openAiApiKey;
+        return callReserved(prepared, () -> openAIGateway.stream(SYSTEM_PROMPT, prepared.prompt(request.getQuery()), onDelta))
+                .thenApply(completion -> recordAnswer(request.getQuery(), completion, prepared, user));
+    }
+
+    // Reserves the query's unit of quota, then calls OpenAI; the unit is released when no answer comes back
+    private CompletableFuture<OpenAIGateway.Completion> callReserved(
+            PreparedQuery prepared, Supplier<CompletableFuture<OpenAIGateway.Completion>> call) {
+        Long companyId = prepared.company().getId();
+        reserveQuota(companyId, prepared.settings());
 
-    // YENİ: OpenAI bağlantı adresi
-    private final String OPENAI_URL = "https://api.openai.com/v1/chat/completions";
+        CompletableFuture<OpenAIGateway.Completion> pending;
+        try {
+            pending = call.get();
+        } catch (RuntimeException e) {
+            aiUsageTracker.release(companyId);
+            throw e;
+        }
+        return pending.whenComplete((completion, error) -> {
+            if (error != null || completion.failed()) {
+                aiUsageTracker.release(companyId);
+            }
+        });
+    }
 
+    private PreparedQuery prepareQuery(Long companyId, String query) {
+        TransactionTemplate readTransaction = new TransactionTemplate(transactionManager);
+        readTransaction.setReadOnly(true);
+        return readTransaction.execute(status -> loadQueryData(companyId, query));
+    }
 
-    @Transactional
-    public AIQueryResponse processQuery(AIQueryRequest request, Long companyId, User user) {
+    private PreparedQuery loadQueryData(Long companyId, String query) {
         // Validate company exists
         Customer company = customerRepository.findById(companyId)
                 .orElseThrow(() -> new ResourceNotFoundException("Company not found with id: " + companyId));
@@ -59,29 +110,51 @@ public class AIService {
         SystemSettings settings = systemSettingsRepository.findById(1L)
                 .orElseThrow(() -> new BusinessException("System settings not found"));
 
-        // DEĞİŞİKLİK: Limit kontrollerini ayrı metoda taşıdım (kod temizliği için)
-        checkLimits(companyId, settings);
+        // Context from the company's cached data snapshot
+        String context = aiContextSnapshotService.getContext(companyId);
+
+        // Cached answers cost no quota; limits are checked when the call is reserved
+        String cachedAnswer = aiResponseCache.get(companyId, query, context);
+
+        return new PreparedQuery(company, settings, context, cachedAnswer);
+    }
 
-        // Build context from company data
-        String context = buildContext(companyId);
+    private AIQueryResponse recordAnswer(String query, OpenAIGateway.Completion completion, PreparedQuery prepared,
+                                         User user) {
+        saveAnswer(query, completion.text(), false, completion.failed(), prepared.company(), user);
+        // Error messages and cut-off streams are not worth reusing
+        if (completion.answered()) {
+            aiResponseCache.put(prepared.company().getId(), query, prepared.context(), completion.text());
+        }
+        return buildResponse(completion.text(), false, prepared);
+    }
 
-        // Call AI service
-        String aiResponse = callOpenAI(request.getQuery(), context);
+    private AIQueryResponse recordCachedAnswer(String query, PreparedQuery prepared, User user) {
+        saveAnswer(query, prepared.cachedAnswer(), true, false, prepared.company(), user);
+        return buildResponse(prepared.cachedAnswer(), true, prepared);
+    }
 
-        // Log AI usage
+    private void saveAnswer(String query, String aiResponse, boolean cacheHit, boolean failed, Customer company,
+                            User user) {
+        // Log AI usage; cache hits and failed calls are logged with 0 tokens and not counted against the limits
         AIAuditLog auditLog = AIAuditLog.builder()
-                .query(request.getQuery())
+                .query(query)
                 .response(aiResponse)
-                .tokensUsed(estimateTokens(request.getQuery(), aiResponse))
+                .tokensUsed(cacheHit || failed ? 0 : estimateTokens(query, aiResponse))
+                .cacheHit(cacheHit)
                 .user(user)
                 .company(company)
                 .build();
-        aiAuditLogRepository.save(auditLog);
+        // Written behind in batches; the quota was already counted when the call was reserved
+        aiAuditSink.submit(auditLog);
+    }
 
-        // Calculate remaining queries AFTER saving the current one
-        Map<String, Long> usageStats = getUsageStatsCounts(companyId);
-        Integer remainingDaily = (int) (settings.getAiDailyLimit() - usageStats.get("daily"));
-        Integer remainingMonthly = (int) (settings.getAiMonthlyLimit() - usageStats.get("monthly"));
+    private AIQueryResponse buildResponse(String aiResponse, boolean cacheHit, PreparedQuery prepared) {
+        // Calculate remaining queries AFTER the current one has been counted
+        SystemSettings settings = prepared.settings();
+        AIUsageTracker.AIUsage usage = aiUsageTracker.getUsage(prepared.company().getId());
+        Integer remainingDaily = (int) (settings.getAiDailyLimit() - usage.daily());
+        Integer remainingMonthly = (int) (settings.getAiMonthlyLimit() - usage.monthly());
 
         return AIQueryResponse.builder()
                 .response(aiResponse)
@@ -89,165 +162,31 @@ public class AIService {
                 .remainingDailyQueries(Math.max(0, remainingDaily))
                 .remainingMonthlyQueries(Math.max(0, remainingMonthly))
                 .limitReached(remainingDaily <= 0 || remainingMonthly <= 0)
+                .cached(cacheHit)
                 .build();
     }
 
-    // YENİ METOT: Gerçek OpenAI API çağrısı yapan kısım
-    private String callOpenAI(String userQuery, String contextData) {
-        try {
-            // API anahtarı kontrolü
-            String apiKey = resolveApiKey();
-            if (apiKey.isEmpty()) {
-                return "HATA: OpenAI API anahtarı yapılandırılmamış. Lütfen sistem yöneticinizle iletişime geçin.";
-            }
+    private record PreparedQuery(Customer company, SystemSettings settings, String context, String cachedAnswer) {
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(apiKey);
-
-            // JSON Gövdesini oluşturma
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("model", "gpt-3.5-turbo");
-
-            List<Map<String, String>> messages = new ArrayList<>();
-            // Single professional system instruction
-            messages.add(Map.of("role", "system", "content",
-                    "You are a professional financial expert and pre-accounting assistant."));
-            // Data and query
-            messages.add(Map.of("role", "user", "content",
-                    "DATA:\n" + contextData + "\n\nQUESTION: " + userQuery));
-
-            requestBody.put("messages", messages);
-
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-
-            // İsteği gönder
-            Map<String, Object> response = restTemplate.postForObject(OPENAI_URL, entity, Map.class);
-
-            // Cevabı ayıkla (JSON parsing) with null-safe Optional approach
-            return Optional.ofNullable(response)
-                    .map(r -> r.get("choices"))
-                    .filter(List.class::isInstance)
-                    .map(List.class::cast)
-                    .filter(list -> !list.isEmpty())
-                    .map(list -> list.get(0))
-                    .filter(Map.class::isInstance)
-                    .map(Map.class::cast)
-                    .map(choice -> choice.get("message"))
-                    .filter(Map.class::isInstance)
-                    .map(Map.class::cast)
-                    .map(message -> message.get("content"))
-                    .map(Object::toString)
-                    .orElse("AI servisine ulaşıldı ancak anlamlı bir cevap alınamadı.");
-
-        } catch (org.springframework.web.client.HttpClientErrorException e) {
-            return "AI Servisi hatası: " + e.getStatusCode() + " - " + e.getResponseBodyAsString();
-        } catch (Exception e) {
-            return "AI Servisi şu an yanıt veremiyor. Hata: " + e.getMessage();
+        String prompt(String query) {
+            return "DATA:\n" + context + "\n\nQUESTION: " + query;
         }
     }
 
-    private String resolveApiKey() {
-        String key = openAiApiKey;
-        if (key == null || key.trim().isEmpty()) {
-            key = System.getenv("OPENAI_API_KEY");
-        }
-        if (key == null) {
-            return "";
-        }
-        key = key.trim();
-        if (key.startsWith("\"") && key.endsWith("\"") && key.length() > 1) {
-            key = key.substring(1, key.length() - 1).trim();
-        }
-        if (key.toLowerCase().startsWith("bearer ")) {
-            key = key.substring(7).trim();
-        }
-        return key;
-    }
-
-    // YENİ: Kod tekrarını önlemek için limit kontrolünü buraya aldım
-    private void checkLimits(Long companyId, SystemSettings settings) {
-        Map<String, Long> usage = getUsageStatsCounts(companyId);
-
-        if (usage.get("daily") >= settings.getAiDailyLimit()) {
-            throw new BusinessException("Günlük AI sorgu limitine ulaşıldı. Limit: " + settings.getAiDailyLimit());
-        }
+    // Counts the query up front, or fails with the limit that has been reached
+    private void reserveQuota(Long companyId, SystemSettings settings) {
+        // Loops only when a failed call released its unit between the reservation and the read
+        while (!aiUsageTracker.tryReserve(companyId, settings.getAiDailyLimit(), settings.getAiMonthlyLimit())) {
+            AIUsageTracker.AIUsage usage = aiUsageTracker.getUsage(companyId);
 
-        if (usage.get("monthly") >= settings.getAiMonthlyLimit()) {
-            throw new BusinessException("Aylık AI sorgu limitine ulaşıldı. Limit: " + settings.getAiMonthlyLimit());
-        }
-    }
-
-    // YENİ: Kullanım sayılarını hesaplayan yardımcı metot
-    private Map<String, Long> getUsageStatsCounts(Long companyId) {
-        LocalDateTime startOfDay = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0).withNano(0);
-        LocalDateTime startOfMonth = YearMonth.now().atDay(1).atStartOfDay();
-
-        Long daily = aiAuditLogRepository.countByCompanyIdAndTimestampAfter(companyId, startOfDay);
-        Long monthly = aiAuditLogRepository.countByCompanyIdAndTimestampAfter(companyId, startOfMonth);
-
-        Map<String, Long> stats = new HashMap<>();
-        stats.put("daily", daily);
-        stats.put("monthly", monthly);
-        return stats;
-    }
+            if (usage.daily() >= settings.getAiDailyLimit()) {
+                throw new BusinessException("Günlük AI sorgu limitine ulaşıldı. Limit: " + settings.getAiDailyLimit());
+            }
 
-    // DEĞİŞİKLİK YOK: Context oluşturma mantığın gayet güzeldi, aynen korudum.
-    private String buildContext(Long companyId) {
-        LocalDate thirtyDaysAgo = LocalDate.now().minusDays(30);
-        LocalDate today = LocalDate.now();
-
-        StringBuilder context = new StringBuilder();
-        context.append("Şirket Veri Özeti (Son 30 Gün):\n\n");
-
-        // Income/Expense Summary
-        List<IncomeExpense> incomeExpenses = incomeExpenseRepository.findByCompanyIdAndDateBetween(
-                companyId, thirtyDaysAgo, today);
-
-        BigDecimal totalIncome = incomeExpenses.stream()
-                .filter(ie -> ie.getCategory().getType() == CategoryType.INCOME)
-                .map(IncomeExpense::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal totalExpense = incomeExpenses.stream()
-                .filter(ie -> ie.getCategory().getType() == CategoryType.EXPENSE)
-                .map(IncomeExpense::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        context.append(String.format("Toplam Gelir: %s\n", totalIncome));
-        context.append(String.format("Toplam Gider: %s\n", totalExpense));
-        context.append(String.format("Net Kar: %s\n\n", totalIncome.subtract(totalExpense)));
-
-        // Expense by category
-        Map<String, BigDecimal> expensesByCategory = incomeExpenses.stream()
-                .filter(ie -> ie.getCategory().getType() == CategoryType.EXPENSE)
-                .collect(Collectors.groupingBy(
-                        ie -> ie.getCategory().getName(),
-                        Collectors.reducing(BigDecimal.ZERO, IncomeExpense::getAmount, BigDecimal::add)
-                ));
-
-        if (!expensesByCategory.isEmpty()) {
-            context.append("Kategori Bazlı Giderler:\n");
-            expensesByCategory.forEach((category, amount) ->
-                    context.append(String.format("- %s: %s\n", category, amount)));
-            context.append("\n");
+            if (usage.monthly() >= settings.getAiMonthlyLimit()) {
+                throw new BusinessException("Aylık AI sorgu limitine ulaşıldı. Limit: " + settings.getAiMonthlyLimit());
+            }
         }
-
-        // Invoice summary
-        List<Invoice> invoices = invoiceRepository.findByCompanyId(companyId);
-        long unpaidInvoices = invoices.stream()
-                .filter(i -> i.getStatus() == InvoiceStatus.UNPAID)
-                .count();
-        BigDecimal unpaidAmount = invoices.stream()
-                .filter(i -> i.getStatus() == InvoiceStatus.UNPAID)
-                .map(Invoice::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        context.append(String.format("Toplam Fatura Sayısı: %d\n", invoices.size()));
-        context.append(String.format("Ödenmemiş Fatura Sayısı: %d\n", unpaidInvoices));
-        context.append(String.format("Ödenmemiş Toplam Tutar: %s\n\n", unpaidAmount));
-
-        return context.toString();
     }
 
     /**
@@ -264,15 +203,60 @@ public class AIService {
 
     @Transactional(readOnly = true)
     public Map<String, Long> getUsageStats(Long companyId) {
-        Map<String, Long> counts = getUsageStatsCounts(companyId);
+        AIUsageTracker.AIUsage usage = aiUsageTracker.getUsage(companyId);
         SystemSettings settings = systemSettingsRepository.findById(1L)
                 .orElseThrow(() -> new BusinessException("System settings not found"));
 
         return Map.of(
-                "dailyUsage", counts.get("daily"),
+                "dailyUsage", usage.daily(),
                 "dailyLimit", settings.getAiDailyLimit().longValue(),
-                "monthlyUsage", counts.get("monthly"),
+                "monthlyUsage", usage.monthly(),
                 "monthlyLimit", settings.getAiMonthlyLimit().longValue()
         );
     }
+
+    /**
+     * Keyset page of the company's audit log still in the table, newest first; userId is optional.
+     * Older months are read through AIAuditArchiveService.
+     */
+    @Transactional(readOnly = true)
+    public AIAuditLogPageDto getAuditLogPage(Long companyId, Long userId, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, AIAuditArchiveService.MAX_PAGE_SIZE));
+        Long beforeId;
+        try {
+            beforeId = cursor == null || cursor.isBlank() ? null : Long.valueOf(cursor);
+        } catch (NumberFormatException e) {
+            throw new BusinessException("Geçersiz sayfa imleci");
+        }
+
+        // One extra row tells whether another page follows
+        Limit limit = Limit.of(pageSize + 1);
+        List<AIAuditLog> logs = userId == null
+                ? aiAuditLogRepository.findPageByCompanyId(companyId, beforeId, limit)
+                : aiAuditLogRepository.findPageByCompanyIdAndUserId(companyId, userId, beforeId, limit);
+        boolean hasMore = logs.size() > pageSize;
+        if (hasMore) {
+            logs = logs.subList(0, pageSize);
+        }
+
+        // The ids of user and company come from the row, their proxies are not loaded
+        List<AIAuditLogEntryDto> entries = logs.stream()
+                .map(auditLog -> AIAuditLogEntryDto.builder()
+                        .id(auditLog.getId())
+                        .companyId(auditLog.getCompany().getId())
+                        .userId(auditLog.getUser().getId())
+                        .query(auditLog.getQuery())
+                        .response(auditLog.getResponse())
+                        .tokensUsed(auditLog.getTokensUsed())
+                        .cacheHit(auditLog.getCacheHit())
+                        .timestamp(auditLog.getTimestamp())
+                        .build())
+                .toList();
+
+        return AIAuditLogPageDto.builder()
+                .entries(entries)
+                .nextCursor(hasMore ? entries.get(entries.size() - 1).getId().toString() : null)
+                .hasMore(hasMore)
+                .build();
+    }
 }
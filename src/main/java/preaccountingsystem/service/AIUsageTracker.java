@@ -0,0 +1,28 @@
+package preaccountingsystem.service;
+
+/**
+ * Counts the charged AI queries of each company in the current day and month, so quota checks
+ * do not have to count audit log rows.
+ */
+public interface AIUsageTracker {
+
+    /**
+     * Charged queries of the company today and this month.
+     */
+    AIUsage getUsage(Long companyId);
+
+    /**
+     * Counts one charged query before OpenAI is called, unless the company has already used its
+     * daily or monthly limit; returns false without counting in that case. Checking and counting
+     * are one atomic step, so concurrent queries cannot together go over a limit.
+     */
+    boolean tryReserve(Long companyId, long dailyLimit, long monthlyLimit);
+
+    /**
+     * Takes back a reservation whose query got no answer (API error, timeout, rejected call).
+     */
+    void release(Long companyId);
+
+    record AIUsage(long daily, long monthly) {
+    }
+}
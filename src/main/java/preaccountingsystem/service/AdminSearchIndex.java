@@ -0,0 +1,206 @@
+package preaccountingsystem.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import preaccountingsystem.entity.Customer;
+import preaccountingsystem.entity.User;
+import preaccountingsystem.repository.AdminSearchRepository;
+import preaccountingsystem.repository.CustomerRepository;
+import preaccountingsystem.repository.UserRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * In-memory search index for the admin company and user pickers.
+ *
+ * Companies are indexed by name, email and tax number, users by username and company name.
+ * The index is built in the background from two projection queries after startup (or on the
+ * first search after a failed build) and then kept current by AdminService, which reports every
+ * create, update and delete once it has committed. Until the index is ready, search() returns
+ * empty and the caller falls back to the database through AdminSearchRepository; on MySQL the
+ * FULLTEXT indexes for that are created here at startup.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+// Runs after Hibernate has created or updated the tables
+@DependsOn("entityManagerFactory")
+public class AdminSearchIndex {
+
+    private final CustomerRepository customerRepository;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${admin.search.index-enabled:true}")
+    private boolean enabled;
+
+    @Value("${admin.search.fulltext-enabled:true}")
+    private boolean fullTextEnabled;
+
+    private volatile boolean fullText;
+    private volatile Indexes ready;
+    // Non-null while a build runs: changes reported meanwhile, applied on top of the built index
+    private List<Consumer<Indexes>> pendingChanges;
+    private ExecutorService builder;
+
+    @PostConstruct
+    void init() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("admin-search-index-");
+        threadFactory.setDaemon(true);
+        builder = Executors.newSingleThreadExecutor(threadFactory);
+
+        if (fullTextEnabled) {
+            String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            if (database != null && database.toLowerCase(Locale.ROOT).contains("mysql")) {
+                createFullTextIndex("customers", AdminSearchRepository.COMPANY_FULLTEXT, "name, email, tax_no");
+                createFullTextIndex("users", AdminSearchRepository.USER_FULLTEXT, "username");
+                fullText = true;
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void warmUp() {
+        requestBuild();
+    }
+
+    @PreDestroy
+    void stop() {
+        builder.shutdownNow();
+    }
+
+    /**
+     * True when the database fallback can use FULLTEXT matching.
+     */
+    public boolean isFullText() {
+        return fullText;
+    }
+
+    /**
+     * One ranked page of matching company ids, or empty when the index is not built yet.
+     */
+    public Optional<TrigramIndex.Result<Long>> searchCompanies(String query, int offset, int limit) {
+        Indexes indexes = ready;
+        if (indexes == null) {
+            requestBuild();
+            return Optional.empty();
+        }
+        return Optional.of(indexes.companies().search(query, offset, limit));
+    }
+
+    /**
+     * One ranked page of matching user ids, or empty when the index is not built yet.
+     */
+    public Optional<TrigramIndex.Result<Long>> searchUsers(String query, int offset, int limit) {
+        Indexes indexes = ready;
+        if (indexes == null) {
+            requestBuild();
+            return Optional.empty();
+        }
+        return Optional.of(indexes.users().search(query, offset, limit));
+    }
+
+    public void companyChanged(Customer company) {
+        Long id = company.getId();
+        String name = company.getName();
+        String email = company.getEmail();
+        String taxNo = company.getTaxNo();
+        afterCommit(indexes -> indexes.companies().put(id, name, email, taxNo));
+    }
+
+    public void companyRemoved(Long companyId) {
+        afterCommit(indexes -> indexes.companies().remove(companyId));
+    }
+
+    public void userChanged(User user) {
+        userChanged(user.getId(), user.getUsername(), user.getCustomer() != null ? user.getCustomer().getName() : null);
+    }
+
+    public void userChanged(Long userId, String username, String companyName) {
+        afterCommit(indexes -> indexes.users().put(userId, username, companyName));
+    }
+
+    public void userRemoved(Long userId) {
+        afterCommit(indexes -> indexes.users().remove(userId));
+    }
+
+    private void afterCommit(Consumer<Indexes> change) {
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                if (ready != null) {
+                    change.accept(ready);
+                } else if (pendingChanges != null) {
+                    pendingChanges.add(change);
+                }
+                // Neither: the next build reads the change from the database
+            }
+        });
+    }
+
+    private synchronized void requestBuild() {
+        if (!enabled || ready != null || pendingChanges != null) {
+            return;
+        }
+        pendingChanges = new ArrayList<>();
+        builder.execute(this::build);
+    }
+
+    private void build() {
+        try {
+            long started = System.currentTimeMillis();
+            TrigramIndex<Long> companies = new TrigramIndex<>();
+            for (Object[] row : customerRepository.findSearchFields()) {
+                companies.put((Long) row[0], (String) row[1], (String) row[2], (String) row[3]);
+            }
+            TrigramIndex<Long> users = new TrigramIndex<>();
+            for (Object[] row : userRepository.findSearchFields()) {
+                users.put((Long) row[0], (String) row[1], (String) row[2]);
+            }
+
+            Indexes built = new Indexes(companies, users);
+            synchronized (this) {
+                pendingChanges.forEach(change -> change.accept(built));
+                pendingChanges = null;
+                ready = built;
+            }
+            log.info("Admin search index built: {} companies, {} users in {} ms", companies.size(), users.size(),
+                    System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            synchronized (this) {
+                pendingChanges = null;
+            }
+            log.error("Could not build admin search index: {}", e.getMessage());
+        }
+    }
+
+    private void createFullTextIndex(String table, String name, String columns) {
+        Integer existing = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.STATISTICS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ?",
+                Integer.class, table, name);
+        if (existing == null || existing == 0) {
+            jdbcTemplate.execute("CREATE FULLTEXT INDEX " + name + " ON " + table + " (" + columns + ")");
+            log.info("Created FULLTEXT index {} on {}", name, table);
+        }
+    }
+
+    private record Indexes(TrigramIndex<Long> companies, TrigramIndex<Long> users) {
+    }
+}
@@ -1,30 +1,58 @@
 package preaccountingsystem.service;
 
+import preaccountingsystem.config.PrincipalCache;
 import preaccountingsystem.dto.*;
 import preaccountingsystem.entity.*;
 import preaccountingsystem.exception.BusinessException;
 import preaccountingsystem.exception.ResourceNotFoundException;
+import preaccountingsystem.repository.AdminSearchRepository;
 import preaccountingsystem.repository.CustomerRepository;
 import preaccountingsystem.repository.InvoiceRepository;
 import preaccountingsystem.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.JpaSort;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class AdminService {
 
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // Sort keys accepted by the paged listings, mapped to paths of the projection queries
+    private static final Map<String, String> COMPANY_SORTS = Map.of(
+            "id", "id", "name", "name", "email", "email", "taxNo", "taxNo", "status", "status",
+            "createdAt", "createdAt", "updatedAt", "updatedAt");
+    private static final Map<String, String> CUSTOMER_SORTS = Map.of(
+            "id", "id", "name", "name", "email", "email", "taxNo", "taxNo", "username", "u.username");
+    private static final Map<String, String> USER_SORTS = Map.of(
+            "id", "id", "username", "username", "role", "role", "customerName", "c.name",
+            "createdAt", "createdAt", "updatedAt", "updatedAt");
+
     private final UserRepository userRepository;
     private final CustomerRepository customerRepository;
     private final InvoiceRepository invoiceRepository;
     private final PasswordEncoder passwordEncoder;
+    private final PrincipalCache principalCache;
+    private final AdminSearchIndex adminSearchIndex;
+    private final AdminSearchRepository adminSearchRepository;
 
     public void resetAdminPassword() {
         User admin = userRepository.findByUsername("admin")
@@ -60,6 +88,8 @@ public class AdminService {
 
         User savedUser = userRepository.save(user);
         Customer savedCustomer = customerRepository.save(customer);
+        adminSearchIndex.companyChanged(savedCustomer);
+        adminSearchIndex.userChanged(savedUser);
 
         return CreateCustomerResponse.builder()
                 .customerId(savedCustomer.getId())
@@ -72,9 +102,11 @@ public class AdminService {
     }
 
     public List<CustomerDto> listCustomers() {
-        return customerRepository.findAll().stream()
-                .map(this::convertToCustomerDto)
-                .collect(Collectors.toList());
+        return customerRepository.findCustomerPage(Pageable.unpaged(Sort.by("id"))).getContent();
+    }
+
+    public PagedResponse<CustomerDto> listCustomers(int page, int size, String sortBy, String sortDirection) {
+        return toPage(customerRepository.findCustomerPage(pageRequest(page, size, sortBy, sortDirection, CUSTOMER_SORTS)));
     }
 
 
@@ -93,29 +125,59 @@ public class AdminService {
                 .build();
 
         Customer savedCompany = customerRepository.save(company);
+        adminSearchIndex.companyChanged(savedCompany);
 
         return convertToCompanyDto(savedCompany);
     }
 
     public List<CompanyDto> listCompanies() {
-        return customerRepository.findAll().stream()
-                .map(this::convertToCompanyDto)
-                .collect(Collectors.toList());
+        return customerRepository.findCompanyPage(Pageable.unpaged(Sort.by("id"))).getContent();
     }
 
+    /**
+     * One page of companies, read as DTO columns in one query. The total is counted without a
+     * join, and not at all when the page itself shows it is the last one.
+     */
+    public PagedResponse<CompanyDto> listCompanies(int page, int size, String sortBy, String sortDirection) {
+        return toPage(customerRepository.findCompanyPage(pageRequest(page, size, sortBy, sortDirection, COMPANY_SORTS)));
+    }
+
+    /**
+     * Every company matching by name, email or tax number, best matches first.
+     */
     public List<CompanyDto> searchCompanies(String query) {
         if (query == null || query.trim().isEmpty()) {
             return listCompanies();
         }
+        return allPages(page -> searchCompanies(query, page, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Ranked page of companies matching the query in name, email or tax number. Served from
+     * AdminSearchIndex, or from the database while the index is still being built.
+     */
+    public PagedResponse<CompanyDto> searchCompanies(String query, int page, int size) {
+        String term = query == null ? "" : query.trim();
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        int offset = Math.max(0, page) * pageSize;
+        if (term.isEmpty()) {
+            return toPage(List.of(), page, pageSize, 0);
+        }
 
-        String searchQuery = query.toLowerCase().trim();
-        return customerRepository.findAll().stream()
-                .filter(company ->
-                    company.getName().toLowerCase().contains(searchQuery) ||
-                    (company.getEmail() != null && company.getEmail().toLowerCase().contains(searchQuery)) ||
-                    (company.getTaxNo() != null && company.getTaxNo().toLowerCase().contains(searchQuery)))
+        boolean fullText = adminSearchIndex.isFullText();
+        TrigramIndex.Result<Long> result = adminSearchIndex.searchCompanies(term, offset, pageSize)
+                .orElseGet(() -> new TrigramIndex.Result<>(
+                        adminSearchRepository.findCompanyIds(term, fullText, offset, pageSize),
+                        (int) adminSearchRepository.countCompanies(term, fullText)));
+
+        Map<Long, Customer> companiesById = customerRepository.findAllById(result.keys()).stream()
+                .collect(Collectors.toMap(Customer::getId, Function.identity()));
+        List<CompanyDto> companies = result.keys().stream()
+                .map(companiesById::get)
+                .filter(Objects::nonNull)
                 .map(this::convertToCompanyDto)
-                .collect(Collectors.toList());
+                .toList();
+        return toPage(companies, page, pageSize, result.total());
     }
 
     public CompanyDto updateCompanyStatus(Long companyId, UpdateCompanyStatusRequest request) {
@@ -124,6 +186,7 @@ public class AdminService {
 
         company.setStatus(request.getStatus());
         Customer updatedCompany = customerRepository.save(company);
+        principalCache.invalidateCompany(companyId);
 
         return convertToCompanyDto(updatedCompany);
     }
@@ -147,6 +210,13 @@ public class AdminService {
         company.setStatus(request.getStatus());
 
         Customer updatedCompany = customerRepository.save(company);
+        principalCache.invalidateCompany(companyId);
+        adminSearchIndex.companyChanged(updatedCompany);
+        // The company name is searchable on its user too
+        if (updatedCompany.getUser() != null) {
+            userRepository.findById(updatedCompany.getUser().getId()).ifPresent(user ->
+                    adminSearchIndex.userChanged(user.getId(), user.getUsername(), updatedCompany.getName()));
+        }
 
         return convertToCompanyDto(updatedCompany);
     }
@@ -161,6 +231,7 @@ public class AdminService {
         }
 
         customerRepository.delete(company);
+        adminSearchIndex.companyRemoved(companyId);
     }
 
     private CompanyDto convertToCompanyDto(Customer customer) {
@@ -177,36 +248,51 @@ public class AdminService {
                 .build();
     }
 
-    private CustomerDto convertToCustomerDto(Customer customer) {
-        return CustomerDto.builder()
-                .id(customer.getId())
-                .name(customer.getName())
-                .email(customer.getEmail())
-                .phone(customer.getPhone())
-                .taxNo(customer.getTaxNo())
-                .address(customer.getAddress())
-                .username(customer.getUser() != null ? customer.getUser().getUsername() : "N/A")
-                .build();
+    public List<UserDto> listAllUsers() {
+        return userRepository.findUserPage(Pageable.unpaged(Sort.by("id"))).getContent();
     }
 
-    public List<UserDto> listAllUsers() {
-        return userRepository.findAll().stream()
-                .map(this::convertToUserDto)
-                .collect(Collectors.toList());
+    public PagedResponse<UserDto> listAllUsers(int page, int size, String sortBy, String sortDirection) {
+        return toPage(userRepository.findUserPage(pageRequest(page, size, sortBy, sortDirection, USER_SORTS)));
     }
 
+    /**
+     * Every user matching by username or company name, best matches first.
+     */
     public List<UserDto> searchUsers(String query) {
         if (query == null || query.trim().isEmpty()) {
             return listAllUsers();
         }
+        return allPages(page -> searchUsers(query, page, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Ranked page of users matching the query in username or company name, loaded with their
+     * companies in one query.
+     */
+    public PagedResponse<UserDto> searchUsers(String query, int page, int size) {
+        String term = query == null ? "" : query.trim();
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        int offset = Math.max(0, page) * pageSize;
+        if (term.isEmpty()) {
+            return toPage(List.of(), page, pageSize, 0);
+        }
 
-        String searchQuery = query.toLowerCase().trim();
-        return userRepository.findAll().stream()
-                .filter(user ->
-                    user.getUsername().toLowerCase().contains(searchQuery) ||
-                    (user.getCustomer() != null && user.getCustomer().getName().toLowerCase().contains(searchQuery)))
+        boolean fullText = adminSearchIndex.isFullText();
+        TrigramIndex.Result<Long> result = adminSearchIndex.searchUsers(term, offset, pageSize)
+                .orElseGet(() -> new TrigramIndex.Result<>(
+                        adminSearchRepository.findUserIds(term, fullText, offset, pageSize),
+                        (int) adminSearchRepository.countUsers(term, fullText)));
+
+        Map<Long, User> usersById = result.keys().isEmpty() ? Map.of()
+                : userRepository.findWithCustomerByIdIn(result.keys()).stream()
+                        .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<UserDto> users = result.keys().stream()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
                 .map(this::convertToUserDto)
-                .collect(Collectors.toList());
+                .toList();
+        return toPage(users, page, pageSize, result.total());
     }
 
     public UserDto createUser(CreateUserRequest request) {
@@ -241,6 +327,7 @@ public class AdminService {
         }
 
         User savedUser = userRepository.save(user);
+        adminSearchIndex.userChanged(savedUser);
         return convertToUserDto(savedUser);
     }
 
@@ -272,6 +359,8 @@ public class AdminService {
         }
 
         User updatedUser = userRepository.save(user);
+        principalCache.invalidateUser(updatedUser.getUsername());
+        adminSearchIndex.userChanged(updatedUser);
         return convertToUserDto(updatedUser);
     }
 
@@ -290,6 +379,8 @@ public class AdminService {
         }
 
         userRepository.delete(user);
+        principalCache.invalidateUser(user.getUsername());
+        adminSearchIndex.userRemoved(userId);
     }
 
     public UserDto updateUser(Long userId, UpdateUserRequest request) {
@@ -313,6 +404,7 @@ public class AdminService {
         }
 
         // Update username
+        String previousUsername = user.getUsername();
         user.setUsername(request.getUsername());
 
         // Update password only if provided
@@ -359,6 +451,9 @@ public class AdminService {
         }
 
         User updatedUser = userRepository.save(user);
+        principalCache.invalidateUser(previousUsername);
+        principalCache.invalidateUser(updatedUser.getUsername());
+        adminSearchIndex.userChanged(updatedUser);
         return convertToUserDto(updatedUser);
     }
 
@@ -393,6 +488,8 @@ public class AdminService {
 
         user.setRole(request.getRole());
         User updatedUser = userRepository.save(user);
+        principalCache.invalidateUser(updatedUser.getUsername());
+        adminSearchIndex.userChanged(updatedUser);
 
         return convertToUserDto(updatedUser);
     }
@@ -409,6 +506,54 @@ public class AdminService {
                 .build();
     }
 
+    private static Pageable pageRequest(int page, int size, String sortBy, String sortDirection,
+                                        Map<String, String> sorts) {
+        String path = sorts.get(sortBy);
+        if (path == null) {
+            throw new BusinessException("Unsupported sort field: " + sortBy + ". Allowed: "
+                    + String.join(", ", new TreeSet<>(sorts.keySet())));
+        }
+        Sort.Direction direction = "desc".equalsIgnoreCase(sortDirection) ? Sort.Direction.DESC : Sort.Direction.ASC;
+        // Paths are whitelisted above; id breaks ties so rows do not move between pages
+        Sort sort = JpaSort.unsafe(direction, path);
+        if (!"id".equals(path)) {
+            sort = sort.and(Sort.by(direction, "id"));
+        }
+        return PageRequest.of(Math.max(0, page), Math.max(1, Math.min(size, MAX_PAGE_SIZE)), sort);
+    }
+
+    private static <T> PagedResponse<T> toPage(Page<T> page) {
+        return PagedResponse.<T>builder()
+                .content(page.getContent())
+                .page(page.getNumber())
+                .size(page.getSize())
+                .totalElements(page.getTotalElements())
+                .totalPages(page.getTotalPages())
+                .build();
+    }
+
+    // All pages of a search, for the list endpoints that predate paging and return every match
+    private static <T> List<T> allPages(IntFunction<PagedResponse<T>> loadPage) {
+        List<T> all = new ArrayList<>();
+        for (int page = 0; ; page++) {
+            PagedResponse<T> current = loadPage.apply(page);
+            all.addAll(current.getContent());
+            if (page + 1 >= current.getTotalPages()) {
+                return all;
+            }
+        }
+    }
+
+    private static <T> PagedResponse<T> toPage(List<T> content, int page, int size, long total) {
+        return PagedResponse.<T>builder()
+                .content(content)
+                .page(Math.max(0, page))
+                .size(size)
+                .totalElements(total)
+                .totalPages((int) ((total + size - 1) / size))
+                .build();
+    }
+
     private String generatePassword() {
         return UUID.randomUUID().toString().substring(0, 8);
     }
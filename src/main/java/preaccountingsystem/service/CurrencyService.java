@@ -2,19 +2,26 @@ package preaccountingsystem.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import preaccountingsystem.dto.CurrencyConversionDto;
 import preaccountingsystem.dto.CurrencyDto;
 import preaccountingsystem.dto.ExchangeRateDto;
+import preaccountingsystem.dto.ExchangeRateRangeDto;
+import preaccountingsystem.dto.ExchangeRateRangeRequest;
+import preaccountingsystem.dto.ExchangeRateUpdateResultDto;
 import preaccountingsystem.entity.Currency;
 import preaccountingsystem.entity.ExchangeRate;
+import preaccountingsystem.exception.BusinessException;
 import preaccountingsystem.repository.CurrencyRepository;
 import preaccountingsystem.repository.ExchangeRateRepository;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -26,7 +33,12 @@ public class CurrencyService {
 
     private final CurrencyRepository currencyRepository;
     private final ExchangeRateRepository exchangeRateRepository;
-    private final ExchangeRateApiService exchangeRateApiService;
+    private final ExchangeRateCache exchangeRateCache;
+    private final ExchangeRateRefresher exchangeRateRefresher;
+    private final ExchangeRateHistoryStore exchangeRateHistoryStore;
+
+    @Value("${currency.history.max-range-cells:1000000}")
+    private long maxRangeCells;
 
     /**
      * Initialize default currencies in the database
@@ -99,55 +111,26 @@ public class CurrencyService {
     }
 
     /**
-     * Fetch and save latest exchange rates from API
+     * Fetch latest exchange rates for a base currency now
      */
-    @Transactional
-    public void updateExchangeRates(String baseCurrency) {
-        log.info("Updating exchange rates for base currency: {}", baseCurrency);
-
-        Map<String, BigDecimal> rates = exchangeRateApiService.fetchLatestRates(baseCurrency);
-        LocalDate today = LocalDate.now();
-
-        for (Map.Entry<String, BigDecimal> entry : rates.entrySet()) {
-            String targetCurrency = entry.getKey();
-            BigDecimal rate = entry.getValue();
-
-            // Check if rate already exists for today
-            var existing = exchangeRateRepository.findByFromCurrencyAndToCurrencyAndRateDate(
-                    baseCurrency, targetCurrency, today);
-
-            if (existing.isPresent()) {
-                // Update existing rate
-                ExchangeRate exchangeRate = existing.get();
-                exchangeRate.setRate(rate);
-                exchangeRate.setSource("ExchangeRate-API");
-                exchangeRateRepository.save(exchangeRate);
-            } else {
-                // Create new rate
-                ExchangeRate exchangeRate = new ExchangeRate();
-                exchangeRate.setFromCurrency(baseCurrency);
-                exchangeRate.setToCurrency(targetCurrency);
-                exchangeRate.setRate(rate);
-                exchangeRate.setRateDate(today);
-                exchangeRate.setSource("ExchangeRate-API");
-                exchangeRateRepository.save(exchangeRate);
-            }
-        }
-
-        log.info("Updated {} exchange rates for {}", rates.size(), baseCurrency);
+    public ExchangeRateUpdateResultDto updateExchangeRates(String baseCurrency) {
+        return exchangeRateRefresher.refresh(baseCurrency);
     }
 
     /**
      * Update exchange rates for all active currencies
      */
-    @Transactional
-    public void updateAllExchangeRates() {
-        List<Currency> activeCurrencies = currencyRepository.findByIsActiveTrue();
-
-        // Update rates for USD as base (most common)
-        updateExchangeRates("USD");
-
+    public List<ExchangeRateUpdateResultDto> updateAllExchangeRates() {
+        List<ExchangeRateUpdateResultDto> results = exchangeRateRefresher.refreshAll();
         log.info("Exchange rates updated for all currencies");
+        return results;
+    }
+
+    /**
+     * Rebuild the exchange rate history store from the database
+     */
+    public int backfillRateHistory() {
+        return exchangeRateHistoryStore.backfill();
     }
 
     /**
@@ -158,31 +141,22 @@ public class CurrencyService {
             return BigDecimal.ONE;
         }
 
-        // Try to get from database first
+        // Hot path: in-memory matrix, including cross rates through USD
+        var cached = exchangeRateCache.findRate(fromCurrency, toCurrency, date);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        // Cold path for pairs or dates the matrix does not cover
         var rate = exchangeRateRepository.findLatestRate(fromCurrency, toCurrency, date);
 
         if (rate.isPresent()) {
             return rate.get().getRate();
         }
 
-        // If not found in database, fetch from API
-        log.info("Exchange rate not found in database, fetching from API");
-        BigDecimal apiRate = exchangeRateApiService.getExchangeRate(fromCurrency, toCurrency);
-
-        if (apiRate != null) {
-            // Save to database for future use
-            ExchangeRate exchangeRate = new ExchangeRate();
-            exchangeRate.setFromCurrency(fromCurrency);
-            exchangeRate.setToCurrency(toCurrency);
-            exchangeRate.setRate(apiRate);
-            exchangeRate.setRateDate(date);
-            exchangeRate.setSource("ExchangeRate-API");
-            exchangeRateRepository.save(exchangeRate);
-
-            return apiRate;
-        }
-
-        throw new RuntimeException("Exchange rate not found for " + fromCurrency + " to " + toCurrency);
+        // Never wait on the provider here; fetch the pivot rates in the background for later requests
+        exchangeRateRefresher.requestRefresh();
+        throw new BusinessException("Exchange rate not available yet for " + fromCurrency + " to " + toCurrency);
     }
 
     /**
@@ -209,13 +183,58 @@ public class CurrencyService {
     }
 
     /**
-     * Get historical exchange rates for a currency pair
+     * Get historical exchange rates for a currency pair, one entry per day with a known rate
      */
     public List<ExchangeRateDto> getHistoricalRates(String fromCurrency, String toCurrency,
                                                      LocalDate startDate, LocalDate endDate) {
-        // For now, return empty list as historical data requires premium API
-        // This can be enhanced later
-        return List.of();
+        checkRange(startDate, endDate, 1);
+
+        double[] rates = exchangeRateHistoryStore.findRates(fromCurrency, toCurrency, startDate, endDate);
+        List<ExchangeRateDto> history = new ArrayList<>();
+        for (int day = 0; day < rates.length; day++) {
+            if (!Double.isNaN(rates[day])) {
+                history.add(new ExchangeRateDto(null, fromCurrency, toCurrency,
+                        BigDecimal.valueOf(rates[day]).setScale(10, RoundingMode.HALF_UP),
+                        startDate.plusDays(day), "History"));
+            }
+        }
+        return history;
+    }
+
+    /**
+     * Daily rates of many currency pairs over a date range, e.g. for revaluing old invoices in bulk
+     */
+    public ExchangeRateRangeDto getRateRange(ExchangeRateRangeRequest request) {
+        List<String> pairs = request.getPairs().stream().distinct().toList();
+        checkRange(request.getStartDate(), request.getEndDate(), pairs.size());
+
+        Map<String, List<Double>> rates = new LinkedHashMap<>();
+        for (String pair : pairs) {
+            String[] codes = pair.split("/");
+            double[] values = exchangeRateHistoryStore.findRates(codes[0], codes[1],
+                    request.getStartDate(), request.getEndDate());
+            List<Double> daily = new ArrayList<>(values.length);
+            for (double value : values) {
+                daily.add(Double.isNaN(value) ? null : value);
+            }
+            rates.put(pair, daily);
+        }
+
+        return ExchangeRateRangeDto.builder()
+                .startDate(request.getStartDate())
+                .endDate(request.getEndDate())
+                .rates(rates)
+                .build();
+    }
+
+    private void checkRange(LocalDate startDate, LocalDate endDate, int pairCount) {
+        if (startDate.isAfter(endDate)) {
+            throw new BusinessException("Start date cannot be after end date");
+        }
+        long cells = (endDate.toEpochDay() - startDate.toEpochDay() + 1) * pairCount;
+        if (cells > maxRangeCells) {
+            throw new BusinessException("Rate range is limited to " + maxRangeCells + " pair-days, requested " + cells);
+        }
     }
 
     private CurrencyDto convertToDto(Currency currency) {
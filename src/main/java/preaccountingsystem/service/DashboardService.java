@@ -5,6 +5,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import preaccountingsystem.dto.*;
 import preaccountingsystem.entity.*;
+import preaccountingsystem.exception.BusinessException;
 import preaccountingsystem.exception.ResourceNotFoundException;
 import preaccountingsystem.repository.*;
 
@@ -15,6 +16,7 @@ import java.time.YearMonth;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -22,19 +24,19 @@ public class DashboardService {
 
     private final IncomeExpenseRepository incomeExpenseRepository;
     private final InvoiceRepository invoiceRepository;
-    private final PaymentRepository paymentRepository;
     private final CustomerRepository customerRepository;
+    private final MonthlyLedgerRollupRepository rollupRepository;
+    private final ExchangeRateCache exchangeRateCache;
+    private final ExchangeRateHistoryStore exchangeRateHistoryStore;
+    private final ReportingDashboardCache reportingDashboardCache;
 
     @Transactional(readOnly = true)
     public DashboardDto getDashboard(Long companyId, LocalDate startDate, LocalDate endDate) {
         customerRepository.findById(companyId)
                 .orElseThrow(() -> new ResourceNotFoundException("Company not found with id: " + companyId));
 
-        BigDecimal totalIncome = incomeExpenseRepository.sumByCompanyIdAndCategoryTypeAndDateBetween(
-                companyId, CategoryType.INCOME, startDate, endDate);
-        BigDecimal totalExpense = incomeExpenseRepository.sumByCompanyIdAndCategoryTypeAndDateBetween(
-                companyId, CategoryType.EXPENSE, startDate, endDate);
-        BigDecimal netProfit = totalIncome.subtract(totalExpense);
+        BigDecimal totalIncome = getTotal(companyId, CategoryType.INCOME, startDate, endDate);
+        BigDecimal totalExpense = getTotal(companyId, CategoryType.EXPENSE, startDate, endDate);
 
         List<MonthlyIncomeExpenseDto> monthlyData = getMonthlyIncomeExpense(companyId, startDate, endDate);
 
@@ -42,6 +44,130 @@ public class DashboardService {
 
         List<UnpaidInvoiceSummaryDto> unpaidInvoices = getUnpaidInvoices(companyId);
 
+        return buildDashboard(totalIncome, totalExpense, monthlyData, expenseDistribution, unpaidInvoices);
+    }
+
+    /**
+     * Dashboard with every income and expense amount converted to the reporting currency at the
+     * rate of its transaction date. Unpaid invoices are listed in their own currencies.
+     */
+    @Transactional(readOnly = true)
+    public DashboardDto getDashboard(Long companyId, LocalDate startDate, LocalDate endDate, String reportingCurrency) {
+        customerRepository.findById(companyId)
+                .orElseThrow(() -> new ResourceNotFoundException("Company not found with id: " + companyId));
+
+        return reportingDashboardCache.get(companyId, startDate, endDate, reportingCurrency,
+                () -> buildReportingDashboard(companyId, startDate, endDate, reportingCurrency));
+    }
+
+    private DashboardDto buildReportingDashboard(Long companyId, LocalDate startDate, LocalDate endDate,
+                                                 String reportingCurrency) {
+        // {categoryType, categoryId, categoryName, currency, date, amount}
+        List<Object[]> rows = incomeExpenseRepository.sumByCategoryCurrencyAndDate(companyId, startDate, endDate);
+
+        // One rate per distinct (currency, date), however many categories share it
+        Map<CurrencyDay, BigDecimal> rates = new HashMap<>();
+        for (Object[] row : rows) {
+            rates.computeIfAbsent(new CurrencyDay((String) row[3], (LocalDate) row[4]),
+                    group -> findReportingRate(group, reportingCurrency));
+        }
+
+        BigDecimal totalIncome = BigDecimal.ZERO;
+        BigDecimal totalExpense = BigDecimal.ZERO;
+        Map<YearMonth, Map<CategoryType, BigDecimal>> monthlyMap = new TreeMap<>();
+        Map<Long, String> categoryNames = new HashMap<>();
+        Map<Long, BigDecimal> expenseByCategory = new HashMap<>();
+
+        for (Object[] row : rows) {
+            CategoryType type = (CategoryType) row[0];
+            LocalDate date = (LocalDate) row[4];
+            BigDecimal converted = ((BigDecimal) row[5]).multiply(rates.get(new CurrencyDay((String) row[3], date)));
+
+            if (type == CategoryType.INCOME) {
+                totalIncome = totalIncome.add(converted);
+            } else {
+                totalExpense = totalExpense.add(converted);
+                categoryNames.put((Long) row[1], (String) row[2]);
+                expenseByCategory.merge((Long) row[1], converted, BigDecimal::add);
+            }
+            addMonthlyAmount(monthlyMap, YearMonth.from(date), type, converted);
+        }
+
+        List<MonthlyIncomeExpenseDto> monthlyData = monthlyMap.entrySet().stream()
+                .map(entry -> {
+                    BigDecimal income = roundAmount(entry.getValue().getOrDefault(CategoryType.INCOME, BigDecimal.ZERO));
+                    BigDecimal expense = roundAmount(entry.getValue().getOrDefault(CategoryType.EXPENSE, BigDecimal.ZERO));
+                    return MonthlyIncomeExpenseDto.builder()
+                            .month(entry.getKey().toString())
+                            .income(income)
+                            .expense(expense)
+                            .netProfit(income.subtract(expense))
+                            .build();
+                })
+                .collect(Collectors.toList());
+
+        BigDecimal expenseTotal = roundAmount(totalExpense);
+        List<ExpenseDistributionDto> expenseDistribution = expenseByCategory.entrySet().stream()
+                .sorted(Map.Entry.<Long, BigDecimal>comparingByValue().reversed())
+                .map(entry -> {
+                    BigDecimal amount = roundAmount(entry.getValue());
+                    Double percentage = 0.0;
+                    if (expenseTotal.compareTo(BigDecimal.ZERO) > 0) {
+                        percentage = amount.divide(expenseTotal, 4, RoundingMode.HALF_UP)
+                                .multiply(BigDecimal.valueOf(100))
+                                .doubleValue();
+                    }
+                    return ExpenseDistributionDto.builder()
+                            .categoryId(entry.getKey())
+                            .categoryName(categoryNames.get(entry.getKey()))
+                            .totalAmount(amount)
+                            .percentage(percentage)
+                            .build();
+                })
+                .collect(Collectors.toList());
+
+        DashboardDto dashboard = buildDashboard(roundAmount(totalIncome), expenseTotal, monthlyData,
+                expenseDistribution, getUnpaidInvoices(companyId));
+        dashboard.setReportingCurrency(reportingCurrency);
+        return dashboard;
+    }
+
+    // In-memory matrix first; dates before its window come from the history store
+    private BigDecimal findReportingRate(CurrencyDay group, String reportingCurrency) {
+        if (group.currency().equals(reportingCurrency)) {
+            return BigDecimal.ONE;
+        }
+        double rate = exchangeRateCache.findRawRate(group.currency(), reportingCurrency, group.date());
+        if (Double.isNaN(rate)) {
+            rate = exchangeRateHistoryStore.findRates(group.currency(), reportingCurrency, group.date(), group.date())[0];
+        }
+        if (Double.isNaN(rate)) {
+            throw new BusinessException("No exchange rate from " + group.currency() + " to " + reportingCurrency
+                    + " on " + group.date());
+        }
+        return BigDecimal.valueOf(rate);
+    }
+
+    private static BigDecimal roundAmount(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private record CurrencyDay(String currency, LocalDate date) {
+    }
+
+    @Transactional(readOnly = true)
+    public BigDecimal getTotal(Long companyId, CategoryType type, LocalDate startDate, LocalDate endDate) {
+        return incomeExpenseRepository.sumByCompanyIdAndCategoryTypeAndDateBetween(
+                companyId, type, startDate, endDate);
+    }
+
+    static DashboardDto buildDashboard(BigDecimal totalIncome,
+                                       BigDecimal totalExpense,
+                                       List<MonthlyIncomeExpenseDto> monthlyData,
+                                       List<ExpenseDistributionDto> expenseDistribution,
+                                       List<UnpaidInvoiceSummaryDto> unpaidInvoices) {
+        BigDecimal netProfit = totalIncome.subtract(totalExpense);
+
         Integer totalUnpaidInvoices = unpaidInvoices.size();
         BigDecimal totalUnpaidAmount = unpaidInvoices.stream()
                 .map(UnpaidInvoiceSummaryDto::getRemainingBalance)
@@ -61,18 +187,31 @@ public class DashboardService {
 
     @Transactional(readOnly = true)
     public List<MonthlyIncomeExpenseDto> getMonthlyIncomeExpense(Long companyId, LocalDate startDate, LocalDate endDate) {
-        List<IncomeExpense> records = incomeExpenseRepository.findByCompanyIdAndDateBetween(
-                companyId, startDate, endDate);
-
         Map<YearMonth, Map<CategoryType, BigDecimal>> monthlyMap = new TreeMap<>();
 
-        for (IncomeExpense record : records) {
-            YearMonth month = YearMonth.from(record.getDate());
-            monthlyMap.putIfAbsent(month, new HashMap<>());
+        // Whole months come from the rollup table; partial months at either end are summed from the ledger
+        YearMonth firstMonth = YearMonth.from(startDate);
+        YearMonth lastMonth = YearMonth.from(endDate);
+        YearMonth firstFullMonth = startDate.getDayOfMonth() == 1 ? firstMonth : firstMonth.plusMonths(1);
+        YearMonth lastFullMonth = endDate.equals(lastMonth.atEndOfMonth()) ? lastMonth : lastMonth.minusMonths(1);
 
-            CategoryType type = record.getCategory().getType();
-            BigDecimal currentAmount = monthlyMap.get(month).getOrDefault(type, BigDecimal.ZERO);
-            monthlyMap.get(month).put(type, currentAmount.add(record.getAmount()));
+        if (!firstFullMonth.isAfter(lastFullMonth)) {
+            List<Object[]> rows = rollupRepository.sumByMonthAndCategoryType(
+                    companyId, firstFullMonth.atDay(1), lastFullMonth.atDay(1));
+            for (Object[] row : rows) {
+                addMonthlyAmount(monthlyMap, YearMonth.from((LocalDate) row[0]), (CategoryType) row[1], (BigDecimal) row[2]);
+            }
+        }
+
+        boolean headCoversLastMonth = false;
+        if (firstMonth.isBefore(firstFullMonth)) {
+            headCoversLastMonth = firstMonth.equals(lastMonth);
+            LocalDate segmentEnd = headCoversLastMonth ? endDate : firstMonth.atEndOfMonth();
+            addPartialMonth(monthlyMap, companyId, firstMonth, startDate, segmentEnd);
+        }
+        if (lastMonth.isAfter(lastFullMonth) && !headCoversLastMonth) {
+            LocalDate segmentStart = lastMonth.equals(firstMonth) ? startDate : lastMonth.atDay(1);
+            addPartialMonth(monthlyMap, companyId, lastMonth, segmentStart, endDate);
         }
 
         return monthlyMap.entrySet().stream()
@@ -93,6 +232,20 @@ public class DashboardService {
                 .collect(Collectors.toList());
     }
 
+    private void addPartialMonth(Map<YearMonth, Map<CategoryType, BigDecimal>> monthlyMap, Long companyId,
+                                 YearMonth month, LocalDate from, LocalDate to) {
+        List<Object[]> rows = incomeExpenseRepository.sumByCategoryTypeAndDateBetween(companyId, from, to);
+        for (Object[] row : rows) {
+            addMonthlyAmount(monthlyMap, month, (CategoryType) row[0], (BigDecimal) row[1]);
+        }
+    }
+
+    private void addMonthlyAmount(Map<YearMonth, Map<CategoryType, BigDecimal>> monthlyMap,
+                                  YearMonth month, CategoryType type, BigDecimal amount) {
+        monthlyMap.computeIfAbsent(month, m -> new HashMap<>())
+                .merge(type, amount != null ? amount : BigDecimal.ZERO, BigDecimal::add);
+    }
+
     @Transactional(readOnly = true)
     public List<ExpenseDistributionDto> getExpenseDistribution(Long companyId, LocalDate startDate, LocalDate endDate) {
         List<Object[]> results = incomeExpenseRepository.getExpenseDistribution(companyId, startDate, endDate);
@@ -126,32 +279,34 @@ public class DashboardService {
 
     @Transactional(readOnly = true)
     public List<UnpaidInvoiceSummaryDto> getUnpaidInvoices(Long companyId) {
-        List<Invoice> unpaidInvoices = invoiceRepository.findByCompanyIdAndStatus(companyId, InvoiceStatus.UNPAID);
         LocalDate today = LocalDate.now();
 
-        return unpaidInvoices.stream()
-                .map(invoice -> {
-                    BigDecimal totalPaid = paymentRepository.getTotalPaymentsByInvoiceId(invoice.getId());
-                    BigDecimal remainingBalance = invoice.getTotalAmount().subtract(totalPaid);
+        // One statement for all rows: payment sums and counterparty names are joined in SQL
+        try (Stream<UnpaidInvoiceProjection> rows =
+                     invoiceRepository.streamUnpaidSummaries(companyId, InvoiceStatus.UNPAID)) {
+            return rows
+                    .map(row -> {
+                        BigDecimal totalPaid = row.getAmountPaid() != null ? row.getAmountPaid() : BigDecimal.ZERO;
+                        BigDecimal remainingBalance = row.getTotalAmount().subtract(totalPaid);
 
-                    Integer daysOverdue = null;
-                    if (invoice.getDueDate() != null && invoice.getDueDate().isBefore(today)) {
-                        daysOverdue = (int) ChronoUnit.DAYS.between(invoice.getDueDate(), today);
-                    }
+                        Integer daysOverdue = null;
+                        if (row.getDueDate() != null && row.getDueDate().isBefore(today)) {
+                            daysOverdue = (int) ChronoUnit.DAYS.between(row.getDueDate(), today);
+                        }
 
-                    return UnpaidInvoiceSummaryDto.builder()
-                            .invoiceId(invoice.getId())
-                            .invoiceNumber(invoice.getInvoiceNumber())
-                            .customerSupplierName(invoice.getCustomerSupplier().getName())
-                            .invoiceDate(invoice.getInvoiceDate())
-                            .dueDate(invoice.getDueDate())
-                            .totalAmount(invoice.getTotalAmount())
-                            .amountPaid(totalPaid)
-                            .remainingBalance(remainingBalance)
-                            .daysOverdue(daysOverdue)
-                            .build();
-                })
-                .sorted(Comparator.comparing(UnpaidInvoiceSummaryDto::getDueDate, Comparator.nullsLast(Comparator.naturalOrder())))
-                .collect(Collectors.toList());
+                        return UnpaidInvoiceSummaryDto.builder()
+                                .invoiceId(row.getInvoiceId())
+                                .invoiceNumber(row.getInvoiceNumber())
+                                .customerSupplierName(row.getCustomerSupplierName())
+                                .invoiceDate(row.getInvoiceDate())
+                                .dueDate(row.getDueDate())
+                                .totalAmount(row.getTotalAmount())
+                                .amountPaid(totalPaid)
+                                .remainingBalance(remainingBalance)
+                                .daysOverdue(daysOverdue)
+                                .build();
+                    })
+                    .collect(Collectors.toList());
+        }
     }
 }
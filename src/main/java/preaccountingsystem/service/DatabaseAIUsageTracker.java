@@ -0,0 +1,101 @@
+package preaccountingsystem.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import preaccountingsystem.entity.AIUsageCounter;
+import preaccountingsystem.repository.AIAuditLogRepository;
+import preaccountingsystem.repository.AIUsageCounterRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Usage counters in the shared ai_usage_counters table, for deployments with several nodes.
+ *
+ * A query reserves its unit by locking its day and month rows, checking them against the
+ * limits and incrementing both in one transaction, and a usage read gets those two rows by key. Every node seeds the table from
+ * ai_audit_logs at startup without lowering counters raised by the others.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "ai.usage.store", havingValue = "database")
+// Spilled audit entries are replayed before the counters are seeded from the table
+@DependsOn("AIAuditSink")
+public class DatabaseAIUsageTracker implements AIUsageTracker {
+
+    private final AIUsageCounterRepository counterRepository;
+    private final AIAuditLogRepository aiAuditLogRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @PostConstruct
+    void seed() {
+        LocalDate today = LocalDate.now();
+        LocalDate month = today.withDayOfMonth(1);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            // Rows of past months are no longer read
+            counterRepository.deleteByPeriodStartBefore(month);
+
+            List<Object[]> rows = aiAuditLogRepository.countChargedPerCompany(
+                    month.atStartOfDay(), today.atStartOfDay());
+            for (Object[] row : rows) {
+                Long companyId = (Long) row[0];
+                counterRepository.raiseTo(companyId, "MONTH", month, ((Number) row[1]).longValue());
+                counterRepository.raiseTo(companyId, "DAY", today, row[2] != null ? ((Number) row[2]).longValue() : 0);
+            }
+            log.info("Seeded shared AI usage counters for {} companies", rows.size());
+        });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public AIUsage getUsage(Long companyId) {
+        LocalDate today = LocalDate.now();
+        long daily = 0;
+        long monthly = 0;
+        for (Object[] row : counterRepository.findCurrent(companyId, today, today.withDayOfMonth(1))) {
+            if ("DAY".equals(row[0])) {
+                daily = (Long) row[1];
+            } else {
+                monthly = (Long) row[1];
+            }
+        }
+        return new AIUsage(daily, monthly);
+    }
+
+    @Override
+    @Transactional
+    public boolean tryReserve(Long companyId, long dailyLimit, long monthlyLimit) {
+        LocalDate today = LocalDate.now();
+        LocalDate month = today.withDayOfMonth(1);
+        // Create missing rows, then lock both so concurrent reservations on any node queue here
+        counterRepository.raiseTo(companyId, "DAY", today, 0);
+        counterRepository.raiseTo(companyId, "MONTH", month, 0);
+        List<AIUsageCounter> counters = counterRepository.lockCurrent(companyId, today, month);
+        if (counters.stream().anyMatch(counter -> counter.getQueryCount()
+                >= ("DAY".equals(counter.getPeriodType()) ? dailyLimit : monthlyLimit))) {
+            return false;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (AIUsageCounter counter : counters) {
+            counter.setQueryCount(counter.getQueryCount() + 1);
+            counter.setUpdatedAt(now);
+        }
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public void release(Long companyId) {
+        LocalDate today = LocalDate.now();
+        counterRepository.decrement(companyId, today, today.withDayOfMonth(1));
+    }
+}
@@ -4,10 +4,13 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.Map;
@@ -18,8 +21,9 @@ import java.util.Map;
  * Free tier: 1500 requests/month
  */
 @Service
+@ConditionalOnProperty(name = "currency.provider", havingValue = "http", matchIfMissing = true)
 @Slf4j
-public class ExchangeRateApiService {
+public class ExchangeRateApiService implements ExchangeRateProvider {
 
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
@@ -30,16 +34,27 @@ public class ExchangeRateApiService {
     @Value("${currency.api.base-url:https://v6.exchangerate-api.com/v6}")
     private String baseUrl;
 
-    public ExchangeRateApiService() {
-        this.restTemplate = new RestTemplate();
+    public ExchangeRateApiService(RestTemplateBuilder restTemplateBuilder,
+                                  @Value("${currency.api.connect-timeout-ms:3000}") long connectTimeoutMs,
+                                  @Value("${currency.api.read-timeout-ms:10000}") long readTimeoutMs) {
+        this.restTemplate = restTemplateBuilder
+                .setConnectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .setReadTimeout(Duration.ofMillis(readTimeoutMs))
+                .build();
         this.objectMapper = new ObjectMapper();
     }
 
+    @Override
+    public String sourceName() {
+        return "ExchangeRate-API";
+    }
+
     /**
      * Fetch latest exchange rates for a base currency
      * @param baseCurrency ISO 4217 currency code (e.g., USD, EUR, TRY)
      * @return Map of currency codes to exchange rates
      */
+    @Override
     public Map<String, BigDecimal> fetchLatestRates(String baseCurrency) {
         try {
             String url;
@@ -0,0 +1,70 @@
+package preaccountingsystem.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import preaccountingsystem.repository.ExchangeRateRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link ExchangeRateMatrix}. Lookups read the published snapshot without
+ * locking or I/O; a reload builds a new matrix from the database and swaps it in atomically.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExchangeRateCache {
+
+    private final ExchangeRateRepository exchangeRateRepository;
+
+    // How far back the matrix reaches; older dates fall back to the database
+    @Value("${currency.matrix.history-days:400}")
+    private int historyDays;
+
+    private final AtomicReference<ExchangeRateMatrix> matrix = new AtomicReference<>(ExchangeRateMatrix.EMPTY);
+
+    /**
+     * Rate to convert one unit of {@code from} into {@code to} on the date, using the latest
+     * known rates on or before it and triangulating through USD when needed.
+     */
+    public Optional<BigDecimal> findRate(String from, String to, LocalDate date) {
+        return matrix.get().rate(from, to, date);
+    }
+
+    /**
+     * Primitive variant for bulk conversions; NaN when the rate is not known.
+     */
+    public double findRawRate(String from, String to, LocalDate date) {
+        return matrix.get().rawRate(from, to, date);
+    }
+
+    public void reload() {
+        long start = System.nanoTime();
+        LocalDate today = LocalDate.now();
+
+        List<ExchangeRateMatrix.StoredRate> rates = new ArrayList<>();
+        for (Object[] row : exchangeRateRepository.findRateValuesSince(today.minusDays(historyDays))) {
+            rates.add(new ExchangeRateMatrix.StoredRate(
+                    (String) row[0], (String) row[1], (LocalDate) row[2], ((BigDecimal) row[3]).doubleValue()));
+        }
+
+        ExchangeRateMatrix reloaded = ExchangeRateMatrix.build(rates, today);
+        matrix.set(reloaded);
+        log.info("Exchange rate matrix reloaded: {} currencies x {} days from {} rates in {} ms",
+                reloaded.currencyCount(), reloaded.dayCount(), rates.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Reloads once the current transaction has committed, so the new matrix sees its rates.
+     */
+    public void reloadAfterCommit() {
+        AfterCommit.run(this::reload);
+    }
+}
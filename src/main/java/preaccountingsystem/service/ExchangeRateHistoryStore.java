@@ -0,0 +1,419 @@
+package preaccountingsystem.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import preaccountingsystem.exception.BusinessException;
+import preaccountingsystem.repository.CurrencyRepository;
+import preaccountingsystem.repository.ExchangeRateRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Time-series store of exchange rate history, one file per currency pair.
+ *
+ * A pair file is a sorted array of fixed-size records (int epochDay, long rate scaled by
+ * 10^10), memory-mapped read-only on first use. Missing files are backfilled from the
+ * exchange_rates table; after new rates are stored only the tail of a pair is re-read. Files
+ * are replaced atomically and never modified in place, so readers of an older mapping are
+ * not affected. Range queries walk the records once and return one value per day, carrying
+ * the last known rate forward. Each day is resolved on its own: the stored pair if it has a rate
+ * by then, else the inverse pair, else the cross rate through USD, so the days before a pair's
+ * own history starts are still covered by the others.
+ * Only codes from the currencies table are accepted, and a pair without any rates gets no
+ * file and no cache entry, so lookups of arbitrary pairs cannot grow disk or memory use.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExchangeRateHistoryStore {
+
+    private static final int RECORD_BYTES = Integer.BYTES + Long.BYTES;
+    private static final int RATE_SCALE = 10;
+    private static final double RATE_FACTOR = 1e10;
+    private static final Pattern CURRENCY_CODE = Pattern.compile("[A-Z]{3}");
+
+    // Earliest rate date read when a pair is backfilled
+    private static final LocalDate HISTORY_START = LocalDate.of(1970, 1, 1);
+
+    private final ExchangeRateRepository exchangeRateRepository;
+    private final CurrencyRepository currencyRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${currency.history.dir:cache/exchange-rates}")
+    private String historyDir;
+
+    @Value("${currency.history.backfill-on-startup:false}")
+    private boolean backfillOnStartup;
+
+    private Path directory;
+
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+    private final Map<String, Object> loadLocks = new ConcurrentHashMap<>();
+    // Codes found in the currencies table; unknown ones are never remembered
+    private final Set<String> knownCodes = ConcurrentHashMap.newKeySet();
+
+    // Bumped when new rates are stored; series mapped under an older generation re-read their tail
+    private final AtomicLong generation = new AtomicLong();
+
+    @PostConstruct
+    void init() throws IOException {
+        directory = Paths.get(historyDir);
+        Files.createDirectories(directory);
+        // Partial writes from an interrupted run
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(directory, "*.tmp")) {
+            for (Path leftover : leftovers) {
+                Files.deleteIfExists(leftover);
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void backfillIfConfigured() {
+        if (backfillOnStartup) {
+            backfill();
+        }
+    }
+
+    /**
+     * Rate to convert one unit of {@code from} into {@code to} for every day from start to end
+     * inclusive, using the latest rate on or before each day. NaN for days before the first known rate.
+     */
+    public double[] findRates(String from, String to, LocalDate start, LocalDate end) {
+        checkCurrencyCode(from);
+        checkCurrencyCode(to);
+        checkKnownCurrency(from);
+        checkKnownCurrency(to);
+        int days = (int) (end.toEpochDay() - start.toEpochDay() + 1);
+        double[] rates = new double[Math.max(days, 0)];
+
+        if (from.equals(to)) {
+            Arrays.fill(rates, 1.0);
+            return rates;
+        }
+
+        Arrays.fill(rates, Double.NaN);
+        if (fillGaps(rates, series(from, to), start.toEpochDay(), false)
+                || fillGaps(rates, series(to, from), start.toEpochDay(), true)) {
+            return rates;
+        }
+
+        // Days neither direction covers: cross rate through USD
+        double[] fromPerPivot = perPivot(from, start, rates.length);
+        double[] toPerPivot = perPivot(to, start, rates.length);
+        for (int day = 0; day < rates.length; day++) {
+            if (Double.isNaN(rates[day])) {
+                rates[day] = toPerPivot[day] / fromPerPivot[day];
+            }
+        }
+        return rates;
+    }
+
+    /**
+     * Marks every pair as possibly outdated; each one re-reads its tail from the database on next use.
+     */
+    public void markStale() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Rewrites every pair file from the exchange_rates table in one pass and returns the number of pairs.
+     */
+    public int backfill() {
+        long start = System.nanoTime();
+        long currentGeneration = generation.get();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+
+        Integer pairs = transaction.execute(status -> {
+            int written = 0;
+            try (Stream<Object[]> rows = exchangeRateRepository.streamAllRateValues()) {
+                Iterator<Object[]> iterator = rows.iterator();
+                String currentKey = null;
+                RecordBuffer buffer = new RecordBuffer();
+                while (iterator.hasNext()) {
+                    Object[] row = iterator.next();
+                    String key = key((String) row[0], (String) row[1]);
+                    if (!key.equals(currentKey)) {
+                        if (currentKey != null) {
+                            replace(currentKey, buffer, currentGeneration);
+                            written++;
+                        }
+                        currentKey = key;
+                        buffer = new RecordBuffer();
+                    }
+                    buffer.add((LocalDate) row[2], (BigDecimal) row[3]);
+                }
+                if (currentKey != null) {
+                    replace(currentKey, buffer, currentGeneration);
+                    written++;
+                }
+            }
+            return written;
+        });
+
+        log.info("Exchange rate history backfilled: {} pairs in {} ms", pairs, (System.nanoTime() - start) / 1_000_000);
+        return pairs;
+    }
+
+    private double[] perPivot(String currency, LocalDate start, int days) {
+        double[] rates = new double[days];
+        if (ExchangeRateMatrix.PIVOT.equals(currency)) {
+            Arrays.fill(rates, 1.0);
+            return rates;
+        }
+        Arrays.fill(rates, Double.NaN);
+        if (!fillGaps(rates, series(ExchangeRateMatrix.PIVOT, currency), start.toEpochDay(), false)) {
+            fillGaps(rates, series(currency, ExchangeRateMatrix.PIVOT), start.toEpochDay(), true);
+        }
+        return rates;
+    }
+
+    // Fills the days still NaN from the series; true when no NaN is left
+    private static boolean fillGaps(double[] rates, Series source, long startDay, boolean inverted) {
+        if (source.count() == 0) {
+            return false;
+        }
+        double[] values = new double[rates.length];
+        source.fill(values, startDay, inverted);
+        boolean complete = true;
+        for (int day = 0; day < rates.length; day++) {
+            if (Double.isNaN(rates[day])) {
+                rates[day] = values[day];
+                complete &= !Double.isNaN(values[day]);
+            }
+        }
+        return complete;
+    }
+
+    private Series series(String from, String to) {
+        String key = key(from, to);
+        long currentGeneration = generation.get();
+        Series current = series.get(key);
+        if (current != null && current.generation() == currentGeneration) {
+            return current;
+        }
+
+        synchronized (loadLocks.computeIfAbsent(key, k -> new Object())) {
+            current = series.get(key);
+            if (current != null && current.generation() == currentGeneration) {
+                return current;
+            }
+            if (current == null) {
+                current = map(key, -1);
+            }
+            Series synced = syncTail(from, to, key, current, currentGeneration);
+            // A pair without any rates is neither written nor kept; it is looked up again next time
+            if (synced.count() > 0 || current != null) {
+                series.put(key, synced);
+            }
+            return synced;
+        }
+    }
+
+    // Re-reads rates from the last stored day on (that day can be updated in place) and appends them
+    private Series syncTail(String from, String to, String key, Series current, long currentGeneration) {
+        int count = current != null ? current.count() : 0;
+        LocalDate since = count > 0 ? LocalDate.ofEpochDay(current.day(count - 1)) : HISTORY_START;
+
+        RecordBuffer tail = new RecordBuffer();
+        for (Object[] row : exchangeRateRepository.findPairRateValuesSince(from, to, since)) {
+            tail.add((LocalDate) row[0], (BigDecimal) row[1]);
+        }
+
+        boolean unchanged = current != null && (tail.size() == 0 || (tail.size() == 1 && count > 0
+                && tail.day(0) == current.day(count - 1) && tail.rate(0) == current.rate(count - 1)));
+        if (unchanged) {
+            return new Series(current.records(), count, currentGeneration);
+        }
+        if (current == null && tail.size() == 0) {
+            return new Series(ByteBuffer.allocate(0), 0, currentGeneration);
+        }
+
+        RecordBuffer merged = new RecordBuffer();
+        long sinceDay = since.toEpochDay();
+        for (int i = 0; i < count && current.day(i) < sinceDay; i++) {
+            merged.add(current.day(i), current.rate(i));
+        }
+        for (int i = 0; i < tail.size(); i++) {
+            merged.add(tail.day(i), tail.rate(i));
+        }
+        return replace(key, merged, currentGeneration);
+    }
+
+    // Writes a new file next to the old one and swaps it in; existing mappings keep the old file
+    private Series replace(String key, RecordBuffer records, long currentGeneration) {
+        Path target = directory.resolve(key + ".rates");
+        try {
+            Path temp = Files.createTempFile(directory, key + "-", ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    ByteBuffer bytes = records.toByteBuffer();
+                    while (bytes.hasRemaining()) {
+                        channel.write(bytes);
+                    }
+                }
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write exchange rate history " + target, e);
+        }
+
+        Series mapped = map(key, currentGeneration);
+        series.put(key, mapped);
+        return mapped;
+    }
+
+    private Series map(String key, long seriesGeneration) {
+        Path file = directory.resolve(key + ".rates");
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int count = (int) (channel.size() / RECORD_BYTES);
+            // The mapping stays valid after the channel is closed
+            ByteBuffer records = count == 0
+                    ? ByteBuffer.allocate(0)
+                    : channel.map(FileChannel.MapMode.READ_ONLY, 0, (long) count * RECORD_BYTES);
+            return new Series(records, count, seriesGeneration);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map exchange rate history " + file, e);
+        }
+    }
+
+    private static String key(String from, String to) {
+        return from + "-" + to;
+    }
+
+    // Codes become file names, so only plain ISO codes are accepted
+    private static void checkCurrencyCode(String code) {
+        if (code == null || !CURRENCY_CODE.matcher(code).matches()) {
+            throw new BusinessException("Invalid currency code: " + code);
+        }
+    }
+
+    private void checkKnownCurrency(String code) {
+        if (!knownCodes.contains(code)) {
+            if (!currencyRepository.existsByCode(code)) {
+                throw new BusinessException("Unknown currency code: " + code);
+            }
+            knownCodes.add(code);
+        }
+    }
+
+    private static long scale(BigDecimal rate) {
+        return rate.setScale(RATE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Read-only view of one pair file. Absolute reads only, so it is safe to share between threads.
+     */
+    private record Series(ByteBuffer records, int count, long generation) {
+
+        int day(int index) {
+            return records.getInt(index * RECORD_BYTES);
+        }
+
+        long rate(int index) {
+            return records.getLong(index * RECORD_BYTES + Integer.BYTES);
+        }
+
+        // Fills one value per day starting at startDay, carrying the last rate forward
+        void fill(double[] out, long startDay, boolean inverted) {
+            int next = firstIndexAfter(startDay);
+            double current = next > 0 ? rate(next - 1) / RATE_FACTOR : Double.NaN;
+            for (int offset = 0; offset < out.length; offset++) {
+                long day = startDay + offset;
+                while (next < count && day(next) <= day) {
+                    current = rate(next++) / RATE_FACTOR;
+                }
+                out[offset] = inverted ? 1.0 / current : current;
+            }
+        }
+
+        // Binary search for the first record after the given day
+        private int firstIndexAfter(long day) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (day(middle) <= day) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Growable list of records being prepared for a file.
+     */
+    private static final class RecordBuffer {
+        private int[] days = new int[64];
+        private long[] rates = new long[64];
+        private int size;
+
+        void add(LocalDate date, BigDecimal rate) {
+            try {
+                add((int) date.toEpochDay(), scale(rate));
+            } catch (ArithmeticException e) {
+                log.warn("Skipping exchange rate {} on {}: out of range for the history store", rate, date);
+            }
+        }
+
+        void add(int day, long rate) {
+            if (size == days.length) {
+                days = Arrays.copyOf(days, size * 2);
+                rates = Arrays.copyOf(rates, size * 2);
+            }
+            days[size] = day;
+            rates[size] = rate;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int day(int index) {
+            return days[index];
+        }
+
+        long rate(int index) {
+            return rates[index];
+        }
+
+        ByteBuffer toByteBuffer() {
+            ByteBuffer bytes = ByteBuffer.allocate(size * RECORD_BYTES);
+            for (int i = 0; i < size; i++) {
+                bytes.putInt(days[i]).putLong(rates[i]);
+            }
+            return bytes.flip();
+        }
+    }
+}
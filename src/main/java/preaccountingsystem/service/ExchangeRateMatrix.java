@@ -0,0 +1,157 @@
+package preaccountingsystem.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Immutable snapshot of exchange rates, indexed by (day, currency ordinal).
+ *
+ * Every currency is stored as units per one unit of the pivot currency (USD), so any pair
+ * is a division of two cells: rate(from, to) = value[to] / value[from]. Days without new
+ * rates carry the previous day forward (sharing the same row array), which gives the same
+ * answer as "latest rate on or before the date". Cells are NaN until the first known rate.
+ */
+final class ExchangeRateMatrix {
+
+    static final String PIVOT = "USD";
+
+    // Same scale as exchange_rates.rate
+    private static final int RATE_SCALE = 10;
+
+    static final ExchangeRateMatrix EMPTY = new ExchangeRateMatrix(Map.of(PIVOT, 0), 0, new double[0][]);
+
+    private final Map<String, Integer> ordinals;
+    private final long firstEpochDay;
+    private final double[][] rows;
+
+    private ExchangeRateMatrix(Map<String, Integer> ordinals, long firstEpochDay, double[][] rows) {
+        this.ordinals = ordinals;
+        this.firstEpochDay = firstEpochDay;
+        this.rows = rows;
+    }
+
+    /**
+     * Rate to convert one unit of {@code from} into {@code to} on the given date, if both are known by then.
+     */
+    Optional<BigDecimal> rate(String from, String to, LocalDate date) {
+        double value = rawRate(from, to, date);
+        return Double.isNaN(value)
+                ? Optional.empty()
+                : Optional.of(BigDecimal.valueOf(value).setScale(RATE_SCALE, RoundingMode.HALF_UP));
+    }
+
+    /**
+     * Same as {@link #rate} as a primitive; NaN when unknown.
+     */
+    double rawRate(String from, String to, LocalDate date) {
+        Integer fromOrdinal = ordinals.get(from);
+        Integer toOrdinal = ordinals.get(to);
+        if (fromOrdinal == null || toOrdinal == null || rows.length == 0) {
+            return Double.NaN;
+        }
+
+        long offset = date.toEpochDay() - firstEpochDay;
+        if (offset < 0) {
+            return Double.NaN;
+        }
+        double[] row = rows[(int) Math.min(offset, rows.length - 1)];
+        return row[toOrdinal] / row[fromOrdinal];
+    }
+
+    LocalDate firstDate() {
+        return rows.length == 0 ? null : LocalDate.ofEpochDay(firstEpochDay);
+    }
+
+    int currencyCount() {
+        return ordinals.size();
+    }
+
+    int dayCount() {
+        return rows.length;
+    }
+
+    /**
+     * Builds a matrix from stored rates. Rates are normalized to the pivot: PIVOT→X rows directly,
+     * X→PIVOT rows by inversion, and B→X rows for other bases through B's pivot value of the same day.
+     */
+    static ExchangeRateMatrix build(List<StoredRate> rates, LocalDate lastDate) {
+        if (rates.isEmpty()) {
+            return EMPTY;
+        }
+
+        Map<String, Integer> ordinals = new HashMap<>();
+        ordinals.put(PIVOT, 0);
+        LocalDate firstDate = rates.get(0).date();
+        for (StoredRate rate : rates) {
+            ordinals.putIfAbsent(rate.from(), ordinals.size());
+            ordinals.putIfAbsent(rate.to(), ordinals.size());
+            if (rate.date().isBefore(firstDate)) {
+                firstDate = rate.date();
+            }
+        }
+
+        Map<LocalDate, List<StoredRate>> byDate = new TreeMap<>();
+        for (StoredRate rate : rates) {
+            byDate.computeIfAbsent(rate.date(), d -> new ArrayList<>()).add(rate);
+        }
+
+        long firstEpochDay = firstDate.toEpochDay();
+        LocalDate end = lastDate.isAfter(firstDate) ? lastDate : firstDate;
+        for (LocalDate date : byDate.keySet()) {
+            if (date.isAfter(end)) {
+                end = date;
+            }
+        }
+        int days = (int) (end.toEpochDay() - firstEpochDay + 1);
+
+        double[][] rows = new double[days][];
+        double[] previous = new double[ordinals.size()];
+        Arrays.fill(previous, Double.NaN);
+        previous[0] = 1.0;
+
+        for (int day = 0; day < days; day++) {
+            List<StoredRate> updates = byDate.get(LocalDate.ofEpochDay(firstEpochDay + day));
+            if (updates == null) {
+                rows[day] = previous;
+                continue;
+            }
+
+            double[] row = previous.clone();
+            // Pivot-based rows win; inverted and cross rows only fill currencies the pivot did not quote that day
+            boolean[] quoted = new boolean[row.length];
+            quoted[0] = true;
+            for (StoredRate rate : updates) {
+                if (PIVOT.equals(rate.from())) {
+                    int target = ordinals.get(rate.to());
+                    row[target] = rate.rate();
+                    quoted[target] = true;
+                }
+            }
+            for (StoredRate rate : updates) {
+                int source = ordinals.get(rate.from());
+                if (PIVOT.equals(rate.to()) && !quoted[source] && rate.rate() != 0) {
+                    row[source] = 1.0 / rate.rate();
+                }
+            }
+            for (StoredRate rate : updates) {
+                if (!PIVOT.equals(rate.from()) && !PIVOT.equals(rate.to())) {
+                    double base = row[ordinals.get(rate.from())];
+                    int target = ordinals.get(rate.to());
+                    if (!Double.isNaN(base) && !quoted[target]) {
+                        row[target] = base * rate.rate();
+                    }
+                }
+            }
+
+            rows[day] = row;
+            previous = row;
+        }
+
+        return new ExchangeRateMatrix(Map.copyOf(ordinals), firstEpochDay, rows);
+    }
+
+    record StoredRate(String from, String to, LocalDate date, double rate) {
+    }
+}
@@ -0,0 +1,21 @@
+package preaccountingsystem.service;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Source of latest exchange rates. The implementation is chosen with {@code currency.provider}:
+ * {@code http} (default) calls ExchangeRate-API, {@code stub} serves fixed local rates.
+ */
+public interface ExchangeRateProvider {
+
+    /**
+     * Latest rates from the base currency, keyed by target currency code. Empty when the provider could not answer.
+     */
+    Map<String, BigDecimal> fetchLatestRates(String baseCurrency);
+
+    /**
+     * Value stored in exchange_rates.source for rates from this provider.
+     */
+    String sourceName();
+}
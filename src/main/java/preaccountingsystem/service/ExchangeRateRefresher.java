@@ -0,0 +1,220 @@
+package preaccountingsystem.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import preaccountingsystem.dto.ExchangeRateUpdateResultDto;
+import preaccountingsystem.entity.Currency;
+import preaccountingsystem.repository.CurrencyRepository;
+import preaccountingsystem.repository.ExchangeRateBatchRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Keeps stored exchange rates fresh in the background.
+ *
+ * Every interval only the pivot base (USD) is fetched, at a random offset within the jitter
+ * window, and the rate matrix is reloaded once; rates between other currencies are derived
+ * from it by triangulation. That is one provider request per interval, well inside the
+ * 1500 requests/month of the free tier. A failed fetch is retried with exponential backoff a
+ * few times. Readers are never blocked on the provider: they get the last known rates from
+ * {@link ExchangeRateCache} and a miss only asks for a refresh here.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExchangeRateRefresher {
+
+    private final ExchangeRateProvider exchangeRateProvider;
+    private final ExchangeRateBatchRepository exchangeRateBatchRepository;
+    private final ExchangeRateCache exchangeRateCache;
+    private final ExchangeRateHistoryStore exchangeRateHistoryStore;
+    private final CurrencyRepository currencyRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${currency.refresh.enabled:true}")
+    private boolean enabled;
+
+    @Value("${currency.refresh.interval-minutes:60}")
+    private long intervalMinutes;
+
+    @Value("${currency.refresh.jitter-seconds:120}")
+    private long jitterSeconds;
+
+    @Value("${currency.refresh.initial-backoff-seconds:30}")
+    private long initialBackoffSeconds;
+
+    @Value("${currency.refresh.max-backoff-minutes:30}")
+    private long maxBackoffMinutes;
+
+    // Retries after a failure; the next interval plans the base again anyway
+    @Value("${currency.refresh.max-retries:5}")
+    private int maxRetries;
+
+    private final ConcurrentMap<String, BaseState> bases = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    void init() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("exchange-rate-refresh-");
+        threadFactory.setDaemon(true);
+        scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+
+    // Starts after the initializers so the default currencies exist
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(this::planPivot, 0, intervalMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Fetches and stores the latest rates of one base now, then reloads the rate matrix.
+     */
+    public ExchangeRateUpdateResultDto refresh(String baseCurrency) {
+        ExchangeRateUpdateResultDto result = fetchAndStore(baseCurrency);
+        if (result.getWritten() > 0) {
+            exchangeRateCache.reload();
+        }
+        return result;
+    }
+
+    /**
+     * Refreshes every active base now with a single matrix reload at the end.
+     */
+    public List<ExchangeRateUpdateResultDto> refreshAll() {
+        List<ExchangeRateUpdateResultDto> results = new ArrayList<>();
+        for (Currency currency : currencyRepository.findByIsActiveTrue()) {
+            results.add(fetchAndStore(currency.getCode()));
+        }
+        if (results.stream().anyMatch(result -> result.getWritten() > 0)) {
+            exchangeRateCache.reload();
+        }
+        return results;
+    }
+
+    /**
+     * Asks for a background refresh of the pivot rates, e.g. after a lookup found no rate. Does
+     * nothing when one is already pending or was attempted within the initial backoff.
+     */
+    public void requestRefresh() {
+        if (!enabled) {
+            return;
+        }
+        BaseState state = bases.computeIfAbsent(ExchangeRateMatrix.PIVOT, code -> new BaseState());
+        long sinceLastAttempt = System.currentTimeMillis() - state.lastAttemptMillis;
+        if (sinceLastAttempt >= TimeUnit.SECONDS.toMillis(initialBackoffSeconds)) {
+            schedule(ExchangeRateMatrix.PIVOT, 0);
+        }
+    }
+
+    private void planPivot() {
+        long jitterMillis = jitterSeconds > 0 ? ThreadLocalRandom.current().nextLong(jitterSeconds * 1000) : 0;
+        schedule(ExchangeRateMatrix.PIVOT, jitterMillis);
+    }
+
+    private void schedule(String baseCurrency, long delayMillis) {
+        BaseState state = bases.computeIfAbsent(baseCurrency, code -> new BaseState());
+        synchronized (state) {
+            if (state.pending) {
+                return;
+            }
+            state.pending = true;
+        }
+        scheduler.schedule(() -> runScheduled(baseCurrency, state), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void runScheduled(String baseCurrency, BaseState state) {
+        state.lastAttemptMillis = System.currentTimeMillis();
+        boolean succeeded = false;
+        try {
+            succeeded = refresh(baseCurrency).getWritten() > 0;
+        } catch (Exception e) {
+            log.warn("Exchange rate refresh for {} failed: {}", baseCurrency, e.getMessage());
+        }
+
+        int failures;
+        synchronized (state) {
+            state.pending = false;
+            failures = succeeded ? 0 : state.failures + 1;
+            state.failures = failures > maxRetries ? 0 : failures;
+        }
+        if (failures == 0) {
+            return;
+        }
+        if (failures > maxRetries) {
+            log.warn("Giving up on exchange rates for {} until the next refresh interval", baseCurrency);
+            return;
+        }
+
+        long retryMillis = backoffMillis(failures);
+        log.info("Retrying exchange rates for {} in {} s (retry {} of {})", baseCurrency, retryMillis / 1000, failures, maxRetries);
+        schedule(baseCurrency, retryMillis);
+    }
+
+    // Doubles per failure up to the cap, with up to 20% random spread
+    private long backoffMillis(int failures) {
+        long capMillis = TimeUnit.MINUTES.toMillis(maxBackoffMinutes);
+        long backoff = Math.min(capMillis, TimeUnit.SECONDS.toMillis(initialBackoffSeconds) << Math.min(failures - 1, 20));
+        return backoff + ThreadLocalRandom.current().nextLong(backoff / 5 + 1);
+    }
+
+    private ExchangeRateUpdateResultDto fetchAndStore(String baseCurrency) {
+        log.info("Updating exchange rates for base currency: {}", baseCurrency);
+
+        // The provider call runs outside of any transaction; only the write is transactional
+        long fetchStart = System.nanoTime();
+        Map<String, BigDecimal> rates = exchangeRateProvider.fetchLatestRates(baseCurrency);
+        long fetchMillis = (System.nanoTime() - fetchStart) / 1_000_000;
+        LocalDate today = LocalDate.now();
+
+        long persistStart = System.nanoTime();
+        int written = 0;
+        if (!rates.isEmpty()) {
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            written = transaction.execute(status -> exchangeRateBatchRepository.upsertRates(
+                    baseCurrency, today, rates, exchangeRateProvider.sourceName()));
+        }
+        long persistMillis = (System.nanoTime() - persistStart) / 1_000_000;
+        if (written > 0) {
+            exchangeRateHistoryStore.markStale();
+        }
+
+        log.info("Updated {} exchange rates for {} (fetch {} ms, persist {} ms)",
+                written, baseCurrency, fetchMillis, persistMillis);
+        return ExchangeRateUpdateResultDto.builder()
+                .baseCurrency(baseCurrency)
+                .rateDate(today)
+                .fetched(rates.size())
+                .written(written)
+                .fetchMillis(fetchMillis)
+                .persistMillis(persistMillis)
+                .build();
+    }
+
+    private static final class BaseState {
+        // A run or retry of this base is scheduled and has not finished yet
+        private boolean pending;
+        private int failures;
+        private volatile long lastAttemptMillis;
+    }
+}
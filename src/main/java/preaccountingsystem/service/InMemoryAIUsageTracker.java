@@ -0,0 +1,104 @@
+package preaccountingsystem.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+import preaccountingsystem.repository.AIAuditLogRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Usage counters held in memory, seeded once from ai_audit_logs at startup.
+ *
+ * Each company has one immutable day/month window swapped with compare-and-set, so reads and
+ * increments never lock. Correct for a single node; multi-node deployments should use
+ * ai.usage.store=database.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "ai.usage.store", havingValue = "memory", matchIfMissing = true)
+// Spilled audit entries are replayed before the counters are seeded from the table
+@DependsOn("AIAuditSink")
+public class InMemoryAIUsageTracker implements AIUsageTracker {
+
+    private final AIAuditLogRepository aiAuditLogRepository;
+
+    private final Map<Long, AtomicReference<Window>> windows = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void seed() {
+        LocalDate today = LocalDate.now();
+        List<Object[]> rows = aiAuditLogRepository.countChargedPerCompany(
+                today.withDayOfMonth(1).atStartOfDay(), today.atStartOfDay());
+        for (Object[] row : rows) {
+            long monthly = ((Number) row[1]).longValue();
+            long daily = row[2] != null ? ((Number) row[2]).longValue() : 0;
+            windows.put((Long) row[0], new AtomicReference<>(new Window(today, daily, monthly)));
+        }
+        log.info("Seeded AI usage counters for {} companies", rows.size());
+    }
+
+    @Override
+    public AIUsage getUsage(Long companyId) {
+        AtomicReference<Window> window = windows.get(companyId);
+        if (window == null) {
+            return new AIUsage(0, 0);
+        }
+        Window current = window.get().rollTo(LocalDate.now());
+        return new AIUsage(current.daily(), current.monthly());
+    }
+
+    @Override
+    public boolean tryReserve(Long companyId, long dailyLimit, long monthlyLimit) {
+        AtomicReference<Window> window = windows.computeIfAbsent(companyId,
+                id -> new AtomicReference<>(new Window(LocalDate.now(), 0, 0)));
+        Window previous;
+        Window next;
+        do {
+            previous = window.get();
+            Window current = previous.rollTo(LocalDate.now());
+            if (current.daily() >= dailyLimit || current.monthly() >= monthlyLimit) {
+                return false;
+            }
+            next = new Window(current.day(), current.daily() + 1, current.monthly() + 1);
+        } while (!window.compareAndSet(previous, next));
+        return true;
+    }
+
+    @Override
+    public void release(Long companyId) {
+        AtomicReference<Window> window = windows.get(companyId);
+        if (window == null) {
+            return;
+        }
+        Window previous;
+        Window next;
+        do {
+            previous = window.get();
+            Window current = previous.rollTo(LocalDate.now());
+            next = new Window(current.day(), Math.max(0, current.daily() - 1), Math.max(0, current.monthly() - 1));
+        } while (!window.compareAndSet(previous, next));
+    }
+
+    /**
+     * Counts for the given day and its month; counts of a past day or month read as zero.
+     */
+    private record Window(LocalDate day, long daily, long monthly) {
+
+        Window rollTo(LocalDate today) {
+            if (today.equals(day)) {
+                return this;
+            }
+            boolean sameMonth = today.getYear() == day.getYear() && today.getMonth() == day.getMonth();
+            return new Window(today, 0, sameMonth ? monthly : 0);
+        }
+    }
+}
@@ -36,6 +36,7 @@ public class IncomeExpenseService {
     private final IncomeExpenseRepository incomeExpenseRepository;
     private final CategoryRepository categoryRepository;
     private final CustomerRepository customerRepository;
+    private final LedgerRollupService ledgerRollupService;
 
     @Value("${file.upload.dir:uploads/receipts}")
     private String uploadDir;
@@ -58,6 +59,7 @@ public class IncomeExpenseService {
                 .build();
 
         IncomeExpense saved = incomeExpenseRepository.save(incomeExpense);
+        ledgerRollupService.recordAdded(saved);
         return convertToDto(saved);
     }
 
@@ -148,12 +150,16 @@ public class IncomeExpenseService {
         Category category = categoryRepository.findById(request.getCategoryId())
                 .orElseThrow(() -> new ResourceNotFoundException("Category not found with id: " + request.getCategoryId()));
 
+        ledgerRollupService.recordRemoved(companyId, incomeExpense.getDate(), incomeExpense.getCategory().getId(),
+                incomeExpense.getCategory().getType(), incomeExpense.getCurrency(), incomeExpense.getAmount());
+
         incomeExpense.setAmount(request.getAmount());
         incomeExpense.setDate(request.getDate());
         incomeExpense.setDescription(request.getDescription());
         incomeExpense.setCategory(category);
 
         IncomeExpense updated = incomeExpenseRepository.save(incomeExpense);
+        ledgerRollupService.recordAdded(updated);
         return convertToDto(updated);
     }
 
@@ -171,6 +177,8 @@ public class IncomeExpenseService {
             }
         }
 
+        ledgerRollupService.recordRemoved(companyId, incomeExpense.getDate(), incomeExpense.getCategory().getId(),
+                incomeExpense.getCategory().getType(), incomeExpense.getCurrency(), incomeExpense.getAmount());
         incomeExpenseRepository.delete(incomeExpense);
     }
 
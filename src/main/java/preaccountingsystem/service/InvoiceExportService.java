@@ -0,0 +1,391 @@
+package preaccountingsystem.service;
+
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.utils.PdfMerger;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import preaccountingsystem.dto.InvoiceDto;
+import preaccountingsystem.dto.InvoiceExportJobDto;
+import preaccountingsystem.dto.InvoiceExportRequest;
+import preaccountingsystem.exception.BusinessException;
+import preaccountingsystem.exception.ResourceNotFoundException;
+
+import java.io.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Background export of many invoice PDFs into one ZIP archive or one merged PDF.
+ *
+ * A job walks the matching invoices in id order, one page (and one query) at a time, and
+ * renders them on a shared pool (render-threads), separate from the render slots of
+ * interactive downloads. At most a small window of rendered PDFs is held in memory
+ * while they are appended, in order, to the job's file on disk, so memory use does not
+ * grow with the size of the export. Progress is kept in memory and exposed per job; files
+ * are removed once the retention period has passed.
+ *
+ * Admission is bounded: each company may have max-jobs-per-company exports queued or running,
+ * and at most max-queued-jobs wait for a job thread across all companies. A job still waiting
+ * after queue-timeout-minutes is dropped from the queue and reported as failed.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InvoiceExportService {
+
+    private static final int PAGE_SIZE = 100;
+
+    private final InvoiceService invoiceService;
+    private final InvoicePdfService invoicePdfService;
+
+    @Value("${invoice.export.dir:exports/invoices}")
+    private String exportDir;
+
+    // 0 means one render thread per core
+    @Value("${invoice.export.render-threads:0}")
+    private int renderThreads;
+
+    @Value("${invoice.export.max-concurrent-jobs:2}")
+    private int maxConcurrentJobs;
+
+    @Value("${invoice.export.max-invoices:20000}")
+    private int maxInvoices;
+
+    @Value("${invoice.export.retention-minutes:60}")
+    private long retentionMinutes;
+
+    @Value("${invoice.export.max-queued-jobs:20}")
+    private int maxQueuedJobs;
+
+    @Value("${invoice.export.max-jobs-per-company:2}")
+    private int maxJobsPerCompany;
+
+    @Value("${invoice.export.queue-timeout-minutes:15}")
+    private long queueTimeoutMinutes;
+
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor jobExecutor;
+    private ExecutorService renderExecutor;
+    private int windowSize;
+
+    @PostConstruct
+    void start() throws IOException {
+        Path directory = Paths.get(exportDir);
+        Files.createDirectories(directory);
+        // Jobs are tracked in memory only; files left by a previous run can no longer be downloaded
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(directory, "export-*")) {
+            for (Path leftover : leftovers) {
+                Files.deleteIfExists(leftover);
+            }
+        }
+
+        int threads = renderThreads > 0 ? renderThreads : Runtime.getRuntime().availableProcessors();
+        windowSize = threads * 2;
+
+        CustomizableThreadFactory jobThreads = new CustomizableThreadFactory("invoice-export-");
+        jobThreads.setDaemon(true);
+        // Bounded queue: a full one rejects the job instead of piling up exports in memory
+        jobExecutor = new ThreadPoolExecutor(maxConcurrentJobs, maxConcurrentJobs, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueuedJobs), jobThreads);
+
+        CustomizableThreadFactory renderThreadFactory = new CustomizableThreadFactory("invoice-export-render-");
+        renderThreadFactory.setDaemon(true);
+        renderExecutor = Executors.newFixedThreadPool(threads, renderThreadFactory);
+    }
+
+    @PreDestroy
+    void stop() {
+        jobExecutor.shutdownNow();
+        renderExecutor.shutdownNow();
+    }
+
+    public InvoiceExportJobDto startExport(Long companyId, InvoiceExportRequest request) {
+        purgeExpiredJobs();
+
+        if (request.getStartDate() != null && request.getEndDate() != null
+                && request.getStartDate().isAfter(request.getEndDate())) {
+            throw new BusinessException("Start date cannot be after end date");
+        }
+
+        long total = invoiceService.countForExport(companyId, request);
+        if (total == 0) {
+            throw new BusinessException("No invoices match the export filter");
+        }
+        if (total > maxInvoices) {
+            throw new BusinessException("Export is limited to " + maxInvoices + " invoices, filter matches " + total);
+        }
+
+        String format = request.getFormat() != null ? request.getFormat() : "ZIP";
+        String jobId = UUID.randomUUID().toString();
+        Path file = Paths.get(exportDir, "export-" + jobId + ("PDF".equals(format) ? ".pdf" : ".zip"));
+        ExportJob job = new ExportJob(jobId, companyId, format, total, file);
+        job.task = () -> run(job, request);
+
+        // Count and admit under one lock, so concurrent requests cannot both take the last slot
+        synchronized (jobs) {
+            long active = jobs.values().stream()
+                    .filter(other -> other.companyId.equals(companyId) && !other.isFinished())
+                    .count();
+            if (active >= maxJobsPerCompany) {
+                throw new BusinessException("At most " + maxJobsPerCompany
+                        + " exports can be queued or running at a time, wait for one to finish");
+            }
+            try {
+                jobExecutor.execute(job.task);
+            } catch (RejectedExecutionException e) {
+                throw new BusinessException("Too many exports are waiting, try again later");
+            }
+            jobs.put(jobId, job);
+        }
+        return toDto(job);
+    }
+
+    public InvoiceExportJobDto getJob(Long companyId, String jobId) {
+        return toDto(findJob(companyId, jobId));
+    }
+
+    /**
+     * The finished export file of a job, for download.
+     */
+    public ExportFile getExportFile(Long companyId, String jobId) {
+        ExportJob job = findJob(companyId, jobId);
+        if (job.status != JobStatus.COMPLETED) {
+            throw new BusinessException("Export is not ready yet, current status: " + job.status);
+        }
+        boolean pdf = "PDF".equals(job.format);
+        String fileName = "invoices-" + jobId.substring(0, 8) + (pdf ? ".pdf" : ".zip");
+        return new ExportFile(job.file, fileName, pdf ? "application/pdf" : "application/zip");
+    }
+
+    private ExportJob findJob(Long companyId, String jobId) {
+        purgeExpiredJobs();
+        ExportJob job = jobs.get(jobId);
+        if (job == null || !job.companyId.equals(companyId)) {
+            throw new ResourceNotFoundException("Export job not found: " + jobId);
+        }
+        return job;
+    }
+
+    private void run(ExportJob job, InvoiceExportRequest filter) {
+        if (!job.begin()) {
+            // Expired while queued
+            return;
+        }
+        Deque<Future<RenderedInvoice>> window = new ArrayDeque<>();
+
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(job.file))) {
+            ExportSink sink = "PDF".equals(job.format) ? new MergedPdfSink(out) : new ZipSink(out);
+
+            Long afterId = 0L;
+            List<InvoiceDto> page;
+            while (!(page = invoiceService.findForExport(job.companyId, filter, afterId, PAGE_SIZE)).isEmpty()) {
+                for (InvoiceDto invoice : page) {
+                    if (window.size() >= windowSize) {
+                        appendNext(window, sink, job);
+                    }
+                    window.add(renderExecutor.submit(() -> new RenderedInvoice(
+                            invoice.getInvoiceNumber(), invoicePdfService.generateInvoicePdfInBackground(invoice))));
+                }
+                afterId = page.get(page.size() - 1).getId();
+            }
+            while (!window.isEmpty()) {
+                appendNext(window, sink, job);
+            }
+            sink.finish();
+
+            job.completedAt = LocalDateTime.now();
+            job.status = JobStatus.COMPLETED;
+            log.info("Invoice export {} finished with {} invoices", job.id, job.processed.get());
+        } catch (Exception e) {
+            window.forEach(future -> future.cancel(true));
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            job.error = cause.getMessage();
+            job.completedAt = LocalDateTime.now();
+            job.status = JobStatus.FAILED;
+            log.error("Invoice export {} failed", job.id, cause);
+            deleteQuietly(job.file);
+        }
+    }
+
+    // Appends the oldest rendered invoice, keeping the output in submission order
+    private void appendNext(Deque<Future<RenderedInvoice>> window, ExportSink sink, ExportJob job)
+            throws IOException, ExecutionException, InterruptedException {
+        RenderedInvoice rendered = window.poll().get();
+        sink.add(rendered.invoiceNumber(), rendered.pdf());
+        job.processed.incrementAndGet();
+    }
+
+    private void purgeExpiredJobs() {
+        LocalDateTime queueCutoff = LocalDateTime.now().minusMinutes(queueTimeoutMinutes);
+        for (ExportJob job : jobs.values()) {
+            if (job.createdAt.isBefore(queueCutoff) && job.expire()) {
+                jobExecutor.remove(job.task);
+                log.warn("Invoice export {} waited more than {} minutes for a job thread and was dropped",
+                        job.id, queueTimeoutMinutes);
+            }
+        }
+
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> {
+            boolean expired = job.completedAt != null && job.completedAt.isBefore(cutoff);
+            if (expired) {
+                deleteQuietly(job.file);
+            }
+            return expired;
+        });
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete export file {}", file, e);
+        }
+    }
+
+    private InvoiceExportJobDto toDto(ExportJob job) {
+        return InvoiceExportJobDto.builder()
+                .jobId(job.id)
+                .status(job.status.name())
+                .format(job.format)
+                .total(job.total)
+                .processed(job.processed.get())
+                .error(job.error)
+                .createdAt(job.createdAt)
+                .completedAt(job.completedAt)
+                .build();
+    }
+
+    public record ExportFile(Path path, String fileName, String contentType) {
+    }
+
+    private enum JobStatus {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private static final class ExportJob {
+        private final String id;
+        private final Long companyId;
+        private final String format;
+        private final long total;
+        private final Path file;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private final AtomicLong processed = new AtomicLong();
+        private volatile JobStatus status = JobStatus.QUEUED;
+        private volatile String error;
+        private volatile LocalDateTime completedAt;
+        private Runnable task;
+
+        private ExportJob(String id, Long companyId, String format, long total, Path file) {
+            this.id = id;
+            this.companyId = companyId;
+            this.format = format;
+            this.total = total;
+            this.file = file;
+        }
+
+        private boolean isFinished() {
+            return status == JobStatus.COMPLETED || status == JobStatus.FAILED;
+        }
+
+        // QUEUED -> RUNNING, unless the job expired first
+        private synchronized boolean begin() {
+            if (status != JobStatus.QUEUED) {
+                return false;
+            }
+            status = JobStatus.RUNNING;
+            return true;
+        }
+
+        // QUEUED -> FAILED, unless a job thread picked it up first
+        private synchronized boolean expire() {
+            if (status != JobStatus.QUEUED) {
+                return false;
+            }
+            error = "Export waited too long for a free slot, please start it again";
+            completedAt = LocalDateTime.now();
+            status = JobStatus.FAILED;
+            return true;
+        }
+    }
+
+    private record RenderedInvoice(String invoiceNumber, byte[] pdf) {
+    }
+
+    private interface ExportSink {
+        void add(String invoiceNumber, byte[] pdf) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static final class ZipSink implements ExportSink {
+        private final ZipOutputStream zip;
+
+        private ZipSink(OutputStream out) {
+            zip = new ZipOutputStream(out);
+            // PDF content streams are already compressed
+            zip.setLevel(Deflater.BEST_SPEED);
+        }
+
+        @Override
+        public void add(String invoiceNumber, byte[] pdf) throws IOException {
+            zip.putNextEntry(new ZipEntry("invoice-" + invoiceNumber + ".pdf"));
+            zip.write(pdf);
+            zip.closeEntry();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            zip.finish();
+        }
+    }
+
+    private static final class MergedPdfSink implements ExportSink {
+        private final PdfDocument merged;
+        private final PdfMerger merger;
+
+        private MergedPdfSink(OutputStream out) {
+            PdfWriter writer = new PdfWriter(out);
+            writer.setCloseStream(false);
+            merged = new PdfDocument(writer);
+            merger = new PdfMerger(merged);
+        }
+
+        @Override
+        public void add(String invoiceNumber, byte[] pdf) throws IOException {
+            int firstNewPage = merged.getNumberOfPages() + 1;
+            try (PdfDocument source = new PdfDocument(new PdfReader(new ByteArrayInputStream(pdf)))) {
+                merger.merge(source, 1, source.getNumberOfPages());
+            }
+            // Write the copied pages out now so the merged document does not keep them in memory
+            for (int page = firstNewPage; page <= merged.getNumberOfPages(); page++) {
+                merged.getPage(page).flush();
+            }
+        }
+
+        @Override
+        public void finish() {
+            merged.close();
+        }
+    }
+}
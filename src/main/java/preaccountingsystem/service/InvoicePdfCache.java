@@ -0,0 +1,243 @@
+package preaccountingsystem.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import preaccountingsystem.dto.InvoiceDto;
+import preaccountingsystem.exception.BusinessException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Disk cache of rendered invoice PDFs.
+ *
+ * Files are named after the invoice id and a SHA-256 of the InvoiceDto's JSON, so any change
+ * to the invoice (status, items, updatedAt) leads to a different file and a stale PDF is never
+ * served. Total size is bounded with least-recently-used eviction. Invoice state changes
+ * call {@link #invalidate(Long)} to free the outdated files right away.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InvoicePdfCache {
+
+    private static final Pattern FILE_NAME = Pattern.compile("(\\d+)-([0-9a-f]{64})\\.pdf");
+
+    private final InvoicePdfService invoicePdfService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${pdf.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${pdf.cache.dir:cache/invoice-pdf}")
+    private String cacheDir;
+
+    @Value("${pdf.cache.max-size-mb:256}")
+    private long maxSizeMb;
+
+    private Path directory;
+
+    // Access-ordered: iteration starts at the least recently used file
+    private final LinkedHashMap<String, CachedPdf> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final Map<String, Object> renderLocks = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() throws IOException {
+        directory = Paths.get(cacheDir);
+        Files.createDirectories(directory);
+
+        // Pick up files from the previous run, oldest first so that they are evicted first
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            stream.forEach(files::add);
+        }
+        files.sort(Comparator.comparingLong(this::lastModified));
+        synchronized (entries) {
+            for (Path file : files) {
+                Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    String key = matcher.group(1) + "-" + matcher.group(2);
+                    put(key, new CachedPdf(Long.parseLong(matcher.group(1)), file, Files.size(file)));
+                } else {
+                    // Partial writes from an interrupted render
+                    Files.deleteIfExists(file);
+                }
+            }
+            evictOverBudget();
+        }
+    }
+
+    /**
+     * Writes the invoice's PDF to the stream, rendering it first if this version is not cached.
+     * Cached bytes are copied with FileChannel.transferTo without going through a heap buffer.
+     */
+    public void writeInvoicePdf(InvoiceDto invoice, OutputStream out) throws IOException {
+        if (!enabled) {
+            invoicePdfService.writeInvoicePdf(invoice, out);
+            return;
+        }
+
+        String key = invoice.getId() + "-" + contentHash(invoice);
+        // The file can be evicted between lookup and open; render again in that case
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Path file = getOrRender(key, invoice);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(out);
+                long size = channel.size();
+                long position = 0;
+                while (position < size) {
+                    position += channel.transferTo(position, size - position, target);
+                }
+                out.flush();
+                return;
+            } catch (NoSuchFileException e) {
+                remove(key);
+            }
+        }
+        invoicePdfService.writeInvoicePdf(invoice, out);
+    }
+
+    /**
+     * Drops every cached version of the invoice, after the current transaction commits if there is one.
+     */
+    public void invalidate(Long invoiceId) {
+        if (!enabled) {
+            return;
+        }
+        AfterCommit.run(() -> removeInvoice(invoiceId));
+    }
+
+    private Path getOrRender(String key, InvoiceDto invoice) throws IOException {
+        Path cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        // One render per key; concurrent requests for the same version wait for it
+        Object lock = renderLocks.computeIfAbsent(key, k -> new Object());
+        synchronized (lock) {
+            try {
+                cached = lookup(key);
+                if (cached != null) {
+                    return cached;
+                }
+
+                Path target = directory.resolve(key + ".pdf");
+                Path temp = Files.createTempFile(directory, "render-", ".tmp");
+                try {
+                    try (OutputStream fileOut = Files.newOutputStream(temp)) {
+                        invoicePdfService.writeInvoicePdf(invoice, fileOut);
+                    }
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+
+                synchronized (entries) {
+                    put(key, new CachedPdf(invoice.getId(), target, Files.size(target)));
+                    evictOverBudget();
+                }
+                return target;
+            } finally {
+                renderLocks.remove(key);
+            }
+        }
+    }
+
+    private Path lookup(String key) {
+        synchronized (entries) {
+            CachedPdf entry = entries.get(key);
+            return entry != null ? entry.file() : null;
+        }
+    }
+
+    private void remove(String key) {
+        synchronized (entries) {
+            CachedPdf entry = entries.remove(key);
+            if (entry != null) {
+                totalBytes -= entry.size();
+                deleteQuietly(entry.file());
+            }
+        }
+    }
+
+    private void removeInvoice(Long invoiceId) {
+        synchronized (entries) {
+            Iterator<CachedPdf> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                CachedPdf entry = iterator.next();
+                if (entry.invoiceId() == invoiceId) {
+                    iterator.remove();
+                    totalBytes -= entry.size();
+                    deleteQuietly(entry.file());
+                }
+            }
+        }
+    }
+
+    // Callers hold the entries lock
+    private void put(String key, CachedPdf entry) {
+        CachedPdf previous = entries.put(key, entry);
+        if (previous != null) {
+            totalBytes -= previous.size();
+        }
+        totalBytes += entry.size();
+    }
+
+    // Callers hold the entries lock
+    private void evictOverBudget() {
+        long maxBytes = maxSizeMb * 1024 * 1024;
+        Iterator<CachedPdf> iterator = entries.values().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            CachedPdf eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.size();
+            deleteQuietly(eldest.file());
+        }
+    }
+
+    private String contentHash(InvoiceDto invoice) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(invoice));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new BusinessException("Failed to generate PDF: " + e.getMessage());
+        }
+    }
+
+    private long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete cached PDF {}", file, e);
+        }
+    }
+
+    private record CachedPdf(long invoiceId, Path file, long size) {
+    }
+}
@@ -1,118 +1,198 @@
 package preaccountingsystem.service;
 
+import com.itextpdf.io.font.FontProgram;
+import com.itextpdf.io.font.FontProgramFactory;
+import com.itextpdf.io.font.PdfEncodings;
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
 import com.itextpdf.kernel.pdf.PdfDocument;
 import com.itextpdf.kernel.pdf.PdfWriter;
 import com.itextpdf.layout.Document;
+import com.itextpdf.layout.Style;
 import com.itextpdf.layout.element.Paragraph;
 import com.itextpdf.layout.element.Table;
 import com.itextpdf.layout.properties.TextAlignment;
 import com.itextpdf.layout.properties.UnitValue;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import preaccountingsystem.dto.InvoiceDto;
 import preaccountingsystem.dto.InvoiceItemDto;
 import preaccountingsystem.exception.BusinessException;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.format.DateTimeFormatter;
-
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders invoice PDFs.
+ *
+ * Font programs and the styles of the fixed layout are built once and shared by all renders;
+ * only the document-bound PdfFont wrappers are created per document. Output is written
+ * straight to the caller's stream. A fixed number of render slots bounds how many PDFs are
+ * built at the same time, so a burst of downloads queues here instead of occupying every
+ * request thread. Bulk exports bound their renders with their own pool and skip these slots.
+ */
 @Service
 @RequiredArgsConstructor
 public class InvoicePdfService {
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
 
+    private static final float[] COLUMN_WEIGHTS = {4, 1, 2, 2};
+    private static final String[] COLUMN_HEADERS = {"Description", "Qty", "Unit Price", "Amount"};
+
+    private static final Style TITLE = new Style().setFontSize(24).setTextAlignment(TextAlignment.CENTER);
+    private static final Style DETAIL = new Style().setFontSize(12);
+    private static final Style SECTION = new Style().setFontSize(14);
+    private static final Style TOTAL = new Style().setFontSize(14).setTextAlignment(TextAlignment.RIGHT);
+    private static final Style NOTES = new Style().setFontSize(10);
+
+    @Value("${pdf.render.max-concurrent:4}")
+    private int maxConcurrentRenders;
+
+    @Value("${pdf.render.acquire-timeout-ms:10000}")
+    private long acquireTimeoutMs;
+
+    private FontProgram regularFont;
+    private FontProgram boldFont;
+    private Semaphore renderSlots;
+
+    @PostConstruct
+    void init() throws IOException {
+        regularFont = FontProgramFactory.createFont(StandardFonts.HELVETICA);
+        boldFont = FontProgramFactory.createFont(StandardFonts.HELVETICA_BOLD);
+        renderSlots = new Semaphore(maxConcurrentRenders, true);
+    }
+
     public byte[] generateInvoicePdf(InvoiceDto invoice) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        writeInvoicePdf(invoice, baos);
+        return baos.toByteArray();
+    }
+
+    /**
+     * Renders without taking an interactive render slot, so it never times out waiting for
+     * downloads. For background callers whose own thread pool bounds the concurrency.
+     */
+    public byte[] generateInvoicePdfInBackground(InvoiceDto invoice) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        renderOrFail(invoice, baos);
+        return baos.toByteArray();
+    }
+
+    /**
+     * Renders the invoice into the given stream. The stream is flushed but not closed.
+     */
+    public void writeInvoicePdf(InvoiceDto invoice, OutputStream out) {
+        acquireRenderSlot();
         try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            PdfWriter writer = new PdfWriter(baos);
-            PdfDocument pdfDoc = new PdfDocument(writer);
-            Document document = new Document(pdfDoc);
+            renderOrFail(invoice, out);
+        } finally {
+            renderSlots.release();
+        }
+    }
 
-            // Title
-            document.add(new Paragraph("INVOICE")
-                    .setFontSize(24)
-                    .setBold()
-                    .setTextAlignment(TextAlignment.CENTER));
+    private void renderOrFail(InvoiceDto invoice, OutputStream out) {
+        try {
+            render(invoice, out);
+        } catch (Exception e) {
+            throw new BusinessException("Failed to generate PDF: " + e.getMessage());
+        }
+    }
 
-            document.add(new Paragraph("\n"));
+    private void acquireRenderSlot() {
+        try {
+            if (!renderSlots.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new BusinessException("Too many PDF downloads in progress, please try again");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("PDF generation was interrupted");
+        }
+    }
 
-            // Invoice details
-            document.add(new Paragraph("Invoice Number: " + invoice.getInvoiceNumber())
-                    .setFontSize(12));
-            document.add(new Paragraph("Date: " + invoice.getInvoiceDate().format(DATE_FORMATTER))
-                    .setFontSize(12));
-            document.add(new Paragraph("Due Date: " + invoice.getDueDate().format(DATE_FORMATTER))
-                    .setFontSize(12));
-            document.add(new Paragraph("Status: " + invoice.getStatus())
-                    .setFontSize(12));
+    private void render(InvoiceDto invoice, OutputStream out) throws IOException {
+        PdfWriter writer = new PdfWriter(out);
+        writer.setCloseStream(false);
+        PdfDocument pdfDoc = new PdfDocument(writer);
+        Document document = new Document(pdfDoc);
 
-            document.add(new Paragraph("\n"));
+        // PdfFont instances belong to one document; the parsed font programs are shared
+        PdfFont regular = PdfFontFactory.createFont(regularFont, PdfEncodings.WINANSI);
+        PdfFont bold = PdfFontFactory.createFont(boldFont, PdfEncodings.WINANSI);
+        document.setFont(regular);
 
-            // Customer/Supplier info
-            document.add(new Paragraph("INCOME".equals(invoice.getType()) ? "Bill To:" : "Supplier:")
-                    .setFontSize(14)
-                    .setBold());
-            document.add(new Paragraph(invoice.getCustomerSupplierName())
-                    .setFontSize(12));
+        // Title
+        document.add(new Paragraph("INVOICE").addStyle(TITLE).setFont(bold));
 
-            document.add(new Paragraph("\n"));
+        document.add(new Paragraph("\n"));
 
-            // Items table
-            Table table = new Table(UnitValue.createPercentArray(new float[]{4, 1, 2, 2}));
-            table.setWidth(UnitValue.createPercentValue(100));
-
-            // Header
-            table.addHeaderCell("Description");
-            table.addHeaderCell("Qty");
-            table.addHeaderCell("Unit Price");
-            table.addHeaderCell("Amount");
-
-            // Items
-            BigDecimal subtotal = BigDecimal.ZERO;
-
-            for (InvoiceItemDto item : invoice.getItems()) {
-                table.addCell(item.getDescription() != null ? item.getDescription() : "");
-                table.addCell(item.getQuantity() != null ? item.getQuantity().toString() : "0");
-                table.addCell(String.format("%.2f %s",
-                    item.getUnitPrice() != null ? item.getUnitPrice() : BigDecimal.ZERO,
-                    invoice.getCurrency()));
-                table.addCell(String.format("%.2f %s",
-                    item.getAmount() != null ? item.getAmount() : BigDecimal.ZERO,
-                    invoice.getCurrency()));
-
-                if (item.getAmount() != null) {
-                    subtotal = subtotal.add(item.getAmount());
-                }
-            }
+        // Invoice details
+        document.add(new Paragraph("Invoice Number: " + invoice.getInvoiceNumber()).addStyle(DETAIL));
+        document.add(new Paragraph("Date: " + invoice.getInvoiceDate().format(DATE_FORMATTER)).addStyle(DETAIL));
+        document.add(new Paragraph("Due Date: " + invoice.getDueDate().format(DATE_FORMATTER)).addStyle(DETAIL));
+        document.add(new Paragraph("Status: " + invoice.getStatus()).addStyle(DETAIL));
 
-            document.add(table);
-            document.add(new Paragraph("\n"));
+        document.add(new Paragraph("\n"));
+
+        // Customer/Supplier info
+        document.add(new Paragraph("INCOME".equals(invoice.getType()) ? "Bill To:" : "Supplier:")
+                .addStyle(SECTION)
+                .setFont(bold));
+        document.add(new Paragraph(invoice.getCustomerSupplierName()).addStyle(DETAIL));
+
+        document.add(new Paragraph("\n"));
+
+        // Items table
+        Table table = new Table(UnitValue.createPercentArray(COLUMN_WEIGHTS));
+        table.setWidth(UnitValue.createPercentValue(100));
+
+        for (String header : COLUMN_HEADERS) {
+            table.addHeaderCell(header);
+        }
 
-            // Totals
-            document.add(new Paragraph("Total: " + String.format("%.2f %s",
-                invoice.getTotalAmount() != null ? invoice.getTotalAmount() : subtotal,
-                invoice.getCurrency()))
-                    .setTextAlignment(TextAlignment.RIGHT)
-                    .setFontSize(14)
-                    .setBold());
-
-            // Notes
-            if (invoice.getNotes() != null && !invoice.getNotes().isEmpty()) {
-                document.add(new Paragraph("\n"));
-                document.add(new Paragraph("Notes:")
-                        .setFontSize(12)
-                        .setBold());
-                document.add(new Paragraph(invoice.getNotes())
-                        .setFontSize(10));
+        BigDecimal subtotal = BigDecimal.ZERO;
+        String currency = invoice.getCurrency();
+
+        for (InvoiceItemDto item : invoice.getItems()) {
+            table.addCell(item.getDescription() != null ? item.getDescription() : "");
+            table.addCell(item.getQuantity() != null ? item.getQuantity().toString() : "0");
+            table.addCell(formatAmount(item.getUnitPrice(), currency));
+            table.addCell(formatAmount(item.getAmount(), currency));
+
+            if (item.getAmount() != null) {
+                subtotal = subtotal.add(item.getAmount());
             }
+        }
 
-            document.close();
-            return baos.toByteArray();
+        document.add(table);
+        document.add(new Paragraph("\n"));
 
-        } catch (Exception e) {
-            throw new BusinessException("Failed to generate PDF: " + e.getMessage());
+        // Totals
+        document.add(new Paragraph("Total: " + formatAmount(
+                invoice.getTotalAmount() != null ? invoice.getTotalAmount() : subtotal, currency))
+                .addStyle(TOTAL)
+                .setFont(bold));
+
+        // Notes
+        if (invoice.getNotes() != null && !invoice.getNotes().isEmpty()) {
+            document.add(new Paragraph("\n"));
+            document.add(new Paragraph("Notes:").addStyle(DETAIL).setFont(bold));
+            document.add(new Paragraph(invoice.getNotes()).addStyle(NOTES));
         }
+
+        document.close();
+        out.flush();
+    }
+
+    private static String formatAmount(BigDecimal amount, String currency) {
+        return String.format("%.2f %s", amount != null ? amount : BigDecimal.ZERO, currency);
     }
 }
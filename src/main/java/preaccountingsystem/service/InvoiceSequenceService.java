@@ -0,0 +1,194 @@
+package preaccountingsystem.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import preaccountingsystem.entity.SystemSettings;
+import preaccountingsystem.exception.BusinessException;
+import preaccountingsystem.repository.InvoiceRepository;
+import preaccountingsystem.repository.InvoiceSequenceRepository;
+import preaccountingsystem.repository.SystemSettingsRepository;
+
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Hands out invoice numbers from a per-company, per-year counter (hi/lo style).
+ *
+ * Each node reserves a block of sequence values from the invoice_sequences row
+ * in its own short transaction and then serves numbers from memory with a single
+ * atomic increment. Blocks never overlap between nodes, so numbers stay unique;
+ * values of a block that is not fully used (restart, rolled back invoice) are lost,
+ * which leaves gaps but never duplicates.
+ *
+ * Reservations go through InvoiceSequenceRepository's own connection pool, so they
+ * commit independently of the invoice transaction that asks for the number without
+ * holding a second connection of the main pool.
+ */
+@Service
+@RequiredArgsConstructor
+public class InvoiceSequenceService {
+
+    private static final String DEFAULT_FORMAT = "INV-{YEAR}-{SEQUENCE}";
+    private static final Pattern YEAR_TOKEN = Pattern.compile("\\{(YEAR|YYYY)}");
+    private static final Pattern SEQUENCE_TOKEN = Pattern.compile("\\{(SEQUENCE|#+)}");
+    private static final Pattern TRAILING_DIGITS = Pattern.compile("(\\d+)\\D*$");
+    private static final int DEFAULT_SEQUENCE_WIDTH = 5;
+
+    // Formats without a year share one counter per company under this key
+    private static final int NO_YEAR = 0;
+
+    private final InvoiceSequenceRepository invoiceSequenceRepository;
+    private final InvoiceRepository invoiceRepository;
+    private final SystemSettingsRepository systemSettingsRepository;
+
+    @Value("${invoice.sequence.block-size:50}")
+    private int blockSize;
+
+    private final ConcurrentMap<SequenceKey, SequenceBlock> blocks = new ConcurrentHashMap<>();
+    private final ConcurrentMap<SequenceKey, Object> refillLocks = new ConcurrentHashMap<>();
+
+    /**
+     * Next free invoice number for the company, formatted with SystemSettings.invoiceNumberFormat.
+     */
+    public String nextInvoiceNumber(Long companyId) {
+        return nextInvoiceNumbers(companyId, 1).get(0);
+    }
+
+    /**
+     * Reserves {@code count} invoice numbers at once. Numbers the company already used
+     * before its counter existed (or under another format) are skipped.
+     */
+    public List<String> nextInvoiceNumbers(Long companyId, int count) {
+        String format = resolveFormat();
+        int year = Year.now().getValue();
+        SequenceKey key = new SequenceKey(companyId, YEAR_TOKEN.matcher(format).find() ? year : NO_YEAR);
+
+        List<String> numbers = new ArrayList<>(count);
+        while (numbers.size() < count) {
+            int missing = count - numbers.size();
+            List<String> candidates = new ArrayList<>(missing);
+            if (missing == 1) {
+                candidates.add(formatNumber(format, year, nextValue(key)));
+            } else {
+                // Bulk requests get a dedicated contiguous range instead of draining the shared block
+                SequenceBlock range = reserveBlock(key, missing);
+                for (long value = range.start; value < range.end; value++) {
+                    candidates.add(formatNumber(format, year, value));
+                }
+            }
+
+            Set<String> taken = new HashSet<>(invoiceRepository.findExistingInvoiceNumbers(companyId, candidates));
+            for (String candidate : candidates) {
+                if (!taken.contains(candidate)) {
+                    numbers.add(candidate);
+                }
+            }
+        }
+        return numbers;
+    }
+
+    private long nextValue(SequenceKey key) {
+        while (true) {
+            SequenceBlock block = blocks.get(key);
+            if (block != null) {
+                long value = block.tryNext();
+                if (value >= 0) {
+                    return value;
+                }
+            }
+            refill(key, block);
+        }
+    }
+
+    private void refill(SequenceKey key, SequenceBlock exhausted) {
+        Object lock = refillLocks.computeIfAbsent(key, k -> new Object());
+        synchronized (lock) {
+            // Another thread may have refilled while we were waiting
+            if (blocks.get(key) != exhausted) {
+                return;
+            }
+            blocks.put(key, reserveBlock(key, blockSize));
+        }
+    }
+
+    // Bulk ranges and refills of the same key queue here rather than on the counter row lock
+    private SequenceBlock reserveBlock(SequenceKey key, int size) {
+        Object lock = refillLocks.computeIfAbsent(key, k -> new Object());
+        synchronized (lock) {
+            long start = invoiceSequenceRepository.reserve(key.companyId, key.year, size, () -> seedValue(key));
+            return new SequenceBlock(start, start + size);
+        }
+    }
+
+    // Continue after invoices numbered before this counter existed
+    private long seedValue(SequenceKey key) {
+        LocalDateTime since = key.year == NO_YEAR
+                ? LocalDateTime.of(1970, 1, 1, 0, 0)
+                : Year.of(key.year).atDay(1).atStartOfDay();
+
+        return invoiceSequenceRepository.findLastInvoiceNumberSince(key.companyId, since)
+                .map(TRAILING_DIGITS::matcher)
+                .filter(Matcher::find)
+                .map(matcher -> {
+                    try {
+                        return Long.parseLong(matcher.group(1)) + 1;
+                    } catch (NumberFormatException e) {
+                        return 1L;
+                    }
+                })
+                .orElse(1L);
+    }
+
+    private String resolveFormat() {
+        SystemSettings settings = systemSettingsRepository.findById(1L)
+                .orElseThrow(() -> new BusinessException("System settings not found"));
+
+        String format = settings.getInvoiceNumberFormat();
+        if (format == null || format.isEmpty() || !SEQUENCE_TOKEN.matcher(format).find()) {
+            return DEFAULT_FORMAT;
+        }
+        return format;
+    }
+
+    private String formatNumber(String format, int year, long value) {
+        String withYear = YEAR_TOKEN.matcher(format).replaceAll(String.valueOf(year));
+
+        Matcher matcher = SEQUENCE_TOKEN.matcher(withYear);
+        StringBuilder result = new StringBuilder();
+        while (matcher.find()) {
+            String token = matcher.group(1);
+            int width = token.startsWith("#") ? token.length() : DEFAULT_SEQUENCE_WIDTH;
+            matcher.appendReplacement(result, String.format("%0" + width + "d", value));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    private record SequenceKey(Long companyId, int year) {
+    }
+
+    private static final class SequenceBlock {
+        private final long start;
+        private final long end; // exclusive
+        private final AtomicLong cursor;
+
+        private SequenceBlock(long start, long end) {
+            this.start = start;
+            this.end = end;
+            this.cursor = new AtomicLong(start);
+        }
+
+        // Returns -1 once the block is used up
+        private long tryNext() {
+            long value = cursor.getAndIncrement();
+            return value < end ? value : -1;
+        }
+    }
+}
@@ -1,31 +1,51 @@
 package preaccountingsystem.service;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import preaccountingsystem.dto.CreateInvoiceRequest;
+import preaccountingsystem.dto.InvoiceBatchResponse;
+import preaccountingsystem.dto.InvoiceBatchResultDto;
 import preaccountingsystem.dto.InvoiceDto;
+import preaccountingsystem.dto.InvoiceExportRequest;
 import preaccountingsystem.dto.InvoiceItemDto;
+import preaccountingsystem.dto.InvoicePageDto;
 import preaccountingsystem.entity.*;
+import preaccountingsystem.event.InvoiceChangedEvent;
 import preaccountingsystem.exception.BusinessException;
 import preaccountingsystem.exception.ResourceNotFoundException;
 import preaccountingsystem.repository.*;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.time.Year;
-import java.util.Arrays;
-import java.util.List;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class InvoiceService {
 
+    public static final int MAX_PAGE_SIZE = 200;
+
     private final InvoiceRepository invoiceRepository;
     private final CustomerSupplierRepository customerSupplierRepository;
     private final CustomerRepository customerRepository;
-    private final SystemSettingsRepository systemSettingsRepository;
+    private final InvoiceSequenceService invoiceSequenceService;
+    private final InvoiceBatchRepository invoiceBatchRepository;
+    private final InvoicePdfCache invoicePdfCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
+
+    @Value("${invoice.batch.max-size:1000}")
+    private int maxBatchSize;
 
     @Transactional
     public InvoiceDto createInvoice(CreateInvoiceRequest request, Long companyId) {
@@ -49,7 +69,7 @@ public class InvoiceService {
         }
 
         // Generate invoice number
-        String invoiceNumber = generateInvoiceNumber(companyId);
+        String invoiceNumber = invoiceSequenceService.nextInvoiceNumber(companyId);
 
         // Create invoice
         Invoice invoice = Invoice.builder()
@@ -76,9 +96,117 @@ public class InvoiceService {
         });
 
         Invoice saved = invoiceRepository.save(invoice);
+        eventPublisher.publishEvent(new InvoiceChangedEvent(companyId));
         return convertToDto(saved);
     }
 
+    /**
+     * Creates many invoices for one company in a single transaction. Rows that fail validation
+     * are reported in the result and skipped; the others are inserted with JDBC batches.
+     */
+    @Transactional
+    public InvoiceBatchResponse createInvoices(List<CreateInvoiceRequest> requests, Long companyId) {
+        if (requests.size() > maxBatchSize) {
+            throw new BusinessException("A batch can contain at most " + maxBatchSize + " invoices");
+        }
+
+        Customer company = customerRepository.findById(companyId)
+                .orElseThrow(() -> new ResourceNotFoundException("Company not found with id: " + companyId));
+
+        // All counterparties of the batch in one query
+        Set<Long> counterpartyIds = requests.stream()
+                .filter(Objects::nonNull)
+                .map(CreateInvoiceRequest::getCustomerSupplierId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, CustomerSupplier> counterparties = customerSupplierRepository
+                .findByCompanyIdAndIdIn(companyId, counterpartyIds).stream()
+                .collect(Collectors.toMap(CustomerSupplier::getId, Function.identity()));
+
+        InvoiceBatchResultDto[] results = new InvoiceBatchResultDto[requests.size()];
+        List<Integer> validRows = new ArrayList<>();
+        for (int index = 0; index < requests.size(); index++) {
+            String error = validateBatchRow(requests.get(index), counterparties);
+            if (error != null) {
+                results[index] = InvoiceBatchResultDto.builder().index(index).success(false).error(error).build();
+            } else {
+                validRows.add(index);
+            }
+        }
+
+        if (!validRows.isEmpty()) {
+            List<String> numbers = invoiceSequenceService.nextInvoiceNumbers(companyId, validRows.size());
+
+            List<Invoice> invoices = new ArrayList<>(validRows.size());
+            for (int i = 0; i < validRows.size(); i++) {
+                CreateInvoiceRequest request = requests.get(validRows.get(i));
+                Invoice invoice = Invoice.builder()
+                        .invoiceNumber(numbers.get(i))
+                        .invoiceDate(request.getInvoiceDate())
+                        .dueDate(request.getDueDate())
+                        .notes(request.getNotes())
+                        .currency(request.getCurrency() != null ? request.getCurrency().toUpperCase() : "USD")
+                        .status(InvoiceStatus.UNPAID)
+                        .customerSupplier(counterparties.get(request.getCustomerSupplierId()))
+                        .company(company)
+                        .build();
+                request.getItems().forEach(itemRequest -> invoice.addItem(InvoiceItem.builder()
+                        .description(itemRequest.getDescription())
+                        .quantity(itemRequest.getQuantity())
+                        .unitPrice(itemRequest.getUnitPrice())
+                        .amount(itemRequest.getQuantity().multiply(itemRequest.getUnitPrice()))
+                        .build()));
+                invoices.add(invoice);
+            }
+
+            invoiceBatchRepository.insertAll(invoices);
+            eventPublisher.publishEvent(new InvoiceChangedEvent(companyId));
+
+            for (int i = 0; i < validRows.size(); i++) {
+                int index = validRows.get(i);
+                Invoice invoice = invoices.get(i);
+                results[index] = InvoiceBatchResultDto.builder()
+                        .index(index)
+                        .success(true)
+                        .invoiceId(invoice.getId())
+                        .invoiceNumber(invoice.getInvoiceNumber())
+                        .build();
+            }
+        }
+
+        return InvoiceBatchResponse.builder()
+                .created(validRows.size())
+                .failed(requests.size() - validRows.size())
+                .results(Arrays.asList(results))
+                .build();
+    }
+
+    // Same rules as createInvoice (bean validation included), reported per row instead of thrown
+    private String validateBatchRow(CreateInvoiceRequest request, Map<Long, CustomerSupplier> counterparties) {
+        if (request == null) {
+            return "Invoice is required";
+        }
+        Set<ConstraintViolation<CreateInvoiceRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+
+        CustomerSupplier customerSupplier = counterparties.get(request.getCustomerSupplierId());
+        if (customerSupplier == null) {
+            return "Customer/Supplier not found or access denied";
+        }
+        if (!customerSupplier.getIsCustomer()) {
+            return "Invoices can only be created for customers, not suppliers";
+        }
+        if (request.getDueDate().isBefore(request.getInvoiceDate())) {
+            return "Due date cannot be before invoice date";
+        }
+        return null;
+    }
+
     @Transactional(readOnly = true)
     public List<InvoiceDto> listAll(Long companyId) {
         return invoiceRepository.findByCompanyId(companyId).stream()
@@ -94,6 +222,79 @@ public class InvoiceService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Keyset page of invoices ordered by invoice date and id, newest first.
+     * The ids of the page are selected first and then loaded with items and
+     * counterparty in one query, so a page costs two statements regardless of its size.
+     */
+    @Transactional(readOnly = true)
+    public InvoicePageDto listPage(Long companyId, boolean unpaidOnly, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        InvoiceStatus status = unpaidOnly ? InvoiceStatus.UNPAID : null;
+
+        // One extra row tells whether another page follows
+        Limit limit = Limit.of(pageSize + 1);
+        List<Long> ids;
+        if (cursor == null || cursor.isBlank()) {
+            ids = invoiceRepository.findFirstPageIds(companyId, status, limit);
+        } else {
+            PageCursor after = PageCursor.decode(cursor);
+            ids = invoiceRepository.findPageIdsAfter(companyId, status, after.invoiceDate(), after.id(), limit);
+        }
+
+        boolean hasMore = ids.size() > pageSize;
+        if (hasMore) {
+            ids = ids.subList(0, pageSize);
+        }
+
+        Map<Long, Invoice> invoicesById = ids.isEmpty() ? Map.of()
+                : invoiceRepository.findWithDetailsByIdIn(ids).stream()
+                        .collect(Collectors.toMap(Invoice::getId, Function.identity()));
+
+        List<InvoiceDto> invoices = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Invoice invoice = invoicesById.get(id);
+            // Skip rows deleted between the two queries
+            if (invoice != null) {
+                invoices.add(convertToDto(invoice));
+            }
+        }
+
+        String nextCursor = null;
+        if (hasMore && !invoices.isEmpty()) {
+            InvoiceDto last = invoices.get(invoices.size() - 1);
+            nextCursor = new PageCursor(last.getInvoiceDate(), last.getId()).encode();
+        }
+
+        return InvoicePageDto.builder()
+                .invoices(invoices)
+                .nextCursor(nextCursor)
+                .hasMore(nextCursor != null)
+                .build();
+    }
+
+    @Transactional(readOnly = true)
+    public long countForExport(Long companyId, InvoiceExportRequest filter) {
+        return invoiceRepository.countForExport(companyId, filter.getStatus(), filter.getCustomerSupplierId(),
+                filter.getStartDate(), filter.getEndDate());
+    }
+
+    /**
+     * Next page of invoices matching an export filter, in ascending id order after {@code afterId}.
+     */
+    @Transactional(readOnly = true)
+    public List<InvoiceDto> findForExport(Long companyId, InvoiceExportRequest filter, Long afterId, int size) {
+        List<Long> ids = invoiceRepository.findExportIds(companyId, filter.getStatus(),
+                filter.getCustomerSupplierId(), filter.getStartDate(), filter.getEndDate(), afterId, Limit.of(size));
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return invoiceRepository.findWithDetailsByIdIn(ids).stream()
+                .sorted(Comparator.comparing(Invoice::getId))
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+    }
+
     @Transactional(readOnly = true)
     public InvoiceDto getById(Long id, Long companyId) {
         Invoice invoice = invoiceRepository.findByIdAndCompanyId(id, companyId)
@@ -116,6 +317,8 @@ public class InvoiceService {
 
         invoice.setStatus(InvoiceStatus.CANCELLED);
         Invoice updated = invoiceRepository.save(invoice);
+        invoicePdfCache.invalidate(updated.getId());
+        eventPublisher.publishEvent(new InvoiceChangedEvent(companyId));
         return convertToDto(updated);
     }
 
@@ -134,55 +337,11 @@ public class InvoiceService {
 
         invoice.setStatus(InvoiceStatus.PAID);
         Invoice updated = invoiceRepository.save(invoice);
+        invoicePdfCache.invalidate(updated.getId());
+        eventPublisher.publishEvent(new InvoiceChangedEvent(companyId));
         return convertToDto(updated);
     }
 
-    private String generateInvoiceNumber(Long companyId) {
-        SystemSettings settings = systemSettingsRepository.findById(1L)
-                .orElseThrow(() -> new BusinessException("System settings not found"));
-
-        String format = settings.getInvoiceNumberFormat();
-        if (format == null || format.isEmpty()) {
-            format = "INV-{YEAR}-{SEQUENCE}"; // Default format
-        }
-
-        int currentYear = Year.now().getValue();
-
-        List<Invoice> latestInvoices = invoiceRepository.findLatestByCompanyId(companyId);
-        int nextSequence = 1;
-
-        if (!latestInvoices.isEmpty()) {
-            Invoice lastInvoice = latestInvoices.get(0);
-            String lastNumber = lastInvoice.getInvoiceNumber();
-
-
-            String[] parts = lastNumber.split("-");
-            if (parts.length > 0) {
-                try {
-                    String lastPart = parts[parts.length - 1];
-                    int lastSequence = Integer.parseInt(lastPart);
-                    nextSequence = lastSequence + 1;
-                } catch (NumberFormatException e) {
-                    // If parsing fails, start from 1
-                    nextSequence = 1;
-                }
-            }
-        }
-
-        String invoiceNumber = format
-                .replace("{YEAR}", String.valueOf(currentYear))
-                .replace("{SEQUENCE}", String.format("%05d", nextSequence)); // 5-digit sequence with leading zeros
-
-        while (invoiceRepository.findByInvoiceNumber(invoiceNumber).isPresent()) {
-            nextSequence++;
-            invoiceNumber = format
-                    .replace("{YEAR}", String.valueOf(currentYear))
-                    .replace("{SEQUENCE}", String.format("%05d", nextSequence));
-        }
-
-        return invoiceNumber;
-    }
-
     private InvoiceDto convertToDto(Invoice entity) {
         List<InvoiceItemDto> items = entity.getItems().stream()
                 .map(item -> InvoiceItemDto.builder()
@@ -211,4 +370,24 @@ public class InvoiceService {
                 .updatedAt(entity.getUpdatedAt())
                 .build();
     }
+
+    // Opaque cursor: base64url of "<invoiceDate>:<id>" of the last row returned
+    private record PageCursor(LocalDate invoiceDate, Long id) {
+
+        String encode() {
+            String raw = invoiceDate + ":" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static PageCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.indexOf(':');
+                return new PageCursor(LocalDate.parse(raw.substring(0, separator)),
+                        Long.parseLong(raw.substring(separator + 1)));
+            } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+                throw new BusinessException("Invalid page cursor");
+            }
+        }
+    }
 }
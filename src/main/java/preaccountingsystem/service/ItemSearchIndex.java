@@ -0,0 +1,171 @@
+package preaccountingsystem.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import preaccountingsystem.entity.Item;
+import preaccountingsystem.entity.ItemStatus;
+import preaccountingsystem.entity.ItemType;
+import preaccountingsystem.repository.ItemRepository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Per-company trigram index over item name, description and category for the item picker.
+ *
+ * A company's index is built in the background from one projection query the first time its
+ * items are searched; until it is ready, search() returns empty and ItemService falls back to the
+ * database. Concurrent searches share one build. Once built, the index is kept current by
+ * ItemService, which reports every write after it has committed; writes reported during the
+ * build are applied on top of it. The least recently searched companies are dropped beyond
+ * max-companies and rebuilt when needed again.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ItemSearchIndex {
+
+    private final ItemRepository itemRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${item.search.max-companies:200}")
+    private int maxCompanies;
+
+    @Value("${item.search.build-threads:2}")
+    private int buildThreads;
+
+    // Both guarded by "companies". Built indexes, access ordered for LRU eviction
+    private final Map<Long, CompanyIndex> companies = new LinkedHashMap<>(16, 0.75f, true);
+    // Companies whose build runs: changes reported meanwhile, applied on top of the built index
+    private final Map<Long, List<Consumer<CompanyIndex>>> pendingChanges = new HashMap<>();
+    private ExecutorService builder;
+
+    @PostConstruct
+    void init() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("item-search-index-");
+        threadFactory.setDaemon(true);
+        builder = Executors.newFixedThreadPool(buildThreads, threadFactory);
+    }
+
+    @PreDestroy
+    void stop() {
+        builder.shutdownNow();
+    }
+
+    /**
+     * One ranked page of the ids of the company's items matching the text, or empty while the
+     * company's index is being built; type, status and category are optional exact filters.
+     */
+    public Optional<TrigramIndex.Result<Long>> search(Long companyId, String text, ItemType type, ItemStatus status,
+                                                      String category, int offset, int limit) {
+        CompanyIndex index;
+        synchronized (companies) {
+            index = companies.get(companyId);
+            if (index == null) {
+                requestBuild(companyId);
+                return Optional.empty();
+            }
+        }
+        return Optional.of(index.text().search(text, id -> {
+            Attributes attributes = index.attributes().get(id);
+            return attributes != null
+                    && (type == null || attributes.type() == type)
+                    && (status == null || attributes.status() == status)
+                    && (category == null || category.equals(attributes.category()));
+        }, offset, limit));
+    }
+
+    /**
+     * Indexes the item's current fields after the current transaction commits.
+     */
+    public void itemChanged(Item item) {
+        Long companyId = item.getCompany().getId();
+        Long id = item.getId();
+        String name = item.getName();
+        String description = item.getDescription();
+        String category = item.getCategory();
+        Attributes attributes = new Attributes(item.getType(), item.getStatus(), category);
+        afterCommit(companyId, index -> {
+            index.text().put(id, name, description, category);
+            index.attributes().put(id, attributes);
+        });
+    }
+
+    public void itemRemoved(Long companyId, Long itemId) {
+        afterCommit(companyId, index -> {
+            index.text().remove(itemId);
+            index.attributes().remove(itemId);
+        });
+    }
+
+    // Caller holds the lock
+    private void requestBuild(Long companyId) {
+        if (pendingChanges.containsKey(companyId)) {
+            return;
+        }
+        pendingChanges.put(companyId, new ArrayList<>());
+        builder.execute(() -> build(companyId));
+    }
+
+    private void build(Long companyId) {
+        try {
+            TransactionTemplate readTransaction = new TransactionTemplate(transactionManager);
+            readTransaction.setReadOnly(true);
+            List<Object[]> rows = readTransaction.execute(status ->
+                    itemRepository.findSearchFieldsByCompanyId(companyId));
+
+            CompanyIndex built = new CompanyIndex(new TrigramIndex<>(), new ConcurrentHashMap<>());
+            for (Object[] row : rows) {
+                Long id = (Long) row[0];
+                built.text().put(id, (String) row[1], (String) row[2], (String) row[3]);
+                built.attributes().put(id, new Attributes((ItemType) row[4], (ItemStatus) row[5], (String) row[3]));
+            }
+
+            synchronized (companies) {
+                pendingChanges.remove(companyId).forEach(change -> change.accept(built));
+                companies.put(companyId, built);
+                Iterator<Long> eldest = companies.keySet().iterator();
+                while (companies.size() > maxCompanies && eldest.hasNext()) {
+                    eldest.next();
+                    eldest.remove();
+                }
+            }
+        } catch (Exception e) {
+            synchronized (companies) {
+                pendingChanges.remove(companyId);
+            }
+            log.error("Could not build item search index for company {}: {}", companyId, e.getMessage());
+        }
+    }
+
+    private void afterCommit(Long companyId, Consumer<CompanyIndex> change) {
+        AfterCommit.run(() -> {
+            synchronized (companies) {
+                CompanyIndex index = companies.get(companyId);
+                List<Consumer<CompanyIndex>> pending = pendingChanges.get(companyId);
+                if (index != null) {
+                    change.accept(index);
+                } else if (pending != null) {
+                    pending.add(change);
+                }
+                // Neither: the next build reads the change from the database
+            }
+        });
+    }
+
+    private record CompanyIndex(TrigramIndex<Long> text, Map<Long, Attributes> attributes) {
+    }
+
+    private record Attributes(ItemType type, ItemStatus status, String category) {
+    }
+}
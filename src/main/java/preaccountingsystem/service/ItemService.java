@@ -2,6 +2,7 @@ package preaccountingsystem.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -17,6 +18,10 @@ import preaccountingsystem.repository.CustomerRepository;
 import preaccountingsystem.repository.ItemRepository;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -29,9 +34,12 @@ public class ItemService {
 
     private final ItemRepository itemRepository;
     private final CustomerRepository customerRepository;
+    private final ItemSearchIndex itemSearchIndex;
 
     /**
-     * Get all items for a company with pagination and filtering
+     * Get all items for a company with pagination and filtering.
+     * With a search text, results are ranked by match quality and sortBy is not applied, except
+     * while the company's search index is still being built.
      */
     @Transactional(readOnly = true)
     public Page<ItemDto> getItems(Long companyId,
@@ -48,6 +56,29 @@ public class ItemService {
             throw new ResourceNotFoundException("Company not found with id: " + companyId);
         }
 
+        String categoryFilter = category != null && !category.trim().isEmpty() ? category.trim() : null;
+
+        // Text search is ranked by relevance from the in-memory index; only the page is loaded
+        String searchText = search != null && !search.trim().isEmpty() ? search.trim() : null;
+        if (searchText != null) {
+            Pageable pageable = PageRequest.of(page, size);
+            Optional<TrigramIndex.Result<Long>> indexed = itemSearchIndex.search(companyId, searchText, type, status,
+                    categoryFilter, (int) pageable.getOffset(), pageable.getPageSize());
+            if (indexed.isPresent()) {
+                TrigramIndex.Result<Long> hits = indexed.get();
+                Map<Long, Item> itemsById = hits.keys().isEmpty() ? Map.of()
+                        : itemRepository.findWithCompanyByIdIn(hits.keys()).stream()
+                                .collect(Collectors.toMap(Item::getId, Function.identity()));
+                List<ItemDto> items = hits.keys().stream()
+                        .map(itemsById::get)
+                        .filter(Objects::nonNull)
+                        .map(this::convertToDto)
+                        .toList();
+                return new PageImpl<>(items, pageable, hits.total());
+            }
+            // Index still building: a LIKE scan, sorted as requested
+        }
+
         Sort sort = sortDirection.equalsIgnoreCase("desc")
                 ? Sort.by(sortBy).descending()
                 : Sort.by(sortBy).ascending();
@@ -56,10 +87,10 @@ public class ItemService {
 
         Page<Item> itemPage = itemRepository.findByFilters(
                 companyId,
-                search != null && !search.trim().isEmpty() ? search.trim() : null,
+                searchText,
                 type,
                 status,
-                category != null && !category.trim().isEmpty() ? category.trim() : null,
+                categoryFilter,
                 pageable
         );
 
@@ -133,6 +164,7 @@ public class ItemService {
                 .build();
 
         Item savedItem = itemRepository.save(item);
+        itemSearchIndex.itemChanged(savedItem);
         return convertToDto(savedItem);
     }
 
@@ -169,6 +201,7 @@ public class ItemService {
         item.setStatus(request.getStatus());
 
         Item updatedItem = itemRepository.save(item);
+        itemSearchIndex.itemChanged(updatedItem);
         return convertToDto(updatedItem);
     }
 
@@ -182,6 +215,7 @@ public class ItemService {
                         "Item not found with id: " + id + " for your company"));
 
         itemRepository.delete(item);
+        itemSearchIndex.itemRemoved(companyId, id);
     }
 
     /**
@@ -195,6 +229,7 @@ public class ItemService {
 
         item.setStatus(ItemStatus.PASSIVE);
         Item updatedItem = itemRepository.save(item);
+        itemSearchIndex.itemChanged(updatedItem);
         return convertToDto(updatedItem);
     }
 
@@ -209,6 +244,7 @@ public class ItemService {
 
         item.setStatus(ItemStatus.ACTIVE);
         Item updatedItem = itemRepository.save(item);
+        itemSearchIndex.itemChanged(updatedItem);
         return convertToDto(updatedItem);
     }
 
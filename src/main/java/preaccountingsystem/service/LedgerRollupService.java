@@ -0,0 +1,98 @@
+package preaccountingsystem.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import preaccountingsystem.entity.CategoryType;
+import preaccountingsystem.entity.IncomeExpense;
+import preaccountingsystem.event.LedgerChangedEvent;
+import preaccountingsystem.repository.IncomeExpenseRepository;
+import preaccountingsystem.repository.MonthlyLedgerRollupRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Keeps monthly_ledger_rollup in step with income_expenses.
+ * Incremental updates join the caller's transaction, so a rolled back ledger write
+ * also rolls back its rollup delta. Every change publishes a LedgerChangedEvent, which
+ * evicts the company's cached dashboards and AI context.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LedgerRollupService {
+
+    private final MonthlyLedgerRollupRepository rollupRepository;
+    private final IncomeExpenseRepository incomeExpenseRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Transactional
+    public void recordAdded(IncomeExpense entry) {
+        applyDelta(entry.getCompany().getId(), entry.getDate(), entry.getCategory().getId(),
+                entry.getCategory().getType(), entry.getCurrency(), entry.getAmount(), 1);
+    }
+
+    @Transactional
+    public void recordRemoved(Long companyId, LocalDate date, Long categoryId, CategoryType categoryType,
+                              String currency, BigDecimal amount) {
+        applyDelta(companyId, date, categoryId, categoryType, currency, amount.negate(), -1);
+    }
+
+    /**
+     * Recomputes the rollup of one company from its ledger rows.
+     */
+    @Transactional
+    public void rebuild(Long companyId) {
+        rebuildCompany(companyId);
+    }
+
+    /**
+     * Recomputes the rollup of every company that has ledger rows, one transaction per company.
+     */
+    public void rebuildAll() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        List<Long> companyIds = incomeExpenseRepository.findDistinctCompanyIds();
+        for (Long companyId : companyIds) {
+            transaction.executeWithoutResult(status -> rebuildCompany(companyId));
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public boolean isEmpty() {
+        return rollupRepository.count() == 0;
+    }
+
+    private void rebuildCompany(Long companyId) {
+        rollupRepository.deleteByCompanyId(companyId);
+        eventPublisher.publishEvent(new LedgerChangedEvent(companyId));
+
+        List<Object[]> rows = incomeExpenseRepository.aggregateMonthlyByCategoryAndCurrency(companyId);
+        for (Object[] row : rows) {
+            int year = ((Number) row[0]).intValue();
+            int month = ((Number) row[1]).intValue();
+            rollupRepository.addDelta(
+                    companyId,
+                    LocalDate.of(year, month, 1),
+                    (Long) row[2],
+                    ((CategoryType) row[3]).name(),
+                    (String) row[4],
+                    (BigDecimal) row[5],
+                    ((Number) row[6]).longValue());
+        }
+        log.info("Rebuilt monthly ledger rollup for company {} ({} cells)", companyId, rows.size());
+    }
+
+    private void applyDelta(Long companyId, LocalDate date, Long categoryId, CategoryType categoryType,
+                            String currency, BigDecimal amount, long entryCount) {
+        rollupRepository.addDelta(companyId, date.withDayOfMonth(1), categoryId, categoryType.name(),
+                currency, amount, entryCount);
+        eventPublisher.publishEvent(new LedgerChangedEvent(companyId));
+    }
+}
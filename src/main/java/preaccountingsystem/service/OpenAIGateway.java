@@ -0,0 +1,368 @@
+package preaccountingsystem.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import preaccountingsystem.exception.BusinessException;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Non-blocking client for the OpenAI chat completions API.
+ *
+ * One shared java.net.http.HttpClient keeps pooled keep-alive connections and completes
+ * requests on a small internal executor, so no request thread waits for the remote call.
+ * Every call has a deadline, and a bulkhead caps the completions in flight: when it is full
+ * new calls are rejected right away instead of queueing.
+ *
+ * Streamed completions are read line by line with demand of one: the next server-sent line
+ * is only requested once the previous delta has been handed to the caller, so a slow client
+ * slows down reading from OpenAI instead of piling up deltas in memory.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OpenAIGateway {
+
+    private static final String NO_ANSWER = "AI servisine ulaşıldı ancak anlamlı bir cevap alınamadı.";
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${openai.base-url:https://api.openai.com/v1}")
+    private String baseUrl;
+
+    @Value("${openai.api-key:}")
+    private String openAiApiKey;
+
+    @Value("${openai.model:gpt-3.5-turbo}")
+    private String model;
+
+    @Value("${openai.connect-timeout-ms:5000}")
+    private long connectTimeoutMs;
+
+    @Value("${openai.timeout-ms:30000}")
+    private long timeoutMs;
+
+    @Value("${openai.stream-timeout-ms:120000}")
+    private long streamTimeoutMs;
+
+    @Value("${openai.max-concurrent:8}")
+    private int maxConcurrent;
+
+    private HttpClient httpClient;
+    private ExecutorService executor;
+    private Semaphore bulkhead;
+
+    @PostConstruct
+    void start() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("openai-");
+        threadFactory.setDaemon(true);
+        executor = Executors.newFixedThreadPool(Math.max(2, maxConcurrent), threadFactory);
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(executor)
+                .build();
+        bulkhead = new Semaphore(maxConcurrent);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * How long a caller should wait for {@link #complete} before giving up.
+     */
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    /**
+     * How long a caller should wait for {@link #stream} before giving up.
+     */
+    public long getStreamTimeoutMs() {
+        return streamTimeoutMs;
+    }
+
+    /**
+     * Text shown to the user; {@code answered} is false when it is an error message or a
+     * partial answer instead of the model's complete reply. {@code failed} is true when the
+     * call itself went wrong (API error, timeout, no content), as opposed to a stream the
+     * client left early.
+     */
+    public record Completion(String text, boolean answered, boolean failed) {
+
+        static Completion failed(String message) {
+            return new Completion(message, false, true);
+        }
+    }
+
+    /**
+     * Sends one chat completion and returns the assistant's text. API errors are turned into
+     * a readable message, as the assistant has always shown them to the user.
+     */
+    public CompletableFuture<Completion> complete(String systemPrompt, String userContent) {
+        String apiKey = resolveApiKey();
+        if (apiKey.isEmpty()) {
+            return CompletableFuture.completedFuture(Completion.failed(missingKeyMessage()));
+        }
+
+        acquire();
+        HttpRequest request;
+        try {
+            request = buildRequest(apiKey, systemPrompt, userContent, false);
+        } catch (Exception e) {
+            bulkhead.release();
+            return CompletableFuture.completedFuture(
+                    Completion.failed("AI Servisi şu an yanıt veremiyor. Hata: " + e.getMessage()));
+        }
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(this::extractContent)
+                .exceptionally(error -> Completion.failed(describeFailure(error)))
+                .whenComplete((content, error) -> bulkhead.release());
+    }
+
+    /**
+     * Streams one chat completion, passing each text delta to {@code onDelta} as it arrives,
+     * and returns the assembled text once the stream ends. API errors are delivered as a
+     * final delta, like {@link #complete} returns them as the answer. If {@code onDelta}
+     * throws (the client went away) the upstream stream is cancelled and the text delivered
+     * so far is returned.
+     */
+    public CompletableFuture<Completion> stream(String systemPrompt, String userContent, Consumer<String> onDelta) {
+        String apiKey = resolveApiKey();
+        if (apiKey.isEmpty()) {
+            String message = missingKeyMessage();
+            onDelta.accept(message);
+            return CompletableFuture.completedFuture(Completion.failed(message));
+        }
+
+        acquire();
+        DeltaSubscriber subscriber = new DeltaSubscriber(onDelta);
+        try {
+            HttpRequest request = buildRequest(apiKey, systemPrompt, userContent, true);
+            // Error responses are plain JSON, only successful ones are read as server-sent lines
+            HttpResponse.BodyHandler<String> handler = info -> info.statusCode() >= 400
+                    ? HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8)
+                    : HttpResponse.BodySubscribers.fromLineSubscriber(subscriber, s -> null, StandardCharsets.UTF_8, null);
+
+            httpClient.sendAsync(request, handler).whenComplete((response, error) -> {
+                if (error != null) {
+                    subscriber.fail(describeFailure(error));
+                } else if (response.statusCode() >= 400) {
+                    subscriber.fail("AI Servisi hatası: " + response.statusCode() + " - " + response.body());
+                }
+            });
+        } catch (Exception e) {
+            subscriber.fail("AI Servisi şu an yanıt veremiyor. Hata: " + e.getMessage());
+        }
+
+        return subscriber.result
+                .orTimeout(streamTimeoutMs, TimeUnit.MILLISECONDS)
+                .handle((completion, error) -> {
+                    subscriber.cancel();
+                    return error == null ? completion : subscriber.finishWith(describeFailure(error));
+                })
+                .whenComplete((completion, error) -> bulkhead.release());
+    }
+
+    private void acquire() {
+        if (!bulkhead.tryAcquire()) {
+            throw new BusinessException("AI asistanı şu an yoğun, lütfen biraz sonra tekrar deneyin.");
+        }
+    }
+
+    private HttpRequest buildRequest(String apiKey, String systemPrompt, String userContent, boolean stream)
+            throws Exception {
+        Map<String, Object> body = Map.of(
+                "model", model,
+                "stream", stream,
+                "messages", List.of(
+                        Map.of("role", "system", "content", systemPrompt),
+                        Map.of("role", "user", "content", userContent)));
+        // For a stream the deadline covers the response headers; the whole stream has its own
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/chat/completions"))
+                .timeout(Duration.ofMillis(timeoutMs))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + apiKey)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+    }
+
+    private Completion extractContent(HttpResponse<String> response) {
+        if (response.statusCode() >= 400) {
+            return Completion.failed("AI Servisi hatası: " + response.statusCode() + " - " + response.body());
+        }
+        try {
+            JsonNode content = objectMapper.readTree(response.body())
+                    .path("choices").path(0).path("message").path("content");
+            return content.isMissingNode() || content.isNull()
+                    ? Completion.failed(NO_ANSWER)
+                    : new Completion(content.asText(), true, false);
+        } catch (Exception e) {
+            return Completion.failed(NO_ANSWER);
+        }
+    }
+
+    private String describeFailure(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof HttpTimeoutException || cause instanceof TimeoutException) {
+            log.warn("OpenAI call timed out");
+            return "AI Servisi zaman aşımına uğradı, lütfen tekrar deneyin.";
+        }
+        log.warn("OpenAI call failed: {}", cause.getMessage());
+        return "AI Servisi şu an yanıt veremiyor. Hata: " + cause.getMessage();
+    }
+
+    private static String missingKeyMessage() {
+        return "HATA: OpenAI API anahtarı yapılandırılmamış. Lütfen sistem yöneticinizle iletişime geçin.";
+    }
+
+    /**
+     * Reads "data:" lines of a streamed completion one at a time and forwards their deltas.
+     */
+    private final class DeltaSubscriber implements Flow.Subscriber<String> {
+
+        private final Consumer<String> onDelta;
+        private final StringBuilder text = new StringBuilder();
+        private final CompletableFuture<Completion> result = new CompletableFuture<>();
+        private volatile Flow.Subscription subscription;
+        private volatile boolean clientGone;
+
+        DeltaSubscriber(Consumer<String> onDelta) {
+            this.onDelta = onDelta;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (result.isDone()) {
+                subscription.cancel();
+            } else {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (line.startsWith("data:")) {
+                String data = line.substring(5).trim();
+                if ("[DONE]".equals(data)) {
+                    result.complete(assembled(true));
+                    return;
+                }
+                String delta = parseDelta(data);
+                if (!delta.isEmpty() && !deliver(delta)) {
+                    // Keep what the client already received; the rest of the stream is dropped
+                    cancel();
+                    result.complete(assembled(false));
+                    return;
+                }
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            result.completeExceptionally(error);
+        }
+
+        @Override
+        public void onComplete() {
+            result.complete(assembled(true));
+        }
+
+        void fail(String message) {
+            result.complete(finishWith(message));
+        }
+
+        Completion finishWith(String message) {
+            deliver(message);
+            return new Completion(assembled(false).text(), false, true);
+        }
+
+        void cancel() {
+            Flow.Subscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+
+        private boolean deliver(String delta) {
+            synchronized (text) {
+                if (clientGone) {
+                    return false;
+                }
+                try {
+                    onDelta.accept(delta);
+                    text.append(delta);
+                    return true;
+                } catch (RuntimeException e) {
+                    log.debug("Stopped streaming AI answer: {}", e.getMessage());
+                    clientGone = true;
+                    return false;
+                }
+            }
+        }
+
+        private Completion assembled(boolean finished) {
+            synchronized (text) {
+                String assembled = text.toString();
+                return assembled.isEmpty()
+                        ? Completion.failed(NO_ANSWER)
+                        : new Completion(assembled, finished && !clientGone, false);
+            }
+        }
+
+        private String parseDelta(String data) {
+            try {
+                JsonNode content = objectMapper.readTree(data).path("choices").path(0).path("delta").path("content");
+                return content.isTextual() ? content.asText() : "";
+            } catch (Exception e) {
+                return "";
+            }
+        }
+    }
+
+    private String resolveApiKey() {
+        String key = openAiApiKey;
+        if (key == null || key.trim().isEmpty()) {
+            key = System.getenv("OPENAI_API_KEY");
+        }
+        if (key == null) {
+            return "";
+        }
+        key = key.trim();
+        if (key.startsWith("\"") && key.endsWith("\"") && key.length() > 1) {
+            key = key.substring(1, key.length() - 1).trim();
+        }
+        if (key.toLowerCase().startsWith("bearer ")) {
+            key = key.substring(7).trim();
+        }
+        return key;
+    }
+}
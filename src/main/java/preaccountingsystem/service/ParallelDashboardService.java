@@ -0,0 +1,179 @@
+package preaccountingsystem.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import preaccountingsystem.dto.DashboardDto;
+import preaccountingsystem.dto.ExpenseDistributionDto;
+import preaccountingsystem.dto.MonthlyIncomeExpenseDto;
+import preaccountingsystem.dto.UnpaidInvoiceSummaryDto;
+import preaccountingsystem.entity.CategoryType;
+import preaccountingsystem.exception.BusinessException;
+import preaccountingsystem.exception.ResourceNotFoundException;
+import preaccountingsystem.repository.CustomerRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Opt-in dashboard mode that computes the independent sections concurrently.
+ *
+ * Each section runs through the DashboardService proxy on a worker thread, so it gets its
+ * own short read-only transaction. Two limits keep the connection pool from being drained:
+ * a fixed-size worker pool shared by all tenants, and a per-tenant budget of sections in
+ * flight. A section that cannot get a slot runs on the request thread instead of waiting.
+ *
+ * Section transactions time out with the request, so their queries are cancelled by the
+ * database; when the request gives up (timeout or a failed section) it also cancels the
+ * sections still running. A tenant's slot is held until its section has really finished, and
+ * tenants without sections in flight take no memory.
+ */
+@Service
+@RequiredArgsConstructor
+public class ParallelDashboardService {
+
+    private final DashboardService dashboardService;
+    private final CustomerRepository customerRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${dashboard.parallel.enabled:false}")
+    private boolean enabledByDefault;
+
+    @Value("${dashboard.parallel.max-threads:6}")
+    private int maxThreads;
+
+    @Value("${dashboard.parallel.per-tenant:3}")
+    private int perTenantBudget;
+
+    @Value("${dashboard.parallel.timeout-ms:30000}")
+    private long timeoutMs;
+
+    // Sections in flight per tenant; a tenant is removed when its count drops to zero
+    private final ConcurrentMap<Long, Integer> runningSections = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+    private TransactionTemplate sectionTransaction;
+
+    @PostConstruct
+    void start() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("dashboard-section-");
+        threadFactory.setDaemon(true);
+        // No queue: when every worker is busy the caller runs the section itself
+        executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+
+        sectionTransaction = new TransactionTemplate(transactionManager);
+        sectionTransaction.setReadOnly(true);
+        sectionTransaction.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(timeoutMs + 999)));
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdown();
+    }
+
+    /**
+     * Whether a request should use the parallel mode; an explicit request flag wins over the configured default.
+     */
+    public boolean isEnabled(Boolean requested) {
+        return requested != null ? requested : enabledByDefault;
+    }
+
+    public DashboardDto getDashboard(Long companyId, LocalDate startDate, LocalDate endDate) {
+        if (!customerRepository.existsById(companyId)) {
+            throw new ResourceNotFoundException("Company not found with id: " + companyId);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        List<Future<?>> sections = new ArrayList<>();
+
+        try {
+            Future<BigDecimal> totalIncome = submit(companyId, sections,
+                    () -> dashboardService.getTotal(companyId, CategoryType.INCOME, startDate, endDate));
+            Future<BigDecimal> totalExpense = submit(companyId, sections,
+                    () -> dashboardService.getTotal(companyId, CategoryType.EXPENSE, startDate, endDate));
+            Future<List<MonthlyIncomeExpenseDto>> monthlyData = submit(companyId, sections,
+                    () -> dashboardService.getMonthlyIncomeExpense(companyId, startDate, endDate));
+            Future<List<ExpenseDistributionDto>> expenseDistribution = submit(companyId, sections,
+                    () -> dashboardService.getExpenseDistribution(companyId, startDate, endDate));
+            Future<List<UnpaidInvoiceSummaryDto>> unpaidInvoices = submit(companyId, sections,
+                    () -> dashboardService.getUnpaidInvoices(companyId));
+
+            return DashboardService.buildDashboard(
+                    await(totalIncome, deadline),
+                    await(totalExpense, deadline),
+                    await(monthlyData, deadline),
+                    await(expenseDistribution, deadline),
+                    await(unpaidInvoices, deadline));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new BusinessException("Failed to load dashboard: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new BusinessException("Dashboard could not be computed within " + timeoutMs + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Dashboard computation was interrupted");
+        } finally {
+            // No-op for finished sections; stops the others from holding workers and connections
+            sections.forEach(section -> section.cancel(true));
+        }
+    }
+
+    private <T> Future<T> submit(Long companyId, List<Future<?>> sections, Supplier<T> section) {
+        Callable<T> inTransaction = () -> sectionTransaction.execute(status -> section.get());
+        Future<T> future;
+        if (!tryAcquire(companyId)) {
+            // Tenant already uses its share of the pool; compute on the request thread
+            FutureTask<T> task = new FutureTask<>(inTransaction);
+            task.run();
+            future = task;
+        } else {
+            try {
+                future = executor.submit(() -> {
+                    try {
+                        return inTransaction.call();
+                    } finally {
+                        release(companyId);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                release(companyId);
+                throw e;
+            }
+        }
+        sections.add(future);
+        return future;
+    }
+
+    private static <T> T await(Future<T> section, long deadline)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        return section.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    private boolean tryAcquire(Long companyId) {
+        boolean[] acquired = {false};
+        runningSections.compute(companyId, (id, running) -> {
+            int current = running != null ? running : 0;
+            if (current >= perTenantBudget) {
+                return running;
+            }
+            acquired[0] = true;
+            return current + 1;
+        });
+        return acquired[0];
+    }
+
+    private void release(Long companyId) {
+        runningSections.computeIfPresent(companyId, (id, running) -> running > 1 ? running - 1 : null);
+    }
+}
@@ -1,11 +1,13 @@
 package preaccountingsystem.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import preaccountingsystem.dto.CreatePaymentRequest;
 import preaccountingsystem.dto.PaymentDto;
 import preaccountingsystem.entity.*;
+import preaccountingsystem.event.InvoiceChangedEvent;
 import preaccountingsystem.exception.BusinessException;
 import preaccountingsystem.exception.ResourceNotFoundException;
 import preaccountingsystem.repository.*;
@@ -23,6 +25,8 @@ public class PaymentService {
     private final CustomerSupplierRepository customerSupplierRepository;
     private final InvoiceRepository invoiceRepository;
     private final CustomerRepository customerRepository;
+    private final InvoicePdfCache invoicePdfCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public PaymentDto createPayment(CreatePaymentRequest request, Long companyId) {
@@ -126,6 +130,8 @@ public class PaymentService {
             invoice.getStatus() != InvoiceStatus.PAID) {
             invoice.setStatus(InvoiceStatus.PAID);
             invoiceRepository.save(invoice);
+            invoicePdfCache.invalidate(invoice.getId());
+            eventPublisher.publishEvent(new InvoiceChangedEvent(invoice.getCompany().getId()));
         }
     }
 
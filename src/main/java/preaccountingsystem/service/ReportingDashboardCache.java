@@ -0,0 +1,61 @@
+package preaccountingsystem.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import preaccountingsystem.dto.DashboardDto;
+import preaccountingsystem.event.InvoiceChangedEvent;
+import preaccountingsystem.event.LedgerChangedEvent;
+
+import java.time.LocalDate;
+import java.util.function.Supplier;
+
+/**
+ * Cache of reporting-currency dashboards per (company, period, reporting currency).
+ *
+ * Ledger and invoice writes evict the company's entries through LedgerChangedEvent and
+ * InvoiceChangedEvent; the TTL bounds how long a dashboard can miss a refreshed exchange rate.
+ */
+@Component
+public class ReportingDashboardCache {
+
+    @Value("${dashboard.reporting.cache-ttl-ms:300000}")
+    private long ttlMs;
+
+    @Value("${dashboard.reporting.cache-max-entries:5000}")
+    private int maxEntries;
+
+    private TtlCache<ReportKey, DashboardDto> reports;
+
+    @PostConstruct
+    void init() {
+        reports = new TtlCache<>(ttlMs, maxEntries, ReportKey::companyId);
+    }
+
+    public DashboardDto get(Long companyId, LocalDate startDate, LocalDate endDate, String reportingCurrency,
+                            Supplier<DashboardDto> loader) {
+        return reports.get(new ReportKey(companyId, startDate, endDate, reportingCurrency), loader);
+    }
+
+    @EventListener
+    public void onLedgerChanged(LedgerChangedEvent event) {
+        invalidateCompany(event.companyId());
+    }
+
+    // The dashboard's unpaid invoice section changes with every created, cancelled or paid invoice
+    @EventListener
+    public void onInvoiceChanged(InvoiceChangedEvent event) {
+        invalidateCompany(event.companyId());
+    }
+
+    /**
+     * Evicts every cached dashboard of the company, now and again after the current transaction commits.
+     */
+    public void invalidateCompany(Long companyId) {
+        reports.invalidateGroup(companyId);
+    }
+
+    private record ReportKey(Long companyId, LocalDate startDate, LocalDate endDate, String reportingCurrency) {
+    }
+}
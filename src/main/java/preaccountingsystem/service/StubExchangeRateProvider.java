@@ -0,0 +1,45 @@
+package preaccountingsystem.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Offline provider with fixed rates for the default currencies, for local runs and tests.
+ */
+@Service
+@ConditionalOnProperty(name = "currency.provider", havingValue = "stub")
+public class StubExchangeRateProvider implements ExchangeRateProvider {
+
+    // Units per one USD
+    private static final Map<String, BigDecimal> USD_RATES = Map.of(
+            "USD", BigDecimal.ONE,
+            "EUR", new BigDecimal("0.92"),
+            "GBP", new BigDecimal("0.79"),
+            "TRY", new BigDecimal("32.50"),
+            "JPY", new BigDecimal("151.00"),
+            "CHF", new BigDecimal("0.90"),
+            "CAD", new BigDecimal("1.36"),
+            "AUD", new BigDecimal("1.52"));
+
+    @Override
+    public Map<String, BigDecimal> fetchLatestRates(String baseCurrency) {
+        BigDecimal base = USD_RATES.get(baseCurrency);
+        if (base == null) {
+            return new HashMap<>();
+        }
+
+        Map<String, BigDecimal> rates = new HashMap<>();
+        USD_RATES.forEach((code, rate) -> rates.put(code, rate.divide(base, 10, RoundingMode.HALF_UP)));
+        return rates;
+    }
+
+    @Override
+    public String sourceName() {
+        return "Stub";
+    }
+}
@@ -0,0 +1,276 @@
+package preaccountingsystem.service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory substring search over a few text fields per key.
+ *
+ * Every field is normalized (lower case, Turkish i variants folded to "i") and split into
+ * overlapping three-character grams; each gram points at the documents containing it. A query of
+ * three or more characters only looks at documents holding all of its grams, then checks them with
+ * a plain substring match, so results are the same as a contains() scan. Shorter queries scan
+ * the stored fields, which is still a pass over memory instead of a table.
+ *
+ * Documents are numbered in insertion order and the gram lists are sorted int arrays of those
+ * numbers, so a large catalog costs a few bytes per gram occurrence. A replaced or removed
+ * document is only marked dead; the index renumbers itself once half of it is dead.
+ *
+ * Matches are ranked by how they hit the best field: the whole field, a field prefix, a word
+ * prefix, then anywhere; earlier fields win ties, then smaller keys. Thread safe.
+ */
+final class TrigramIndex<K extends Comparable<K>> {
+
+    private static final int GRAM = 3;
+    private static final int MIN_DEAD_TO_COMPACT = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<K, Integer> ordinals = new HashMap<>();
+    // By ordinal; null once the document is dead
+    private final List<K> keys = new ArrayList<>();
+    private final List<String[]> documents = new ArrayList<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private int dead;
+
+    /**
+     * Adds the key, or replaces its fields. Null fields are stored as empty.
+     */
+    void put(K key, String... fields) {
+        String[] normalized = new String[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            normalized[i] = normalize(fields[i]);
+        }
+
+        lock.writeLock().lock();
+        try {
+            Integer previous = ordinals.get(key);
+            if (previous != null) {
+                kill(previous);
+            }
+            append(key, normalized);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(K key) {
+        lock.writeLock().lock();
+        try {
+            Integer previous = ordinals.remove(key);
+            if (previous != null) {
+                kill(previous);
+                compactIfNeeded();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * One page of the keys matching the query, best first, with the number of all matches.
+     */
+    Result<K> search(String query, int offset, int limit) {
+        return search(query, key -> true, offset, limit);
+    }
+
+    /**
+     * Same, counting only keys accepted by the filter.
+     */
+    Result<K> search(String query, Predicate<K> filter, int offset, int limit) {
+        String term = normalize(query);
+        if (term.isEmpty()) {
+            return new Result<>(List.of(), 0);
+        }
+
+        List<Match<K>> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            PrimitiveIterator.OfInt candidates = candidates(term);
+            while (candidates.hasNext()) {
+                int ordinal = candidates.nextInt();
+                String[] fields = documents.get(ordinal);
+                if (fields == null || !filter.test(keys.get(ordinal))) {
+                    continue;
+                }
+                int score = score(fields, term);
+                if (score > 0) {
+                    matches.add(new Match<>(keys.get(ordinal), score));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        matches.sort(Comparator.<Match<K>>comparingInt(Match::score).reversed().thenComparing(Match::key));
+        int from = Math.min(offset, matches.size());
+        int to = Math.min(from + limit, matches.size());
+        return new Result<>(matches.subList(from, to).stream().map(Match::key).toList(), matches.size());
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            normalized.append(c == 'I' || c == 'İ' || c == 'ı' ? 'i' : Character.toLowerCase(c));
+        }
+        return normalized.toString().trim();
+    }
+
+    // Caller holds the read lock
+    private PrimitiveIterator.OfInt candidates(String term) {
+        if (term.length() < GRAM) {
+            return IntStream.range(0, documents.size()).iterator();
+        }
+        List<Postings> lists = new ArrayList<>();
+        for (long gram : grams(new String[]{term})) {
+            Postings list = postings.get(gram);
+            if (list == null) {
+                return IntStream.empty().iterator();
+            }
+            lists.add(list);
+        }
+        // Walk the rarest gram and probe the others
+        lists.sort(Comparator.comparingInt(Postings::size));
+        Postings rarest = lists.get(0);
+        return IntStream.range(0, rarest.size())
+                .map(rarest::get)
+                .filter(ordinal -> {
+                    for (int i = 1; i < lists.size(); i++) {
+                        if (!lists.get(i).contains(ordinal)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                })
+                .iterator();
+    }
+
+    // Caller holds the write lock
+    private void append(K key, String[] fields) {
+        int ordinal = keys.size();
+        keys.add(key);
+        documents.add(fields);
+        ordinals.put(key, ordinal);
+        for (long gram : grams(fields)) {
+            postings.computeIfAbsent(gram, g -> new Postings()).add(ordinal);
+        }
+    }
+
+    // Caller holds the write lock
+    private void kill(int ordinal) {
+        keys.set(ordinal, null);
+        documents.set(ordinal, null);
+        dead++;
+    }
+
+    // Caller holds the write lock
+    private void compactIfNeeded() {
+        if (dead < MIN_DEAD_TO_COMPACT || dead * 2 < documents.size()) {
+            return;
+        }
+        List<K> liveKeys = new ArrayList<>(ordinals.size());
+        List<String[]> liveDocuments = new ArrayList<>(ordinals.size());
+        for (int i = 0; i < documents.size(); i++) {
+            if (documents.get(i) != null) {
+                liveKeys.add(keys.get(i));
+                liveDocuments.add(documents.get(i));
+            }
+        }
+        ordinals.clear();
+        keys.clear();
+        documents.clear();
+        postings.clear();
+        dead = 0;
+        for (int i = 0; i < liveKeys.size(); i++) {
+            append(liveKeys.get(i), liveDocuments.get(i));
+        }
+    }
+
+    // Distinct grams of the fields, three chars packed into a long
+    private static long[] grams(String[] fields) {
+        Set<Long> grams = new HashSet<>();
+        for (String field : fields) {
+            for (int i = 0; i + GRAM <= field.length(); i++) {
+                grams.add(((long) field.charAt(i) << 32) | ((long) field.charAt(i + 1) << 16) | field.charAt(i + 2));
+            }
+        }
+        return grams.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static int score(String[] fields, String term) {
+        int best = 0;
+        for (int i = 0; i < fields.length; i++) {
+            String field = fields[i];
+            int index = field.indexOf(term);
+            if (index < 0) {
+                continue;
+            }
+            int kind;
+            if (field.length() == term.length()) {
+                kind = 4;
+            } else if (index == 0) {
+                kind = 3;
+            } else {
+                kind = 1;
+                for (; index > 0; index = field.indexOf(term, index + 1)) {
+                    if (!Character.isLetterOrDigit(field.charAt(index - 1))) {
+                        kind = 2;
+                        break;
+                    }
+                }
+            }
+            best = Math.max(best, kind * 100 + (fields.length - i));
+        }
+        return best;
+    }
+
+    /**
+     * Ascending ordinals holding one gram. Ordinals only grow, so appending keeps the order.
+     */
+    private static final class Postings {
+
+        private int[] ordinals = new int[4];
+        private int size;
+
+        void add(int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+
+        int get(int index) {
+            return ordinals[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean contains(int ordinal) {
+            return Arrays.binarySearch(ordinals, 0, size, ordinal) >= 0;
+        }
+    }
+
+    record Result<K>(List<K> keys, int total) {
+    }
+
+    private record Match<K>(K key, int score) {
+    }
+}
@@ -0,0 +1,88 @@
+package preaccountingsystem.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-memory cache with a fixed time to live, invalidated by group (usually the company
+ * the entries belong to) when the data behind them changes.
+ *
+ * Invalidations run now and again after the current transaction commits (see AfterCommit), and
+ * each one bumps a generation counter. A loaded value is stored only if no invalidation that
+ * could cover it happened while it was loading, so a load that read the rows before a write
+ * committed cannot put the old value back after the eviction. When the cache is full, expired
+ * entries are dropped and new values are returned without being stored until there is room.
+ */
+public class TtlCache<K, V> {
+
+    private final long ttlMs;
+    private final int maxEntries;
+    private final Function<K, ?> groupOf;
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Map<Object, Long> generations = new ConcurrentHashMap<>();
+    // Bumped by invalidations that match values instead of a group; guards every load
+    private final AtomicLong sweeps = new AtomicLong();
+
+    public TtlCache(long ttlMs, int maxEntries, Function<K, ?> groupOf) {
+        this.ttlMs = ttlMs;
+        this.maxEntries = maxEntries;
+        this.groupOf = groupOf;
+    }
+
+    /**
+     * The cached value, or the loader's value when there is no live entry.
+     */
+    public V get(K key, Supplier<V> loader) {
+        long now = System.currentTimeMillis();
+        Entry<V> cached = entries.get(key);
+        if (cached != null && cached.expiresAt() > now) {
+            return cached.value();
+        }
+
+        Object group = groupOf.apply(key);
+        long generation = generation(group);
+        V loaded = loader.get();
+        if (entries.size() >= maxEntries) {
+            entries.values().removeIf(entry -> entry.expiresAt() <= now);
+        }
+        if (entries.size() < maxEntries) {
+            Entry<V> fresh = new Entry<>(loaded, now + ttlMs);
+            entries.compute(key, (k, current) -> generation(group) == generation ? fresh : current);
+        }
+        return loaded;
+    }
+
+    /**
+     * Drops every entry of the group, now and again after the current transaction commits.
+     */
+    public void invalidateGroup(Object group) {
+        AfterCommit.nowAndAfterCommit(() -> {
+            generations.merge(group, 1L, Long::sum);
+            entries.keySet().removeIf(key -> group.equals(groupOf.apply(key)));
+        });
+    }
+
+    /**
+     * Drops the entries whose value matches, now and again after the current transaction commits.
+     * No load running meanwhile is stored, whatever its group.
+     */
+    public void invalidateIf(Predicate<V> matches) {
+        AfterCommit.nowAndAfterCommit(() -> {
+            sweeps.incrementAndGet();
+            entries.values().removeIf(entry -> matches.test(entry.value()));
+        });
+    }
+
+    // Both counters only grow, so the sum is unchanged exactly when neither moved
+    private long generation(Object group) {
+        return sweeps.get() + generations.getOrDefault(group, 0L);
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
@@ -0,0 +1,87 @@
+package preaccountingsystem.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+import preaccountingsystem.entity.CompanyStatus;
+import preaccountingsystem.entity.Customer;
+import preaccountingsystem.entity.Role;
+import preaccountingsystem.entity.User;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrincipalCacheTest {
+
+    private PrincipalCache cache;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        cache = new PrincipalCache();
+        ReflectionTestUtils.setField(cache, "ttlMs", 60_000L);
+        ReflectionTestUtils.setField(cache, "maxEntries", 100);
+        cache.init();
+    }
+
+    @Test
+    void cachesTheLoadedPrincipal() {
+        cache.get("alice", loader(CompanyStatus.ACTIVE, null));
+        PrincipalCache.CachedPrincipal second = cache.get("alice", loader(CompanyStatus.ACTIVE, null));
+
+        assertThat(loads).hasValue(1);
+        assertThat(second.isCompanyActive()).isTrue();
+    }
+
+    @Test
+    void loadOverlappingAUserEvictionIsNotCached() {
+        cache.get("alice", loader(CompanyStatus.ACTIVE, () -> cache.invalidateUser("alice")));
+        PrincipalCache.CachedPrincipal reloaded = cache.get("alice", loader(CompanyStatus.ACTIVE, null));
+
+        assertThat(loads).hasValue(2);
+        assertThat(reloaded.companyId()).isEqualTo(7L);
+    }
+
+    @Test
+    void loadOverlappingACompanyEvictionIsNotCached() {
+        // The admin disables the company while the old row is being loaded
+        cache.get("alice", loader(CompanyStatus.ACTIVE, () -> cache.invalidateCompany(7L)));
+        PrincipalCache.CachedPrincipal reloaded = cache.get("alice", loader(CompanyStatus.SUSPENDED, null));
+
+        assertThat(loads).hasValue(2);
+        assertThat(reloaded.isCompanyActive()).isFalse();
+    }
+
+    @Test
+    void companyEvictionDropsItsUsersOnly() {
+        cache.get("alice", loader(CompanyStatus.ACTIVE, null));
+        cache.get("bob", username -> user(username, 8L, CompanyStatus.ACTIVE));
+
+        cache.invalidateCompany(7L);
+        cache.get("alice", loader(CompanyStatus.ACTIVE, null));
+        cache.get("bob", username -> {
+            throw new AssertionError("bob should still be cached");
+        });
+
+        assertThat(loads).hasValue(2);
+    }
+
+    private Function<String, UserDetails> loader(CompanyStatus status, Runnable duringLoad) {
+        return username -> {
+            loads.incrementAndGet();
+            UserDetails loaded = user(username, 7L, status);
+            if (duringLoad != null) {
+                duringLoad.run();
+            }
+            return loaded;
+        };
+    }
+
+    private static UserDetails user(String username, Long companyId, CompanyStatus status) {
+        Customer company = Customer.builder().id(companyId).name("Acme").status(status).build();
+        return User.builder().id(1L).username(username).role(Role.CUSTOMER).customer(company).build();
+    }
+}
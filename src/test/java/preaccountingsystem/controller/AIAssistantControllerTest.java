@@ -0,0 +1,149 @@
+package preaccountingsystem.controller;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import preaccountingsystem.entity.User;
+import preaccountingsystem.repository.UserRepository;
+import preaccountingsystem.service.FakeCompletionServer;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AIAssistantControllerTest {
+
+    private static final FakeCompletionServer OPENAI = new FakeCompletionServer(10);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @DynamicPropertySource
+    static void openAiProperties(DynamicPropertyRegistry registry) throws IOException {
+        OPENAI.start();
+        registry.add("openai.base-url", OPENAI::getBaseUrl);
+        registry.add("openai.api-key", () -> "test-key");
+    }
+
+    @AfterAll
+    static void stopOpenAi() {
+        OPENAI.stop();
+    }
+
+    @Test
+    void queryStreamSendsDeltasThenDone() throws Exception {
+        // Seeded at startup with the demo company
+        User customer = userRepository.findByUsername("testcustomer").orElseThrow();
+
+        MvcResult result = mockMvc.perform(post("/api/ai/query/stream")
+                        .with(user(customer))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .content("{\"query\": \"Bu ay nasıl gidiyor?\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult(10_000);
+
+        assertThat(result.getResponse().getStatus()).isEqualTo(200);
+        assertThat(result.getResponse().getContentType()).startsWith(MediaType.TEXT_EVENT_STREAM_VALUE);
+
+        String body = result.getResponse().getContentAsString(StandardCharsets.UTF_8);
+        List<String> events = eventNames(body);
+        assertThat(events).hasSizeGreaterThan(2);
+        assertThat(events.subList(0, events.size() - 1)).containsOnly("delta");
+        assertThat(events.get(events.size() - 1)).isEqualTo("done");
+
+        StringBuilder answer = new StringBuilder();
+        Matcher delta = Pattern.compile("event:delta\\ndata:(.*)\\n").matcher(body);
+        while (delta.find()) {
+            answer.append(delta.group(1));
+        }
+        assertThat(answer.toString()).isEqualTo(FakeCompletionServer.REPLY);
+        assertThat(body).contains("\"cached\":false");
+    }
+
+    @Test
+    void noConnectionIsHeldWhileOpenAiAnswers() throws Exception {
+        User customer = userRepository.findByUsername("testcustomer").orElseThrow();
+        HikariPoolMXBean pool = ((HikariDataSource) dataSource).getHikariPoolMXBean();
+
+        OPENAI.holdReplies();
+        MvcResult plain;
+        MvcResult streamed;
+        try {
+            plain = mockMvc.perform(post("/api/ai/query")
+                            .with(user(customer))
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"query\": \"Giderlerim neden arttı?\"}"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            streamed = mockMvc.perform(post("/api/ai/query/stream")
+                            .with(user(customer))
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .accept(MediaType.TEXT_EVENT_STREAM)
+                            .content("{\"query\": \"Nakit durumum nasıl?\"}"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            assertThat(OPENAI.awaitHeldRequest(5_000)).isTrue();
+
+            // Background jobs may borrow a connection for a moment; the two queries must not keep one
+            long deadline = System.currentTimeMillis() + 2_000;
+            while (pool.getActiveConnections() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertThat(pool.getActiveConnections()).isZero();
+        } finally {
+            OPENAI.releaseReplies();
+        }
+
+        plain.getAsyncResult(10_000);
+        streamed.getAsyncResult(10_000);
+        assertThat(streamed.getResponse().getContentAsString(StandardCharsets.UTF_8)).contains("event:done");
+    }
+
+    @Test
+    void queryStreamRequiresAuthentication() throws Exception {
+        mockMvc.perform(post("/api/ai/query/stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"query\": \"Merhaba\"}"))
+                .andExpect(status().is4xxClientError());
+    }
+
+    private static List<String> eventNames(String body) {
+        List<String> names = new ArrayList<>();
+        Matcher matcher = Pattern.compile("^event:(\\S+)$", Pattern.MULTILINE).matcher(body);
+        while (matcher.find()) {
+            names.add(matcher.group(1));
+        }
+        return names;
+    }
+}
@@ -0,0 +1,127 @@
+package preaccountingsystem.repository;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.context.ActiveProfiles;
+import preaccountingsystem.dto.UnpaidInvoiceProjection;
+import preaccountingsystem.entity.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class InvoiceRepositoryTest {
+
+    // Entities and repositories only; the application class would also pull in its startup seeding
+    @SpringBootConfiguration
+    @EntityScan("preaccountingsystem.entity")
+    @EnableJpaRepositories("preaccountingsystem.repository")
+    static class JpaConfig {
+    }
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Customer company;
+    private CustomerSupplier counterparty;
+    private int invoiceCount;
+
+    @BeforeEach
+    void setUp() {
+        company = Customer.builder().name("Acme").email("acme@example.com").build();
+        entityManager.persist(company);
+        counterparty = CustomerSupplier.builder().name("Globex").company(company).build();
+        entityManager.persist(counterparty);
+    }
+
+    @Test
+    void unpaidSummariesTakeOneStatementWhateverTheInvoiceCount() {
+        addUnpaidInvoices(5);
+        long fewInvoices = countStatements(5);
+
+        addUnpaidInvoices(95);
+        long manyInvoices = countStatements(100);
+
+        assertThat(fewInvoices).isEqualTo(1);
+        assertThat(manyInvoices).isEqualTo(fewInvoices);
+    }
+
+    @Test
+    void unpaidSummariesSumPaymentsAndCarryCounterpartyName() {
+        Invoice invoice = addUnpaidInvoices(1).get(0);
+        addPayment(invoice, new BigDecimal("30.00"));
+        addPayment(invoice, new BigDecimal("20.00"));
+        entityManager.flush();
+        entityManager.clear();
+
+        try (Stream<UnpaidInvoiceProjection> rows =
+                     invoiceRepository.streamUnpaidSummaries(company.getId(), InvoiceStatus.UNPAID)) {
+            UnpaidInvoiceProjection row = rows.findFirst().orElseThrow();
+            assertThat(row.getInvoiceId()).isEqualTo(invoice.getId());
+            assertThat(row.getCustomerSupplierName()).isEqualTo("Globex");
+            assertThat(row.getAmountPaid()).isEqualByComparingTo("60.00");
+        }
+    }
+
+    private List<Invoice> addUnpaidInvoices(int count) {
+        List<Invoice> invoices = Stream.generate(() -> {
+            int number = ++invoiceCount;
+            Invoice invoice = Invoice.builder()
+                    .invoiceNumber("INV-" + number)
+                    .invoiceDate(LocalDate.of(2024, 1, 1))
+                    .dueDate(LocalDate.of(2024, 1, 1).plusDays(number))
+                    .totalAmount(new BigDecimal("100.00"))
+                    .customerSupplier(counterparty)
+                    .company(company)
+                    .build();
+            entityManager.persist(invoice);
+            addPayment(invoice, new BigDecimal("10.00"));
+            return invoice;
+        }).limit(count).toList();
+        entityManager.flush();
+        return invoices;
+    }
+
+    private void addPayment(Invoice invoice, BigDecimal amount) {
+        entityManager.persist(Payment.builder()
+                .type(PaymentType.COLLECTION)
+                .amount(amount)
+                .paymentDate(LocalDate.of(2024, 1, 2))
+                .paymentMethod(PaymentMethod.BANK_TRANSFER)
+                .customerSupplier(counterparty)
+                .invoice(invoice)
+                .company(company)
+                .build());
+    }
+
+    private long countStatements(int expectedRows) {
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        try (Stream<UnpaidInvoiceProjection> rows =
+                     invoiceRepository.streamUnpaidSummaries(company.getId(), InvoiceStatus.UNPAID)) {
+            assertThat(rows.map(row -> row.getCustomerSupplierName() + row.getAmountPaid()).count())
+                    .isEqualTo(expectedRows);
+        }
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,149 @@
+package preaccountingsystem.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import preaccountingsystem.entity.AIAuditLog;
+import preaccountingsystem.entity.Customer;
+import preaccountingsystem.entity.User;
+import preaccountingsystem.repository.AIAuditLogBatchRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+// The sink commits its own transactions
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AIAuditSinkTest {
+
+    @SpringBootConfiguration
+    @EntityScan("preaccountingsystem.entity")
+    @EnableJpaRepositories("preaccountingsystem.repository")
+    @Import(AIAuditLogBatchRepository.class)
+    static class JpaConfig {
+    }
+
+    // Longer than the query column, so the database rejects the row
+    private static final String TOO_LONG = "x".repeat(2001);
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Autowired
+    private AIAuditLogBatchRepository batchRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    private Path spillDir;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM ai_audit_logs");
+    }
+
+    @Test
+    void rejectedEntryIsDeadLetteredAndTheRestOfTheBatchIsStored() throws Exception {
+        AIAuditSink sink = newSink();
+        sink.init();
+        for (int i = 0; i < 5; i++) {
+            sink.submit(entry(i == 2 ? TOO_LONG : "query " + i));
+        }
+        sink.stop();
+
+        assertThat(storedCount()).isEqualTo(4);
+        assertThat(deadLetters()).hasSize(1).allSatisfy(line -> assertThat(line).contains(TOO_LONG));
+        assertThat(segments()).isEmpty();
+    }
+
+    @Test
+    void rejectedSpilledEntryDoesNotStopStartup() throws Exception {
+        Files.write(spillDir.resolve("audit-1-0.jsonl"), List.of(
+                spilledLine("k-1", "query 1"),
+                spilledLine("k-2", TOO_LONG),
+                spilledLine("k-3", "query 3")));
+
+        AIAuditSink sink = newSink();
+        sink.init();
+        sink.stop();
+
+        assertThat(storedCount()).isEqualTo(2);
+        assertThat(deadLetters()).hasSize(1).allSatisfy(line -> assertThat(line).contains("k-2"));
+        assertThat(segments()).isEmpty();
+    }
+
+    private AIAuditSink newSink() {
+        AIAuditSink sink = new AIAuditSink(batchRepository, transactionManager, objectMapper);
+        ReflectionTestUtils.setField(sink, "enabled", true);
+        ReflectionTestUtils.setField(sink, "queueCapacity", 100);
+        ReflectionTestUtils.setField(sink, "batchSize", 100);
+        ReflectionTestUtils.setField(sink, "flushIntervalMs", 60_000L);
+        ReflectionTestUtils.setField(sink, "spillDir", spillDir.toString());
+        ReflectionTestUtils.setField(sink, "spillFsync", false);
+        return sink;
+    }
+
+    private AIAuditLog entry(String query) {
+        User user = new User();
+        user.setId(1L);
+        Customer company = new Customer();
+        company.setId(1L);
+        return AIAuditLog.builder()
+                .query(query)
+                .response("answer")
+                .tokensUsed(10)
+                .user(user)
+                .company(company)
+                .build();
+    }
+
+    private String spilledLine(String key, String query) throws Exception {
+        return objectMapper.writeValueAsString(Map.of(
+                "entryKey", key,
+                "query", query,
+                "response", "answer",
+                "tokensUsed", 10,
+                "cacheHit", false,
+                "userId", 1,
+                "companyId", 1,
+                "timestamp", "2024-01-01T10:00:00"));
+    }
+
+    private long storedCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ai_audit_logs", Long.class);
+    }
+
+    private List<String> deadLetters() throws Exception {
+        return Files.readAllLines(spillDir.resolve("dead-letter.jsonl"));
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(spillDir)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("audit-")).toList();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package preaccountingsystem.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import preaccountingsystem.repository.CurrencyRepository;
+import preaccountingsystem.repository.ExchangeRateRepository;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ExchangeRateHistoryStoreTest {
+
+    private static final LocalDate DAY_0 = LocalDate.of(2024, 3, 1);
+
+    private final ExchangeRateRepository exchangeRateRepository = mock(ExchangeRateRepository.class);
+    // Stored rates by pair, as the exchange_rates table would return them
+    private final Map<String, List<Object[]>> table = new HashMap<>();
+
+    @TempDir
+    private Path historyDir;
+
+    private ExchangeRateHistoryStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(exchangeRateRepository.findPairRateValuesSince(anyString(), anyString(), any())).thenAnswer(invocation -> {
+            LocalDate since = invocation.getArgument(2);
+            return table.getOrDefault(invocation.getArgument(0) + "-" + invocation.getArgument(1), List.of()).stream()
+                    .filter(row -> !((LocalDate) row[0]).isBefore(since))
+                    .toList();
+        });
+        CurrencyRepository currencyRepository = mock(CurrencyRepository.class);
+        when(currencyRepository.existsByCode(anyString())).thenReturn(true);
+
+        store = new ExchangeRateHistoryStore(exchangeRateRepository, currencyRepository,
+                mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(store, "historyDir", historyDir.toString());
+        store.init();
+    }
+
+    @Test
+    void pairFileHoldsSortedDayAndScaledRateRecords() throws Exception {
+        addRate("EUR", "TRY", 0, "35.1234567891");
+        addRate("EUR", "TRY", 2, "35.5");
+
+        store.findRates("EUR", "TRY", DAY_0, DAY_0);
+
+        ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(historyDir.resolve("EUR-TRY.rates")));
+        assertThat(records.remaining()).isEqualTo(2 * (Integer.BYTES + Long.BYTES));
+        assertThat(records.getInt()).isEqualTo((int) DAY_0.toEpochDay());
+        assertThat(records.getLong()).isEqualTo(351_234_567_891L);
+        assertThat(records.getInt()).isEqualTo((int) DAY_0.plusDays(2).toEpochDay());
+        assertThat(records.getLong()).isEqualTo(355_000_000_000L);
+    }
+
+    @Test
+    void ratesCarryForwardAndAreNaNBeforeTheFirstOne() {
+        addRate("EUR", "TRY", 1, "35");
+        addRate("EUR", "TRY", 3, "36");
+
+        double[] rates = store.findRates("EUR", "TRY", DAY_0, DAY_0.plusDays(4));
+
+        assertThat(rates[0]).isNaN();
+        assertThat(rates).endsWith(35.0, 35.0, 36.0, 36.0);
+    }
+
+    @Test
+    void staleSeriesRereadsOnlyItsTail() {
+        addRate("EUR", "TRY", 0, "35");
+        addRate("EUR", "TRY", 1, "36");
+        store.findRates("EUR", "TRY", DAY_0, DAY_0);
+
+        addRate("EUR", "TRY", 2, "37");
+        store.markStale();
+        double[] rates = store.findRates("EUR", "TRY", DAY_0, DAY_0.plusDays(2));
+
+        assertThat(rates).containsExactly(35.0, 36.0, 37.0);
+        verify(exchangeRateRepository).findPairRateValuesSince(eq("EUR"), eq("TRY"), eq(DAY_0.plusDays(1)));
+    }
+
+    @Test
+    void daysBeforeTheDirectPairStartsUseTheInversePair() {
+        addRate("TRY", "EUR", 0, "0.025");
+        addRate("EUR", "TRY", 2, "41");
+
+        double[] rates = store.findRates("EUR", "TRY", DAY_0, DAY_0.plusDays(3));
+
+        assertThat(rates).containsExactly(new double[]{40.0, 40.0, 41.0, 41.0}, within(1e-9));
+    }
+
+    @Test
+    void daysNeitherDirectionCoversUseTheCrossRateThroughUsd() {
+        addRate("USD", "EUR", 0, "0.5");
+        addRate("TRY", "USD", 0, "0.04");
+        addRate("EUR", "TRY", 2, "51");
+
+        double[] rates = store.findRates("EUR", "TRY", DAY_0, DAY_0.plusDays(2));
+
+        // 1 EUR = 2 USD = 50 TRY until the pair's own rate starts
+        assertThat(rates).containsExactly(new double[]{50.0, 50.0, 51.0}, within(1e-9));
+    }
+
+    private void addRate(String from, String to, int day, String rate) {
+        table.computeIfAbsent(from + "-" + to, key -> new ArrayList<>())
+                .add(new Object[]{DAY_0.plusDays(day), new BigDecimal(rate)});
+    }
+}
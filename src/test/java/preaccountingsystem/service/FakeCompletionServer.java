@@ -0,0 +1,160 @@
+package preaccountingsystem.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for the OpenAI chat completions API, so tests run without network access.
+ *
+ * Answers POST {port}/v1/chat/completions with a canned reply, either as one JSON body or,
+ * when the request asks for "stream": true, as server-sent chunks a few words at a time.
+ * Point openai.base-url at {@link #getBaseUrl()} to use it; any API key is accepted.
+ * {@link #holdReplies()} makes requests wait until {@link #releaseReplies()}, to look at the
+ * application while a completion is outstanding.
+ */
+@Slf4j
+public class FakeCompletionServer {
+
+    public static final String REPLY = "Son 30 günün verilerine göre gelirleriniz giderlerinizi karşılıyor. "
+            + "Ödenmemiş faturalarınızı takip etmenizi ve büyük gider kalemlerini gözden geçirmenizi öneririm.";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // Pause between streamed chunks, so deltas arrive as separate events
+    private final long chunkDelayMs;
+
+    // Requests pass the gate once it is open; "arrived" counts down when one reaches it
+    private volatile CountDownLatch gate = new CountDownLatch(0);
+    private volatile CountDownLatch arrived = new CountDownLatch(1);
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public FakeCompletionServer(long chunkDelayMs) {
+        this.chunkDelayMs = chunkDelayMs;
+    }
+
+    /**
+     * Starts listening on a free loopback port.
+     */
+    public void start() throws IOException {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("fake-openai-");
+        threadFactory.setDaemon(true);
+        executor = Executors.newCachedThreadPool(threadFactory);
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/v1/chat/completions", this::handle);
+        server.setExecutor(executor);
+        server.start();
+        log.info("Fake OpenAI completion server listening on port {}", server.getAddress().getPort());
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Makes the next requests wait before answering, until {@link #releaseReplies()}.
+     */
+    public void holdReplies() {
+        arrived = new CountDownLatch(1);
+        gate = new CountDownLatch(1);
+    }
+
+    /**
+     * Waits until a request is being held.
+     */
+    public boolean awaitHeldRequest(long timeoutMs) throws InterruptedException {
+        return arrived.await(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void releaseReplies() {
+        gate.countDown();
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/v1";
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            arrived.countDown();
+            awaitGate();
+            if (request.path("stream").asBoolean(false)) {
+                streamReply(exchange);
+            } else {
+                byte[] body = objectMapper.writeValueAsBytes(Map.of(
+                        "object", "chat.completion",
+                        "choices", List.of(Map.of(
+                                "index", 0,
+                                "message", Map.of("role", "assistant", "content", REPLY),
+                                "finish_reason", "stop"))));
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            }
+        }
+    }
+
+    private void streamReply(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+
+        String[] words = REPLY.split("(?<= )");
+        for (int i = 0; i < words.length; i += 3) {
+            StringBuilder chunk = new StringBuilder();
+            for (int j = i; j < Math.min(i + 3, words.length); j++) {
+                chunk.append(words[j]);
+            }
+            writeEvent(out, objectMapper.writeValueAsString(Map.of(
+                    "object", "chat.completion.chunk",
+                    "choices", List.of(Map.of("index", 0, "delta", Map.of("content", chunk.toString()))))));
+            pause();
+        }
+        writeEvent(out, "[DONE]");
+    }
+
+    private void writeEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private void awaitGate() {
+        try {
+            gate.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(chunkDelayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
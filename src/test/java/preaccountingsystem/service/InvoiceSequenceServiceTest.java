@@ -0,0 +1,194 @@
+package preaccountingsystem.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import preaccountingsystem.entity.Customer;
+import preaccountingsystem.entity.CustomerSupplier;
+import preaccountingsystem.entity.Invoice;
+import preaccountingsystem.entity.SystemSettings;
+import preaccountingsystem.repository.CustomerRepository;
+import preaccountingsystem.repository.CustomerSupplierRepository;
+import preaccountingsystem.repository.InvoiceRepository;
+import preaccountingsystem.repository.InvoiceSequenceRepository;
+import preaccountingsystem.repository.SystemSettingsRepository;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+// Reservations commit on the sequence pool, outside any test transaction
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class InvoiceSequenceServiceTest {
+
+    @SpringBootConfiguration
+    @EntityScan("preaccountingsystem.entity")
+    @EnableJpaRepositories("preaccountingsystem.repository")
+    @Import(InvoiceSequenceRepository.class)
+    static class JpaConfig {
+    }
+
+    private static final int YEAR = Year.now().getValue();
+
+    @Autowired
+    private InvoiceSequenceRepository invoiceSequenceRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private CustomerSupplierRepository customerSupplierRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private InvoiceSequenceService service;
+    private Customer company;
+
+    @BeforeEach
+    void setUp() {
+        SystemSettingsRepository settings = mock(SystemSettingsRepository.class);
+        when(settings.findById(1L)).thenReturn(Optional.of(SystemSettings.builder()
+                .invoiceNumberFormat("INV-{YEAR}-{SEQUENCE}")
+                .build()));
+
+        service = new InvoiceSequenceService(invoiceSequenceRepository, invoiceRepository, settings);
+        ReflectionTestUtils.setField(service, "blockSize", 3);
+        company = customerRepository.save(Customer.builder().name("Acme").email("acme@example.com").build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM invoices WHERE company_id = ?", company.getId());
+        jdbcTemplate.update("DELETE FROM invoice_sequences WHERE company_id = ?", company.getId());
+        jdbcTemplate.update("DELETE FROM customer_suppliers WHERE company_id = ?", company.getId());
+        jdbcTemplate.update("DELETE FROM customers WHERE id = ?", company.getId());
+    }
+
+    @Test
+    void singleNumbersAreServedFromRefilledBlocks() {
+        List<String> numbers = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            numbers.add(service.nextInvoiceNumber(company.getId()));
+        }
+
+        assertThat(numbers).containsExactly(number(1), number(2), number(3), number(4),
+                number(5), number(6), number(7));
+        // Three blocks of three taken from the counter
+        assertThat(nextValue()).isEqualTo(10L);
+    }
+
+    @Test
+    void bulkRequestGetsItsOwnContiguousRange() {
+        service.nextInvoiceNumber(company.getId());
+
+        List<String> bulk = service.nextInvoiceNumbers(company.getId(), 5);
+
+        assertThat(bulk).containsExactly(number(4), number(5), number(6), number(7), number(8));
+        assertThat(service.nextInvoiceNumber(company.getId())).isEqualTo(number(2));
+    }
+
+    @Test
+    void newCounterContinuesAfterTheLastNumberOfTheYear() {
+        addInvoice("INV-" + YEAR + "-00041");
+
+        assertThat(service.nextInvoiceNumber(company.getId())).isEqualTo(number(42));
+    }
+
+    @Test
+    void eachCompanyNumbersItsOwnInvoices() {
+        addInvoice("INV-" + YEAR + "-00001");
+        Customer other = customerRepository.save(
+                Customer.builder().name("Initech").email("initech@example.com").build());
+        try {
+            assertThat(service.nextInvoiceNumber(other.getId())).isEqualTo(number(1));
+            assertThat(service.nextInvoiceNumber(company.getId())).isEqualTo(number(2));
+        } finally {
+            jdbcTemplate.update("DELETE FROM invoice_sequences WHERE company_id = ?", other.getId());
+            customerRepository.deleteById(other.getId());
+        }
+    }
+
+    @Test
+    void concurrentRequestsNeverShareANumber() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                boolean bulk = i % 2 == 0;
+                results.add(pool.submit(() -> {
+                    List<String> numbers = new ArrayList<>();
+                    for (int j = 0; j < 10; j++) {
+                        numbers.addAll(bulk
+                                ? service.nextInvoiceNumbers(company.getId(), 4)
+                                : List.of(service.nextInvoiceNumber(company.getId())));
+                    }
+                    return numbers;
+                }));
+            }
+
+            Set<String> unique = new HashSet<>();
+            int total = 0;
+            for (Future<List<String>> result : results) {
+                List<String> numbers = result.get();
+                unique.addAll(numbers);
+                total += numbers.size();
+            }
+            assertThat(total).isEqualTo(4 * 40 + 4 * 10);
+            assertThat(unique).hasSize(total);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Long nextValue() {
+        return jdbcTemplate.queryForObject(
+                "SELECT next_value FROM invoice_sequences WHERE company_id = ? AND sequence_year = ?",
+                Long.class, company.getId(), YEAR);
+    }
+
+    private void addInvoice(String invoiceNumber) {
+        CustomerSupplier counterparty = customerSupplierRepository.save(
+                CustomerSupplier.builder().name("Globex").company(company).build());
+        invoiceRepository.save(Invoice.builder()
+                .invoiceNumber(invoiceNumber)
+                .invoiceDate(LocalDate.now())
+                .dueDate(LocalDate.now().plusDays(30))
+                .customerSupplier(counterparty)
+                .company(company)
+                .build());
+    }
+
+    private static String number(long value) {
+        return String.format("INV-%d-%05d", YEAR, value);
+    }
+}
@@ -0,0 +1,108 @@
+package preaccountingsystem.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import preaccountingsystem.entity.Customer;
+import preaccountingsystem.entity.Item;
+import preaccountingsystem.entity.ItemStatus;
+import preaccountingsystem.entity.ItemType;
+import preaccountingsystem.repository.ItemRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class ItemSearchIndexTest {
+
+    private static final Long COMPANY = 1L;
+
+    private final ItemRepository itemRepository = mock(ItemRepository.class);
+    private final CountDownLatch buildMayRead = new CountDownLatch(1);
+    private ItemSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{10L, "Vida M8", "Çelik vida", "Hırdavat", ItemType.PRODUCT, ItemStatus.ACTIVE});
+        rows.add(new Object[]{11L, "Somun", "M8 vida somunu", "Hırdavat", ItemType.PRODUCT, ItemStatus.ACTIVE});
+        when(itemRepository.findSearchFieldsByCompanyId(COMPANY)).thenAnswer(invocation -> {
+            buildMayRead.await(5, TimeUnit.SECONDS);
+            return rows;
+        });
+
+        index = new ItemSearchIndex(itemRepository, mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(index, "maxCompanies", 10);
+        ReflectionTestUtils.setField(index, "buildThreads", 2);
+        index.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.stop();
+    }
+
+    @Test
+    void concurrentColdSearchesShareOneBuild() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertThat(search("vida")).isEmpty();
+        }
+        buildMayRead.countDown();
+
+        assertThat(awaitBuilt("vida").keys()).containsExactly(10L, 11L);
+        verify(itemRepository, times(1)).findSearchFieldsByCompanyId(COMPANY);
+    }
+
+    @Test
+    void changesReportedDuringTheBuildAreApplied() throws Exception {
+        assertThat(search("vida")).isEmpty();
+        index.itemChanged(item(12L, "Vida M10"));
+        index.itemRemoved(COMPANY, 11L);
+        buildMayRead.countDown();
+
+        assertThat(awaitBuilt("vida").keys()).containsExactly(10L, 12L);
+    }
+
+    @Test
+    void builtIndexFollowsLaterChanges() throws Exception {
+        search("vida");
+        buildMayRead.countDown();
+        awaitBuilt("vida");
+
+        index.itemChanged(item(11L, "Cıvata"));
+
+        assertThat(search("civata").orElseThrow().keys()).containsExactly(11L);
+        assertThat(search("vida").orElseThrow().keys()).containsExactly(10L);
+    }
+
+    private Optional<TrigramIndex.Result<Long>> search(String text) {
+        return index.search(COMPANY, text, null, null, null, 0, 10);
+    }
+
+    private TrigramIndex.Result<Long> awaitBuilt(String text) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        Optional<TrigramIndex.Result<Long>> result = search(text);
+        while (result.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            result = search(text);
+        }
+        return result.orElseThrow();
+    }
+
+    private static Item item(Long id, String name) {
+        return Item.builder()
+                .id(id)
+                .name(name)
+                .category("Hırdavat")
+                .type(ItemType.PRODUCT)
+                .company(Customer.builder().id(COMPANY).build())
+                .build();
+    }
+}
@@ -0,0 +1,101 @@
+package preaccountingsystem.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrigramIndexTest {
+
+    private final TrigramIndex<Long> index = new TrigramIndex<>();
+
+    @Test
+    void matchesRankByHowTheyHitTheBestField() {
+        index.put(1L, "Acme Trading Istanbul", "info@acme.com");
+        index.put(2L, "Trading House", "sales@th.com");
+        index.put(3L, "Globex Intertrading", "trading");
+        index.put(4L, "Wholesale", "orders@tradingpost.com");
+        index.put(5L, "Trading", "x@y.com");
+
+        TrigramIndex.Result<Long> result = index.search("trading", 0, 10);
+
+        // Whole first field, whole second field, first field prefix, word prefix, word prefix in the second field
+        assertThat(result.keys()).containsExactly(5L, 3L, 2L, 1L, 4L);
+        assertThat(result.total()).isEqualTo(5);
+    }
+
+    @Test
+    void earlierFieldsAndThenSmallerKeysWinTies() {
+        index.put(7L, "Delta", "delta@mail.com");
+        index.put(3L, "Omega", "delta");
+        index.put(5L, "Delta", "none");
+
+        assertThat(index.search("delta", 0, 10).keys()).containsExactly(5L, 7L, 3L);
+    }
+
+    @Test
+    void searchIsCaseAndTurkishIInsensitive() {
+        index.put(1L, "İSTANBUL Ihracat");
+        index.put(2L, "ıstakoz");
+
+        assertThat(index.search("istanbul", 0, 10).keys()).containsExactly(1L);
+        assertThat(index.search("IHRA", 0, 10).keys()).containsExactly(1L);
+        // Shorter than a gram: scanned instead of looked up
+        assertThat(index.search("is", 0, 10).keys()).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void pagesShareOneTotal() {
+        IntStream.rangeClosed(1, 25).forEach(key -> index.put((long) key, "Company " + key));
+
+        TrigramIndex.Result<Long> second = index.search("company", 10, 10);
+
+        assertThat(second.keys()).hasSize(10).first().isEqualTo(11L);
+        assertThat(second.total()).isEqualTo(25);
+        assertThat(index.search("company", 20, 10).keys()).containsExactly(21L, 22L, 23L, 24L, 25L);
+    }
+
+    @Test
+    void replacedAndRemovedKeysNoLongerMatchTheirOldFields() {
+        index.put(1L, "Old Name");
+        index.put(2L, "Other Name");
+        index.put(1L, "New Title");
+        index.remove(2L);
+
+        assertThat(index.search("name", 0, 10).keys()).isEmpty();
+        assertThat(index.search("title", 0, 10).keys()).containsExactly(1L);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void compactionRenumbersLiveDocumentsAndKeepsResults() {
+        IntStream.rangeClosed(1, 3000)
+                .forEach(key -> index.put((long) key, "Item " + key, key % 2 == 0 ? "even" : "odd"));
+        // Kill more than half, then rename some survivors, which kills their old ordinals too
+        IntStream.rangeClosed(1, 1600).forEach(key -> index.remove((long) key));
+        IntStream.rangeClosed(2991, 3000).forEach(key -> index.put((long) key, "Renamed " + key, "even"));
+
+        // Compacted once 1500 of 3000 were dead; 100 removals and 10 renames since
+        assertThat(documentSlots()).isEqualTo(1500 + 10);
+        assertThat(index.size()).isEqualTo(1400);
+        assertThat(index.search("odd", 0, 2000).total()).isEqualTo(695);
+        assertThat(index.search("renamed", 0, 20).keys()).hasSize(10).first().isEqualTo(2991L);
+        assertThat(index.search("item 2991", 0, 10).keys()).isEmpty();
+        assertThat(index.search("item 1601", 0, 10).keys()).containsExactly(1601L);
+
+        // Ordinals handed out after compaction keep the gram lists sorted
+        index.put(1601L, "Item 1601 moved");
+        index.put(99_999L, "Item 99999");
+        assertThat(index.search("item 1601", 0, 10).keys()).containsExactly(1601L);
+        assertThat(index.search("moved", 0, 10).keys()).containsExactly(1601L);
+        assertThat(index.search("item 9999", 0, 10).keys()).containsExactly(99_999L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int documentSlots() {
+        return ((List<String[]>) ReflectionTestUtils.getField(index, "documents")).size();
+    }
+}